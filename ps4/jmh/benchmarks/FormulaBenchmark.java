@@ -0,0 +1,105 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sat.formula.Clause;
+import sat.formula.Formula;
+import sat.formula.Literal;
+import sat.formula.PosLiteral;
+
+/**
+ * Formula.and, or and not, and Clause.reduce, on formulas of clauses
+ * with width literals each over distinct variables. not and or multiply
+ * out clauses, so they are run on formulas of three clauses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FormulaBenchmark {
+    @Param({ "3", "10" })
+    int width;
+
+    // p and q: 100 clauses each; small, smallOther: 3 clauses each
+    Formula p, q, small, smallOther;
+    Clause clause;
+    Literal first, middle, absent;
+
+    @Setup
+    public void setup() {
+        p = formula("p", 100);
+        q = formula("q", 100);
+        small = formula("s", 3);
+        smallOther = formula("t", 3);
+        clause = p.getClauses().first();
+        List<Literal> literals = new ArrayList<Literal>();
+        for (Literal l : clause)
+            literals.add(l);
+        first = literals.get(0);
+        middle = literals.get(width / 2).getNegation();
+        absent = PosLiteral.make("absent");
+    }
+
+    /*
+     * @return a formula of n clauses of width literals named prefix<i>_<j>
+     */
+    private Formula formula(String prefix, int n) {
+        Formula f = new Formula();
+        for (int i = 0; i < n; i++) {
+            Clause c = new Clause();
+            for (int j = 0; j < width; j++)
+                c = c.add(PosLiteral.make(prefix + i + "_" + j));
+            f = f.addClause(c);
+        }
+        return f;
+    }
+
+    @Benchmark
+    public Formula and() {
+        return p.and(q);
+    }
+
+    @Benchmark
+    public Formula or() {
+        return small.or(smallOther);
+    }
+
+    @Benchmark
+    public Formula not() {
+        return small.not();
+    }
+
+    /** The clause is satisfied: reduce returns null. */
+    @Benchmark
+    public Clause reduceSatisfied() {
+        return clause.reduce(first);
+    }
+
+    /** The negation of a literal in the middle of the clause is removed. */
+    @Benchmark
+    public Clause reduceRemove() {
+        return clause.reduce(middle);
+    }
+
+    /** The literal does not occur: the whole clause is scanned. */
+    @Benchmark
+    public Clause reduceAbsent() {
+        return clause.reduce(absent);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import immutable.HashTrieMap;
+import immutable.ImListMap;
+import immutable.ImMap;
+
+/**
+ * get and put on ImListMap and HashTrieMap holding size bindings. Each
+ * operation uses the next of size keys in turn, so gets hit and puts
+ * replace an existing binding. Run with assertions off: ImListMap's rep
+ * check is quadratic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ImmutableMapBenchmark {
+    @Param({ "10", "100", "1000" })
+    int size;
+
+    @Param({ "ImListMap", "HashTrieMap" })
+    String map;
+
+    ImMap<Integer, Integer> bindings;
+    Integer[] keys;
+    int next = 0;
+
+    @Setup
+    public void setup() {
+        bindings = map.equals("ImListMap") ? new ImListMap<Integer, Integer>()
+                : new HashTrieMap<Integer, Integer>();
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i;
+            bindings = bindings.put(keys[i], keys[i]);
+        }
+    }
+
+    private Integer nextKey() {
+        Integer key = keys[next];
+        next = next + 1 == size ? 0 : next + 1;
+        return key;
+    }
+
+    @Benchmark
+    public Integer get() {
+        return bindings.get(nextKey());
+    }
+
+    @Benchmark
+    public ImMap<Integer, Integer> put() {
+        Integer key = nextKey();
+        return bindings.put(key, key + 1);
+    }
+}
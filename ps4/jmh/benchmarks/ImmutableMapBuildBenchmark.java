@@ -0,0 +1,93 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import immutable.HashTrieMap;
+import immutable.ImListMap;
+import immutable.ImMap;
+
+/**
+ * Putting size keys one at a time into an empty map and then getting each
+ * of them, on HashTrieMap for 10^3 to 10^6 bindings. ImListMap's put and
+ * get are linear, so its build is quadratic and it is only measured up to
+ * 10^4 bindings. Run with assertions off: ImListMap's rep check is
+ * quadratic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ImmutableMapBuildBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Large {
+        @Param({ "1000", "10000", "100000", "1000000" })
+        int size;
+
+        Integer[] keys;
+
+        @Setup
+        public void setup() {
+            keys = keys(size);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Small {
+        @Param({ "1000", "10000" })
+        int size;
+
+        Integer[] keys;
+
+        @Setup
+        public void setup() {
+            keys = keys(size);
+        }
+    }
+
+    /*
+     * @return the keys 0..size-1
+     */
+    static Integer[] keys(int size) {
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = i;
+        return keys;
+    }
+
+    /*
+     * Put each key into map, bound to itself, then get each of them.
+     * @return the sum of the values got
+     */
+    static long putThenGet(ImMap<Integer, Integer> map, Integer[] keys) {
+        for (Integer key : keys)
+            map = map.put(key, key);
+        long sum = 0;
+        for (Integer key : keys)
+            sum += map.get(key);
+        return sum;
+    }
+
+    @Benchmark
+    public long hashTrieMap(Large large) {
+        return putThenGet(new HashTrieMap<Integer, Integer>(), large.keys);
+    }
+
+    @Benchmark
+    public long imListMap(Small small) {
+        return putThenGet(new ImListMap<Integer, Integer>(), small.keys);
+    }
+}
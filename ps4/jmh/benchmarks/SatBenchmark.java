@@ -0,0 +1,136 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sat.SATSolver;
+import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.Dimacs;
+import sat.formula.PackedFormula;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ParseException;
+
+/**
+ * SATSolver.solve on the sample Sudoku puzzles; Dimacs.read on random
+ * 3-SAT files of 10^3 to 10^6 clauses; and SATSolver.solve on random 3-SAT
+ * instances of 50 to 150 variables with 4.26 clauses per variable, the
+ * ratio at which such instances are hardest. The instances are generated
+ * with fixed seeds, so every run sees the same ones.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SatBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Puzzle {
+        @Param({ "sudoku_easy.txt", "sudoku_hard.txt", "sudoku_evil.txt" })
+        String name;
+
+        PackedFormula formula;
+
+        @Setup
+        public void setup() throws IOException, ParseException {
+            formula = Sudoku.fromFile(3, "samples" + File.separator + name).getPackedProblem();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Instance {
+        @Param({ "50", "100", "150" })
+        int vars;
+
+        PackedFormula formula;
+
+        @Setup
+        public void setup() throws IOException, Dimacs.ParseException {
+            // through a file, as instances reach the solver in practice
+            File file = File.createTempFile("random3sat", ".cnf");
+            try {
+                Dimacs.write(random3Sat(vars, (int) (4.26 * vars), new Random(vars)), file);
+                formula = Dimacs.read(file);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class DimacsFile {
+        @Param({ "1000", "100000", "1000000" })
+        int clauses;
+
+        File file;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            file = File.createTempFile("random3sat", ".cnf");
+            Dimacs.write(random3Sat(clauses / 4, clauses, new Random(clauses)), file);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            file.delete();
+        }
+    }
+
+    /*
+     * @return a random 3-SAT formula: each clause has three distinct
+     * variables, each negated with probability 1/2
+     */
+    static PackedFormula random3Sat(int vars, int clauses, Random random) {
+        PackedFormula f = new PackedFormula();
+        for (int v = 1; v <= vars; v++)
+            f.addVariable(new Variable("x" + v));
+        int[] lits = new int[3];
+        for (int c = 0; c < clauses; c++) {
+            for (int i = 0; i < 3; i++) {
+                int v;
+                boolean fresh;
+                do {
+                    v = random.nextInt(vars);
+                    fresh = true;
+                    for (int j = 0; j < i; j++)
+                        fresh &= PackedFormula.variable(lits[j]) != v;
+                } while (!fresh);
+                lits[i] = PackedFormula.literal(v, random.nextBoolean());
+            }
+            f.addClause(lits, 0, 3);
+        }
+        return f;
+    }
+
+    @Benchmark
+    public Environment solveSudoku(Puzzle puzzle) {
+        return SATSolver.solve(puzzle.formula);
+    }
+
+    @Benchmark
+    public PackedFormula readDimacs(DimacsFile dimacs) throws IOException, Dimacs.ParseException {
+        return Dimacs.read(dimacs.file);
+    }
+
+    @Benchmark
+    public Environment solveDimacs(Instance instance) {
+        return SATSolver.solve(instance.formula);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sat.formula.Formula;
+import sat.formula.PackedFormula;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ParseException;
+
+/**
+ * Building the SAT problem of an empty puzzle of dimension 2 to 5, through
+ * Formula (getProblem) and in packed form (getPackedProblem). The 9x9
+ * puzzle is a sample with givens, so the givens' unit clauses are included.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SudokuBenchmarks {
+    @Param({ "2", "3", "4", "5" })
+    int dim;
+
+    Sudoku sudoku;
+
+    @Setup
+    public void setup() throws IOException, ParseException {
+        sudoku = dim == 3 ? Sudoku.fromFile(3, "samples" + File.separator + "sudoku_hard.txt")
+                : new Sudoku(dim);
+    }
+
+    @Benchmark
+    public Formula getProblem() {
+        return sudoku.getProblem();
+    }
+
+    @Benchmark
+    public PackedFormula getPackedProblem() {
+        return sudoku.getPackedProblem();
+    }
+}
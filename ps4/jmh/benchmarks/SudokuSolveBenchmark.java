@@ -0,0 +1,75 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sudoku.SolveMethod;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ParseException;
+import sudoku.SudokuSolver;
+
+/**
+ * Solving a puzzle by each SolveMethod: the SAT route (encoding plus
+ * SATSolver) against SudokuSolver and DancingLinks. The puzzles are the 9x9
+ * samples, an empty 16x16 grid, and 25x25 puzzles made by blanking 50% and
+ * 70% of the squares of a solved grid with a fixed seed. Run with
+ * assertions off, since the Sudoku rep check is cubic in the size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SudokuSolveBenchmark {
+    @Param({ "sudoku_easy.txt", "sudoku_easy2.txt", "sudoku_hard.txt", "sudoku_hard2.txt",
+            "sudoku_evil.txt", "empty16", "blank25_50", "blank25_70" })
+    String puzzle;
+
+    @Param({ "SAT", "PROPAGATION", "DANCING_LINKS" })
+    SolveMethod method;
+
+    Sudoku sudoku;
+
+    @Setup
+    public void setup() throws IOException, ParseException {
+        if (puzzle.equals("empty16"))
+            sudoku = new Sudoku(4);
+        else if (puzzle.startsWith("blank25_"))
+            sudoku = blank(SudokuSolver.solve(new Sudoku(5)),
+                    Integer.parseInt(puzzle.substring("blank25_".length())) / 100.0, new Random(1));
+        else
+            sudoku = Sudoku.fromFile(3, "samples" + File.separator + puzzle);
+    }
+
+    /*
+     * @return solution with each square blanked with probability p
+     */
+    private static Sudoku blank(Sudoku solution, double p, Random random) {
+        int[][] grid = solution.getGrid();
+        for (int[] row : grid)
+            for (int j = 0; j < row.length; j++)
+                if (random.nextDouble() < p)
+                    row[j] = 0;
+        return new Sudoku(solution.getDim(), grid);
+    }
+
+    @Benchmark
+    public Sudoku solve() {
+        return method.solve(sudoku);
+    }
+}
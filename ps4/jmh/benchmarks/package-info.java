@@ -0,0 +1,26 @@
+/**
+ * JMH benchmarks for the formula, immutable collection, SAT solver and
+ * Sudoku code of this project.
+ *
+ * The benchmarks live in their own source folder so that src builds without
+ * JMH, which also needs a newer Java than the rest of the project (7 or
+ * later for JMH 1.x). To build and run them, put the JMH jars (jmh-core and
+ * jmh-generator-annprocess, with their dependency jopt-simple and
+ * commons-math3) in a directory, say lib, and from the project directory:
+ *
+ *   javac -encoding ISO-8859-1 -d bin src/immutable/*.java src/sat/*.java src/sat/env/*.java \
+ *         src/sat/formula/*.java src/sudoku/*.java -cp lib/junit.jar
+ *   javac -cp bin:'lib/*' -d bin-jmh jmh/benchmarks/*.java
+ *   java -cp bin:bin-jmh:'lib/*' org.openjdk.jmh.Main -prof gc
+ *
+ * The second javac runs the JMH annotation processor, which generates the
+ * benchmark harness. -prof gc adds the allocation rate (gc.alloc.rate and
+ * gc.alloc.rate.norm, bytes per operation) to each result; add a regular
+ * expression after org.openjdk.jmh.Main to run some of the benchmarks only,
+ * e.g. "SatBenchmark.solveSudoku". Run from the project directory, since
+ * the Sudoku benchmarks read the puzzles in samples.
+ *
+ * Each class uses one fork, 5 warmup and 5 measurement iterations of a
+ * second; override these with -f, -wi and -i for more stable numbers.
+ */
+package benchmarks;
@@ -55,9 +55,12 @@ public class EmptyImList<E> implements ImList<E> {
         return new ImListIterator<E>(this);
     }
 
+    /**
+     * @return true iff o is an empty ImList, of whatever implementation
+     */
     @Override
     public boolean equals(Object o) {
-        return o instanceof EmptyImList;
+        return o instanceof ImList && ((ImList<?>) o).isEmpty();
     }
 
     @Override
@@ -0,0 +1,375 @@
+/**
+ * 6.005 Elements of Software Construction
+ */
+package immutable;
+
+/**
+ * Implementation of immutable generic map as a hash array mapped trie (HAMT).
+ * See ImMap for specification.
+ *
+ * Keys are placed in a 32-way trie by successive 5-bit slices of their hash
+ * codes, so get and put take O(log32 n) steps. Each interior node stores only
+ * its non-empty children, packed in an array and indexed through a 32-bit
+ * bitmap. A put copies just the nodes on the path to the changed key; every
+ * other node is shared between the old and the new map.
+ *
+ * A Builder makes a map from many bindings without the copying: it changes
+ * in place the nodes it has made itself, and hands them over to the map it
+ * builds. Building gives up the builder's ownership of those nodes, so a
+ * builder used again copies them rather than change a built map.
+ *
+ * Keys must implement hashCode consistently with equals.
+ */
+public class HashTrieMap<K, V> implements ImMap<K, V> {
+    /*
+     * Rep invariant:
+     *     root != null
+     *     size == number of leaves reachable from root
+     *     no two leaves have equal keys
+     *     no key or value is null
+     *
+     * Abstraction function:
+     *     the map binding leaf.key to leaf.value for every leaf reachable
+     *     from root
+     */
+    private final Node root;
+    private final int size;
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final Node EMPTY = new BitmapNode(null, 0, new Object[0]);
+
+    void checkRep() {
+        assert root != null : "HashTrieMap, Rep invariant: root non-null";
+        assert size >= 0 : "HashTrieMap, Rep invariant: size non-negative";
+    }
+
+    /**
+     * Create an empty map.
+     */
+    public HashTrieMap() {
+        this(EMPTY, 0);
+    }
+
+    private HashTrieMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+        checkRep();
+    }
+
+    public boolean containsKey(Object k) {
+        return get(k) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object k) {
+        return (V) root.get(k, hash(k), 0);
+    }
+
+    public ImMap<K, V> put(K key, V value) {
+        assert key != null : "HashTrieMap.put(null, v)";
+        assert value != null : "HashTrieMap.put(k, null)";
+        boolean[] added = new boolean[1];
+        Node r = root.put(null, new Leaf(hash(key), key, value), 0, added);
+        if (r == root)
+            return this;
+        return new HashTrieMap<K, V>(r, added[0] ? size + 1 : size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        root.appendTo(sb);
+        return sb.append("]").toString();
+    }
+
+    /*
+     * Spread the high bits of the hash code into the low bits, which are
+     * used first, so that keys differing only in high bits do not start out
+     * in the same branch.
+     */
+    private static int hash(Object k) {
+        int h = k.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /*
+     * Index of the child slot for hash at the trie level given by shift.
+     */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /*
+     * A binding in the trie.
+     */
+    private static final class Leaf {
+        final int hash;
+        final Object key;
+        final Object value;
+
+        Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        boolean matches(Object k, int h) {
+            return hash == h && key.equals(k);
+        }
+    }
+
+    /*
+     * A node of the trie. Nodes are immutable once in a HashTrieMap.
+     */
+    private static abstract class Node {
+        /**
+         * @return value bound to key k with hash h below this node at the
+         *         level given by shift, or null if none
+         */
+        abstract Object get(Object k, int h, int shift);
+
+        /**
+         * @return node with leaf bound in place of any binding of the same
+         *         key; this node itself if the binding is unchanged, or if
+         *         edit is non-null and owns this node, which is then changed
+         *         in place. New nodes are owned by edit. Sets added[0] if
+         *         the key was not bound before.
+         */
+        abstract Node put(Object edit, Leaf leaf, int shift, boolean[] added);
+
+        /**
+         * Append "k->v" for each binding below this node, comma separated.
+         *
+         * @return true if anything was appended
+         */
+        abstract boolean appendTo(StringBuilder sb);
+    }
+
+    /*
+     * Interior node: children[i] is the child for the ith set bit of bitmap,
+     * counting from the least significant bit. A child is a Leaf or a Node.
+     * Only the Builder owning a node changes it, and only until it builds.
+     */
+    private static final class BitmapNode extends Node {
+        // token of the Builder that may change this node in place, or null
+        final Object edit;
+        int bitmap;
+        Object[] children;
+
+        BitmapNode(Object edit, int bitmap, Object[] children) {
+            this.edit = edit;
+            this.bitmap = bitmap;
+            this.children = children;
+            assert Integer.bitCount(bitmap) == children.length : "HashTrieMap, Rep invariant: bitmap matches children";
+        }
+
+        Object get(Object k, int h, int shift) {
+            int bit = bit(h, shift);
+            if ((bitmap & bit) == 0)
+                return null;
+            Object child = children[Integer.bitCount(bitmap & (bit - 1))];
+            if (child instanceof Leaf) {
+                Leaf l = (Leaf) child;
+                return l.matches(k, h) ? l.value : null;
+            }
+            return ((Node) child).get(k, h, shift + BITS);
+        }
+
+        Node put(Object edit, Leaf leaf, int shift, boolean[] added) {
+            int bit = bit(leaf.hash, shift);
+            int idx = Integer.bitCount(bitmap & (bit - 1));
+            boolean owned = edit != null && this.edit == edit;
+            if ((bitmap & bit) == 0) {
+                // empty slot: insert the leaf here
+                Object[] cs = new Object[children.length + 1];
+                System.arraycopy(children, 0, cs, 0, idx);
+                cs[idx] = leaf;
+                System.arraycopy(children, idx, cs, idx + 1, children.length - idx);
+                added[0] = true;
+                if (!owned)
+                    return new BitmapNode(edit, bitmap | bit, cs);
+                bitmap |= bit;
+                children = cs;
+                return this;
+            }
+            Object child = children[idx];
+            Object replacement;
+            if (child instanceof Leaf) {
+                Leaf l = (Leaf) child;
+                if (l.matches(leaf.key, leaf.hash)) {
+                    if (l.value.equals(leaf.value))
+                        return this;
+                    replacement = leaf;
+                } else {
+                    added[0] = true;
+                    replacement = merge(edit, l, leaf, shift + BITS);
+                }
+            } else {
+                Node n = (Node) child;
+                replacement = n.put(edit, leaf, shift + BITS, added);
+                if (replacement == n)
+                    return this;
+            }
+            if (owned) {
+                children[idx] = replacement;
+                return this;
+            }
+            Object[] cs = children.clone();
+            cs[idx] = replacement;
+            return new BitmapNode(edit, bitmap, cs);
+        }
+
+        boolean appendTo(StringBuilder sb) {
+            boolean any = false;
+            for (Object child : children) {
+                if (child instanceof Leaf) {
+                    Leaf l = (Leaf) child;
+                    if (any)
+                        sb.append(", ");
+                    sb.append(l.key).append("->").append(l.value);
+                    any = true;
+                } else {
+                    int mark = sb.length();
+                    if (any)
+                        sb.append(", ");
+                    if (((Node) child).appendTo(sb))
+                        any = true;
+                    else
+                        sb.setLength(mark);
+                }
+            }
+            return any;
+        }
+    }
+
+    /*
+     * Leaf node for keys whose full hash codes are equal.
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        final Leaf[] leaves;
+
+        CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        Object get(Object k, int h, int shift) {
+            for (Leaf l : leaves)
+                if (l.matches(k, h))
+                    return l.value;
+            return null;
+        }
+
+        Node put(Object edit, Leaf leaf, int shift, boolean[] added) {
+            if (leaf.hash != hash) {
+                // different hash: push this node down into a bitmap node
+                Node n = new BitmapNode(edit, bit(hash, shift), new Object[] { this });
+                return n.put(edit, leaf, shift, added);
+            }
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(leaf.key)) {
+                    if (leaves[i].value.equals(leaf.value))
+                        return this;
+                    Leaf[] ls = leaves.clone();
+                    ls[i] = leaf;
+                    return new CollisionNode(hash, ls);
+                }
+            }
+            Leaf[] ls = new Leaf[leaves.length + 1];
+            System.arraycopy(leaves, 0, ls, 0, leaves.length);
+            ls[leaves.length] = leaf;
+            added[0] = true;
+            return new CollisionNode(hash, ls);
+        }
+
+        boolean appendTo(StringBuilder sb) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(leaves[i].key).append("->").append(leaves[i].value);
+            }
+            return leaves.length > 0;
+        }
+    }
+
+    /*
+     * @return a node owned by edit holding the two leaves, which have
+     *         different keys, at the level given by shift
+     */
+    private static Node merge(Object edit, Leaf a, Leaf b, int shift) {
+        if (a.hash == b.hash)
+            return new CollisionNode(a.hash, new Leaf[] { a, b });
+        int ia = (a.hash >>> shift) & MASK;
+        int ib = (b.hash >>> shift) & MASK;
+        if (ia == ib)
+            return new BitmapNode(edit, 1 << ia, new Object[] { merge(edit, a, b, shift + BITS) });
+        Object[] cs = (ia < ib) ? new Object[] { a, b } : new Object[] { b, a };
+        return new BitmapNode(edit, (1 << ia) | (1 << ib), cs);
+    }
+
+    /**
+     * A mutable builder of HashTrieMaps, for making a large map without
+     * copying the path to each new binding. A builder may go on being used
+     * after build, to make further maps, without changing the maps already
+     * built. Not safe for use by multiple threads.
+     */
+    public static final class Builder<K, V> {
+        private Node root;
+        private int size;
+        private final boolean[] added = new boolean[1];
+        // owner of the nodes this builder may change in place; replaced by
+        // build, so that the nodes of a built map are never changed
+        private Object edit = new Object();
+
+        /**
+         * Make a builder starting from the empty map.
+         */
+        public Builder() {
+            this(new HashTrieMap<K, V>());
+        }
+
+        /**
+         * Make a builder starting from the map m, which stays unchanged.
+         */
+        public Builder(HashTrieMap<K, V> m) {
+            root = m.root;
+            size = m.size;
+        }
+
+        /**
+         * Bind key to value in the map being built, in place of any binding
+         * of key, as ImMap.put does.
+         *
+         * @requires key != null, value != null
+         * @return this builder
+         */
+        public Builder<K, V> put(K key, V value) {
+            assert key != null : "HashTrieMap.Builder.put(null, v)";
+            assert value != null : "HashTrieMap.Builder.put(k, null)";
+            added[0] = false;
+            root = root.put(edit, new Leaf(hash(key), key, value), 0, added);
+            if (added[0])
+                size++;
+            return this;
+        }
+
+        /**
+         * @return the map built; the builder may go on being
+         *         used, without changing the map built
+         */
+        public HashTrieMap<K, V> build() {
+            edit = new Object();
+            return new HashTrieMap<K, V>(root, size);
+        }
+    }
+}
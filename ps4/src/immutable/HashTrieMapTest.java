@@ -0,0 +1,121 @@
+package immutable;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class HashTrieMapTest {
+
+    // make sure assertions are turned on!  
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void HashTrieMapPutGetTest() {
+        ImMap<Integer, String> m = new HashTrieMap<Integer, String>();
+        assertTrue(m.isEmpty());
+        for (int i = 0; i < 5000; i++)
+            m = m.put(i, "v" + i);
+        assertEquals(5000, m.size());
+        for (int i = 0; i < 5000; i++)
+            assertEquals("v" + i, m.get(i));
+        assertNull(m.get(5000));
+        assertFalse(m.containsKey(-1));
+
+        // replacing a binding keeps the size, and the old map is unchanged
+        ImMap<Integer, String> m2 = m.put(17, "x");
+        assertEquals(5000, m2.size());
+        assertEquals("x", m2.get(17));
+        assertEquals("v17", m.get(17));
+
+        // binding a key to its current value returns the same map
+        assertSame(m2, m2.put(17, "x"));
+    }
+
+    @Test
+    public void HashTrieMapCollisionTest() {
+        // keys with equal hash codes share a collision node
+        ImMap<Key, Integer> m = new HashTrieMap<Key, Integer>();
+        m = m.put(new Key("Aa", 7), 1).put(new Key("BB", 7), 2).put(new Key("C", 39), 3);
+        assertEquals(3, m.size());
+        assertEquals(Integer.valueOf(1), m.get(new Key("Aa", 7)));
+        assertEquals(Integer.valueOf(2), m.get(new Key("BB", 7)));
+        assertEquals(Integer.valueOf(3), m.get(new Key("C", 39)));
+        m = m.put(new Key("BB", 7), 4);
+        assertEquals(3, m.size());
+        assertEquals(Integer.valueOf(4), m.get(new Key("BB", 7)));
+        assertNull(m.get(new Key("D", 7)));
+    }
+
+    @Test
+    public void HashTrieMapBuilderTest() {
+        HashTrieMap.Builder<Integer, String> b = new HashTrieMap.Builder<Integer, String>();
+        for (int i = 0; i < 5000; i++)
+            b.put(i, "v" + i);
+        b.put(17, "x");
+        HashTrieMap<Integer, String> m = b.build();
+        assertEquals(5000, m.size());
+        assertEquals("x", m.get(17));
+        for (int i = 18; i < 5000; i++)
+            assertEquals("v" + i, m.get(i));
+
+        // the builder may go on, without changing the map it built
+        b.put(5, "y").put(6000, "z");
+        assertEquals("v5", m.get(5));
+        assertNull(m.get(6000));
+        assertEquals(5000, m.size());
+        HashTrieMap<Integer, String> m1 = b.build();
+        assertEquals(5001, m1.size());
+        assertEquals("y", m1.get(5));
+        assertEquals("z", m1.get(6000));
+
+        // a builder from m shares its nodes but leaves m unchanged, and
+        // later puts on m do not see the builder's changes
+        HashTrieMap.Builder<Integer, String> b2 = new HashTrieMap.Builder<Integer, String>(m);
+        for (int i = 0; i < 6000; i += 2)
+            b2.put(i, "w" + i);
+        HashTrieMap<Integer, String> m2 = b2.build();
+        assertEquals(5500, m2.size());
+        assertEquals("w4998", m2.get(4998));
+        assertEquals("v4999", m2.get(4999));
+        assertEquals(5000, m.size());
+        assertEquals("v4998", m.get(4998));
+        assertNull(m.get(5000));
+        assertEquals("y", m.put(1, "y").get(1));
+        assertEquals("v1", m2.get(1));
+
+        // keys with equal hash codes
+        HashTrieMap<Key, Integer> c = new HashTrieMap.Builder<Key, Integer>()
+                .put(new Key("Aa", 7), 1).put(new Key("BB", 7), 2).put(new Key("C", 39), 3)
+                .put(new Key("BB", 7), 4).build();
+        assertEquals(3, c.size());
+        assertEquals(Integer.valueOf(1), c.get(new Key("Aa", 7)));
+        assertEquals(Integer.valueOf(4), c.get(new Key("BB", 7)));
+        assertEquals(Integer.valueOf(3), c.get(new Key("C", 39)));
+    }
+
+    // key with a chosen hash code
+    private static class Key {
+        final String name;
+        final int hash;
+
+        Key(String name, int hash) {
+            this.name = name;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).name.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -6,6 +6,9 @@
  */
 package immutable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Implementation of immutable generic map using association list. See Map for
  * specification.
@@ -29,12 +32,11 @@ public class ImListMap<K, V> implements ImMap<K, V> {
     }
 
     void checkRep(ImList<Binding> bs) {
-        if (!bs.isEmpty()) {
+        for (; !bs.isEmpty(); bs = bs.rest()) {
             Binding b = bs.first();
             assert b.key != null : "ListMap, Rep invariant: keys non-null";
             assert b.value != null : "ListMap, Rep invariant: values non-null";
             assert !new ImListMap<K, V>(bs.rest()).containsKey(b.key);
-            checkRep(bs.rest());
         }
     }
 
@@ -77,16 +79,15 @@ public class ImListMap<K, V> implements ImMap<K, V> {
     }
 
     /*
-     * search through list recursively to find binding with matching key
+     * search through list to find binding with matching key
      */
     private Binding get(ImList<Binding> bindings, Object key) {
-        if (bindings.size() == 0)
-            return null;
-        Binding b = bindings.first();
-        if (b.key.equals(key))
-            return b;
-        else
-            return get(bindings.rest(), key);
+        for (; bindings.size() != 0; bindings = bindings.rest()) {
+            Binding b = bindings.first();
+            if (b.key.equals(key))
+                return b;
+        }
+        return null;
     }
 
     public ImMap<K, V> put(K key, V value) {
@@ -94,19 +95,26 @@ public class ImListMap<K, V> implements ImMap<K, V> {
     }
 
     /*
-     * recursively construct new list with binding for given key replaced or
-     * added
+     * construct new list with binding for given key replaced or added,
+     * keeping the other bindings in order. Iterative, so that large maps
+     * do not overflow the stack.
      */
     private ImList<Binding> put(ImList<Binding> bindings, K key, V value) {
-        if (bindings.size() == 0)
-            return new NonEmptyImList<Binding>(new Binding(key, value));
-        Binding b = bindings.first();
-        if (b.key.equals(key)) {
-            b = new Binding(key, value);
-            return bindings.rest().add(b);
-        } else {
-            return put(bindings.rest(), key, value).add(b);
+        // bindings before the one for key, if any
+        List<Binding> prefix = new ArrayList<Binding>();
+        ImList<Binding> l = bindings;
+        while (l.size() != 0 && !l.first().key.equals(key)) {
+            prefix.add(l.first());
+            l = l.rest();
         }
+        ImList<Binding> result;
+        if (l.size() == 0)
+            result = new NonEmptyImList<Binding>(new Binding(key, value));
+        else
+            result = l.rest().add(new Binding(key, value));
+        for (int i = prefix.size() - 1; i >= 0; i--)
+            result = result.add(prefix.get(i));
+        return result;
     }
 
     public int size() {
@@ -0,0 +1,147 @@
+package immutable;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ImListTest {
+
+    // make sure assertions are turned on!  
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void ImListLongTest() {
+        // far longer than the default thread stack could recurse over
+        int n = 200000;
+        ImList<Integer> l = new EmptyImList<Integer>();
+        ImList<Integer> m = new EmptyImList<Integer>();
+        for (int i = 0; i < n; i++) {
+            l = l.add(i);
+            m = m.add(i);
+        }
+        assertTrue(l.contains(0));
+        assertFalse(l.contains(n));
+        assertEquals(l, m);
+        assertEquals(l.hashCode(), m.hashCode());
+
+        // removing the last element rebuilds the rest in order
+        ImList<Integer> r = l.remove(0);
+        assertEquals(n - 1, r.size());
+        assertEquals(Integer.valueOf(n - 1), r.first());
+        assertFalse(r.contains(0));
+        assertFalse(r.equals(l));
+        assertSame(l, l.remove(n));
+    }
+
+    @Test
+    public void ImVectorTest() {
+        // grow past a full tail, a full level and a second level, checking
+        // against the linked list along the way
+        ImList<Integer> l = new EmptyImList<Integer>();
+        ImVector<Integer> v = new ImVector<Integer>();
+        assertEquals(l, v);
+        assertEquals(v, l);
+        int n = 32 * 32 * 32 + 100;
+        for (int i = 0; i < n; i++) {
+            l = l.add(i);
+            v = v.add(i);
+            if (i % 997 == 0 || i < 70) {
+                assertEquals(l, v);
+                assertEquals(l.hashCode(), v.hashCode());
+            }
+        }
+        assertEquals(n, v.size());
+        for (int i = 0; i < n; i += 31)
+            assertEquals(Integer.valueOf(n - 1 - i), v.get(i));
+        assertTrue(v.contains(0));
+        assertFalse(v.contains(n));
+
+        // rest shrinks back through the same boundaries
+        ImVector<Integer> r = v;
+        ImList<Integer> m = l;
+        while (!r.isEmpty()) {
+            assertEquals(m.first(), r.first());
+            r = r.rest();
+            m = m.rest();
+            if (r.size() % 1009 == 0 || r.size() < 70)
+                assertEquals(m, r);
+        }
+        assertEquals(n, v.size());
+
+        // remove takes out the first occurrence only
+        ImVector<Integer> w = v.add(5);
+        ImVector<Integer> x = w.remove(5);
+        assertEquals(v, x);
+        assertEquals(l.remove(40000 % n), v.remove(40000 % n));
+        assertSame(v, v.remove(-1));
+    }
+
+    @Test
+    public void ImVectorBuilderTest() {
+        Random random = new Random(3);
+        ImVector<Integer> base = new ImVector<Integer>();
+        for (int i = 0; i < 100; i++)
+            base = base.add(random.nextInt());
+        ImVector<Integer> copy = new ImVector<Integer>().add(0).rest();
+        for (Integer e : reversed(base))
+            copy = copy.add(e);
+
+        // a builder from base adds as add does, and leaves base alone
+        ImVector.Builder<Integer> b = new ImVector.Builder<Integer>(base);
+        ImVector<Integer> expected = base;
+        for (int i = 0; i < 50000; i++) {
+            int e = random.nextInt();
+            b.add(e);
+            expected = expected.add(e);
+        }
+        ImVector<Integer> built = b.build();
+        assertEquals(expected, built);
+        assertEquals(copy, base);
+
+        // the builder may go on, without changing the vector it built
+        for (int i = 0; i < 100; i++)
+            b.add(i);
+        assertEquals(expected, built);
+        ImVector<Integer> longer = b.build();
+        assertEquals(expected.size() + 100, longer.size());
+        assertEquals(Integer.valueOf(99), longer.get(0));
+
+        // building on a built vector does not disturb it either
+        ImVector<Integer> more = new ImVector.Builder<Integer>(built).addAll(base).build();
+        assertEquals(expected, built);
+        assertEquals(built.size() + base.size(), more.size());
+        assertEquals(base.get(base.size() - 1), more.get(0));
+    }
+
+    // Helper function listing the elements of l from last to first.
+    private static <E> List<E> reversed(ImList<E> l) {
+        List<E> r = new ArrayList<E>();
+        for (E e : l)
+            r.add(0, e);
+        return r;
+    }
+
+    @Test
+    public void ImListMapPutGetTest() {
+        ImMap<Integer, String> m = new ImListMap<Integer, String>();
+        for (int i = 0; i < 200; i++)
+            m = m.put(i, "v" + i);
+        // replacing a binding deep in the list keeps the others
+        ImMap<Integer, String> m2 = m.put(0, "x");
+        assertEquals(200, m2.size());
+        assertEquals("x", m2.get(0));
+        assertEquals("v0", m.get(0));
+        for (int i = 1; i < 200; i++)
+            assertEquals("v" + i, m2.get(i));
+        assertNull(m2.get(200));
+    }
+}
@@ -0,0 +1,430 @@
+/**
+ * 6.005 Elements of Software Construction
+ */
+package immutable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Implementation of immutable list as a persistent bit-partitioned vector,
+ * in the style of Clojure's. See ImList for specification.
+ *
+ * The elements are kept in a 32-way trie of arrays, indexed by successive
+ * 5-bit slices of their positions, with the newest up to 32 elements in a
+ * separate tail array. Since add puts its element at the front of the list,
+ * the vector holds the list back to front: the first element of the list is
+ * the last of the tail. So add and rest touch only the tail, except once
+ * every 32 calls when a full tail moves into the trie or a new tail comes
+ * out of it, copying the O(log32 n) nodes on its path; get takes O(log32 n)
+ * steps, and iteration walks the leaf arrays directly. Every node not on a
+ * changed path is shared between the old and the new list.
+ *
+ * A Builder makes a vector from many elements without the copying: it
+ * changes in place the nodes it has made itself, and hands them over to the
+ * vector it builds. Building gives up the builder's ownership of those
+ * nodes, so a builder used again copies them rather than change a built
+ * vector.
+ */
+public class ImVector<E> implements ImList<E> {
+    /*
+     * Rep invariant:
+     *     root != null, tail != null
+     *     size >= 0, shift >= BITS and a multiple of BITS
+     *     tail.length == size - tailOffset(size), and 1 <= tail.length
+     *       <= WIDTH unless size == 0
+     *     the trie under root holds tailOffset(size) elements in full leaf
+     *       arrays of WIDTH, at depth shift / BITS
+     *     no element is null
+     *
+     * Abstraction function:
+     *     the list [v_{size-1}, ..., v_1, v_0], where v_i is element i of the
+     *     vector: tail[i - tailOffset(size)] if i >= tailOffset(size), else
+     *     slot i & MASK of the leaf reached from root through the slots
+     *     given by the higher 5-bit slices of i
+     */
+    private final int size;
+    private final int shift;
+    private final Node root;
+    private final Object[] tail;
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final Node EMPTY_NODE = new Node(null, new Object[WIDTH]);
+
+    void checkRep() {
+        assert root != null && tail != null : "ImVector, Rep invariant: root and tail non-null";
+        assert size >= 0 && shift >= BITS && shift % BITS == 0 : "ImVector, Rep invariant: size and shift";
+        assert tail.length == size - tailOffset(size) : "ImVector, Rep invariant: tail length";
+    }
+
+    /**
+     * Create an empty list.
+     */
+    public ImVector() {
+        this(0, BITS, EMPTY_NODE, new Object[0]);
+    }
+
+    private ImVector(int size, int shift, Node root, Object[] tail) {
+        this.size = size;
+        this.shift = shift;
+        this.root = root;
+        this.tail = tail;
+        checkRep();
+    }
+
+    public ImVector<E> add(E e) {
+        assert e != null : "ImVector.add(null)";
+        if (size - tailOffset(size) < WIDTH) {
+            Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+            newTail[tail.length] = e;
+            return new ImVector<E>(size + 1, shift, root, newTail);
+        }
+        // the tail is full: move it into the trie, growing a level if the
+        // trie is full too
+        Node tailNode = new Node(null, tail);
+        Node newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Node(null, new Object[WIDTH]);
+            newRoot.array[0] = root;
+            newRoot.array[1] = newPath(null, shift, tailNode);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(null, size, shift, root, tailNode);
+        }
+        return new ImVector<E>(size + 1, newShift, newRoot, new Object[] { e });
+    }
+
+    public E first() {
+        assert size > 0 : "ImVector.first";
+        return element(tail, tail.length - 1);
+    }
+
+    public ImVector<E> rest() {
+        assert size > 0 : "ImVector.rest";
+        if (size == 1)
+            return new ImVector<E>();
+        if (tail.length > 1)
+            return new ImVector<E>(size - 1, shift, root, Arrays.copyOf(tail, tail.length - 1));
+        // the tail empties: the last leaf of the trie becomes the tail
+        Object[] newTail = arrayFor(size - 2);
+        Node newRoot = popTail(size, shift, root);
+        int newShift = shift;
+        if (newRoot == null)
+            newRoot = EMPTY_NODE;
+        if (shift > BITS && newRoot.array[1] == null) {
+            newRoot = (Node) newRoot.array[0];
+            newShift -= BITS;
+        }
+        return new ImVector<E>(size - 1, newShift, newRoot, newTail);
+    }
+
+    /**
+     * Get an element by its position.
+     *
+     * @requires 0 <= i < size()
+     * @return e_i where this list = [e_0,...,e_n]
+     */
+    public E get(int i) {
+        assert i >= 0 && i < size : "ImVector.get: index out of range";
+        int v = size - 1 - i;
+        return element(arrayFor(v), v & MASK);
+    }
+
+    public ImVector<E> remove(E e) {
+        assert e != null : "ImVector.remove(null)";
+        // the first occurrence in the list is the last in the vector
+        int found = -1;
+        for (int v = size - 1; v >= 0 && found < 0; v--)
+            if (element(arrayFor(v), v & MASK).equals(e))
+                found = v;
+        if (found < 0)
+            return this;
+        if (found == size - 1)
+            return rest();
+        Builder<E> b = new Builder<E>();
+        for (int v = 0; v < size; v++)
+            if (v != found)
+                b.add(ImVector.<E>element(arrayFor(v), v & MASK));
+        return b.build();
+    }
+
+    public boolean contains(E e) {
+        assert e != null : "ImVector.contains(null)";
+        for (int start = 0; start < size; start += WIDTH) {
+            Object[] leaf = arrayFor(start);
+            int n = Math.min(WIDTH, size - start);
+            for (int k = 0; k < n; k++)
+                if (leaf[k].equals(e))
+                    return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            // vector index of the next element, and the leaf holding it
+            private int v = size - 1;
+            private Object[] leaf = size == 0 ? null : arrayFor(v);
+
+            public boolean hasNext() {
+                return v >= 0;
+            }
+
+            public E next() {
+                if (v < 0)
+                    throw new NoSuchElementException();
+                E e = element(leaf, v & MASK);
+                if ((v & MASK) == 0 && v > 0)
+                    leaf = arrayFor(v - 1);
+                v--;
+                return e;
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Compares the specified object with this list for equality, as
+     * NonEmptyImList does.
+     *
+     * @return true iff o is an ImList with the same elements in the same
+     *         order
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) return true;
+        if (!(o instanceof ImList)) return false;
+        ImList<?> l = (ImList<?>) o;
+        if (l.size() != size) return false;
+        Iterator<?> it = l.iterator();
+        for (E e : this)
+            if (!e.equals(it.next())) return false;
+        return true;
+    }
+
+    /**
+     * @return the sum of the hash codes of the elements, as for
+     *         NonEmptyImList
+     */
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (E e : this)
+            h += e.hashCode();
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (E e : this) {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(e);
+        }
+        return sb.append("]").toString();
+    }
+
+    /*
+     * @return the number of elements held in the trie of a vector of size
+     *         elements, the rest being in the tail
+     */
+    private static int tailOffset(int size) {
+        return size == 0 ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    /*
+     * @return the array holding vector element v
+     */
+    private Object[] arrayFor(int v) {
+        if (v >= tailOffset(size))
+            return tail;
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS)
+            node = (Node) node.array[(v >>> level) & MASK];
+        return node.array;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Object[] array, int k) {
+        return (E) array[k];
+    }
+
+    /*
+     * @return a copy of parent's subtrie at the given level with tailNode
+     *         added as the leaf for the elements from tailOffset(size) of a
+     *         vector of size elements; nodes owned by edit are changed in
+     *         place instead of copied
+     */
+    private static Node pushTail(Object edit, int size, int level, Node parent, Node tailNode) {
+        Node result = editable(edit, parent);
+        int k = ((size - 1) >>> level) & MASK;
+        Node insert;
+        if (level == BITS) {
+            insert = tailNode;
+        } else {
+            Node child = (Node) parent.array[k];
+            insert = child == null ? newPath(edit, level - BITS, tailNode)
+                    : pushTail(edit, size, level - BITS, child, tailNode);
+        }
+        result.array[k] = insert;
+        return result;
+    }
+
+    /*
+     * @return a chain of new nodes owned by edit, from the given level down
+     *         to node
+     */
+    private static Node newPath(Object edit, int level, Node node) {
+        if (level == 0)
+            return node;
+        Node result = new Node(edit, new Object[WIDTH]);
+        result.array[0] = newPath(edit, level - BITS, node);
+        return result;
+    }
+
+    /*
+     * @return a copy of node's subtrie at the given level without the last
+     *         leaf of a vector of size elements, or null if nothing is left
+     */
+    private static Node popTail(int size, int level, Node node) {
+        int k = ((size - 2) >>> level) & MASK;
+        if (level > BITS) {
+            Node child = popTail(size, level - BITS, (Node) node.array[k]);
+            if (child == null && k == 0)
+                return null;
+            Node result = new Node(null, node.array.clone());
+            result.array[k] = child;
+            return result;
+        }
+        if (k == 0)
+            return null;
+        Node result = new Node(null, node.array.clone());
+        result.array[k] = null;
+        return result;
+    }
+
+    /*
+     * @return node if edit owns it, else a copy owned by edit
+     */
+    private static Node editable(Object edit, Node node) {
+        if (edit != null && node.edit == edit)
+            return node;
+        return new Node(edit, node.array.clone());
+    }
+
+    /*
+     * A node of the trie: an interior node holds up to WIDTH children, a
+     * leaf WIDTH elements.
+     */
+    private static final class Node {
+        // token of the Builder that may change this node in place, or null
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    /**
+     * A mutable builder of ImVectors, for making a long list without copying
+     * on every add. A builder may go on being used after build, to make
+     * further lists, without changing the lists already built. Not safe for
+     * use by multiple threads.
+     */
+    public static final class Builder<E> {
+        private int size;
+        private int shift;
+        private Node root;
+        // the newest elements, tail[0..size - tailOffset(size))
+        private Object[] tail;
+        // owner of the nodes this builder may change in place; replaced by
+        // build, so that the nodes of a built list are never changed
+        private Object edit = new Object();
+
+        /**
+         * Make a builder starting from the empty list.
+         */
+        public Builder() {
+            this(new ImVector<E>());
+        }
+
+        /**
+         * Make a builder starting from the list v, which stays unchanged.
+         */
+        public Builder(ImVector<E> v) {
+            size = v.size;
+            shift = v.shift;
+            root = v.root;
+            tail = Arrays.copyOf(v.tail, WIDTH);
+        }
+
+        /**
+         * Put e at the front of the list being built, as ImList.add does.
+         *
+         * @requires e != null
+         * @return this builder
+         */
+        public Builder<E> add(E e) {
+            assert e != null : "ImVector.Builder.add(null)";
+            if (size - tailOffset(size) < WIDTH) {
+                tail[size & MASK] = e;
+                size++;
+                return this;
+            }
+            Node tailNode = new Node(edit, tail);
+            tail = new Object[WIDTH];
+            tail[0] = e;
+            if ((size >>> BITS) > (1 << shift)) {
+                Node newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(edit, shift, tailNode);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(edit, size, shift, root, tailNode);
+            }
+            size++;
+            return this;
+        }
+
+        /**
+         * Put each element of l at the front of the list being built, in
+         * the order l yields them, as repeated calls to add would.
+         *
+         * @return this builder
+         */
+        public Builder<E> addAll(Iterable<? extends E> l) {
+            for (E e : l)
+                add(e);
+            return this;
+        }
+
+        /**
+         * @return the list built; the builder may go on being
+         *         used, without changing the list built
+         */
+        public ImVector<E> build() {
+            edit = new Object();
+            return new ImVector<E>(size, shift, root, Arrays.copyOf(tail, size - tailOffset(size)));
+        }
+    }
+}
@@ -53,14 +53,22 @@ public class NonEmptyImList<E> implements ImList<E> {
 
     public ImList<E> remove(E e) {
         assert e != null: "NonEmptyList.remove(null)";
-        if (element.equals(e)) {
-            return rest;
-        }
-        else {
-            ImList<E> l = rest.remove (e);
-            if (l == rest) return this;
-            else return new NonEmptyImList<E> (element, l);
+        // find e, remembering the elements before it; iterative so that
+        // long lists do not overflow the stack
+        @SuppressWarnings("unchecked")
+        E[] prefix = (E[]) new Object[size];
+        int n = 0;
+        ImList<E> l = this;
+        while (!l.isEmpty() && !l.first().equals(e)) {
+            prefix[n++] = l.first();
+            l = l.rest();
         }
+        if (l.isEmpty()) return this;
+        // rebuild the prefix on top of the rest after e
+        ImList<E> result = l.rest();
+        while (n > 0)
+            result = result.add(prefix[--n]);
+        return result;
     }
 
     public ImList<E> rest() {
@@ -69,7 +77,9 @@ public class NonEmptyImList<E> implements ImList<E> {
 
     public boolean contains (E e) {
         assert e != null: "NonEmptyList.contains(null)";
-        return element.equals(e) || rest.contains(e);
+        for (ImList<E> l = this; !l.isEmpty(); l = l.rest())
+            if (l.first().equals(e)) return true;
+        return false;
     }
 
     public int size () {
@@ -98,7 +108,13 @@ public class NonEmptyImList<E> implements ImList<E> {
         if (!(o instanceof ImList)) return false;
         ImList l = (ImList) o;
         if (l.size() != size()) return false;
-        return first().equals(l.first()) && rest().equals(l.rest());
+        ImList<E> m = this;
+        while (!m.isEmpty()) {
+            if (!m.first().equals(l.first())) return false;
+            m = m.rest();
+            l = l.rest();
+        }
+        return true;
     }
 
     /**
@@ -109,7 +125,10 @@ public class NonEmptyImList<E> implements ImList<E> {
      */
     @Override
     public int hashCode () {
-        return rest.hashCode() + (element == null ? 0 : element.hashCode());
+        int h = 0;
+        for (ImList<E> l = this; !l.isEmpty(); l = l.rest())
+            h += l.first().hashCode();
+        return h;
     }
 
     /**
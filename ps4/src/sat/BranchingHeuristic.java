@@ -0,0 +1,39 @@
+package sat;
+
+/**
+ * A rule for choosing the next decision variable of the CDCL search.
+ *
+ * The solver reports the events a heuristic may learn from: the variables
+ * involved in each conflict, the end of each conflict analysis, and every
+ * variable unassigned by backtracking. The value given to the chosen variable
+ * is up to the solver (see SolverConfig.Polarity).
+ */
+interface BranchingHeuristic {
+    /**
+     * Ensure that variables 0..n-1 can be chosen.
+     */
+    void ensureVariables(int n);
+
+    /**
+     * Variable v took part in the analysis of a conflict.
+     */
+    void bump(int v);
+
+    /**
+     * A conflict has been analyzed.
+     */
+    void decay();
+
+    /**
+     * Variable v has been unassigned by backtracking.
+     */
+    void unassigned(int v);
+
+    /**
+     * @param values
+     *            values[lit] is the solver's current value of literal lit
+     * @return an unassigned variable to decide next, or -1 if no further
+     *         decision is needed because the clauses are all satisfied
+     */
+    int pickVariable(byte[] values);
+}
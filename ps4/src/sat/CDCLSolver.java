@@ -0,0 +1,937 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import sat.env.Bool;
+import sat.formula.ClauseArena;
+import sat.formula.PackedFormula;
+
+/**
+ * A conflict-driven clause learning (CDCL) SAT solver over integer literals.
+ *
+ * Variables are numbered densely from 0. The literal for variable v is 2*v
+ * when positive and 2*v+1 when negated, so negation is (lit ^ 1); see
+ * PackedFormula. Problem and learned clauses live together in one
+ * ClauseArena and are referred to by their int references.
+ *
+ * The search is iterative: an explicit trail of assigned literals with
+ * decision-level markers replaces the recursion of classic DPLL. Unit
+ * propagation uses a WatchIndex of two watched literals per clause, so
+ * assigning a literal only visits the clauses watching its negation. Each
+ * conflict is analyzed to its first unique implication point, the resulting
+ * clause is learned, and the search backjumps non-chronologically to the
+ * second-highest level in that clause. Decisions are chosen by a
+ * BranchingHeuristic, VSIDS by default, with the value the variable last had
+ * (phase saving). The SolverConfig selects the heuristic, polarity, restart
+ * schedule and frequency of random decisions.
+ *
+ * Learned clauses are kept in check by a LearnedClauses store, which scores
+ * them by literal block distance and activity. When it says so, the solver
+ * backtracks to level 0, deletes the less useful learned clauses and
+ * compacts the arena, so that a long search runs in bounded memory; the
+ * SolverConfig may set a limit on the memory the learned clauses take.
+ *
+ * A CDCLSolver is mutable and not safe for use by multiple threads, except
+ * that interrupt may be called from any thread. Solvers running in parallel
+ * on the same formula may share short learned clauses through a
+ * ClauseExchange.
+ *
+ * A solver may log a DRAT proof of its answers through a DratWriter: every
+ * learned clause follows from the clauses by reverse unit propagation and
+ * is logged as it is learned, the deletion of learned clauses is logged, and
+ * the empty clause is logged when the clauses are found unsatisfiable.
+ */
+class CDCLSolver {
+    // value of a literal: TRUE, FALSE or UNASSIGNED
+    static final byte TRUE = 1;
+    static final byte FALSE = -1;
+    static final byte UNASSIGNED = 0;
+
+    // reason of a decision or of a literal with no antecedent clause
+    static final int NO_REASON = -1;
+
+    private static final int[] NO_ASSUMPTIONS = new int[0];
+
+    /** Value of a conflict or time limit meaning unlimited. */
+    public static final long NO_LIMIT = -1;
+
+    // arena flag marking learned clauses
+    static final int LEARNT = 1;
+
+    // steps of the search between copies of the counters to statistics
+    private static final int STATISTICS_INTERVAL = 1024;
+
+    // number of conflicts in the first restart interval;
+    // later intervals are multiples of this given by the restart schedule
+    private static final int RESTART_BASE = 100;
+
+    private final SolverConfig config;
+    private final Random random;
+    private final BranchingHeuristic heuristic;
+    // phase[v] = value variable v had when last assigned, initially TRUE
+    private byte[] phase = new byte[0];
+    // set by interrupt, possibly from another thread
+    private volatile boolean interrupted = false;
+    // largest number of conflicts in one call to solve, or NO_LIMIT
+    private long conflictLimit = NO_LIMIT;
+    // longest time in milliseconds for one call to solve, or NO_LIMIT
+    private long timeLimit = NO_LIMIT;
+
+    // clause sharing with other solvers, or null if none
+    private ClauseExchange exchange = null;
+    private int exchangeId;
+    // position in the exchange's log up to which clauses have been imported
+    private long exchangeRead = 0;
+
+    // where learned clauses are logged, or null
+    private DratWriter proof = null;
+
+    private int numVars;
+    // problem and learned clauses of two or more literals
+    private final ClauseArena arena = new ClauseArena(1 << 12);
+    // the clauses of arena, indexed by their watched literals
+    private final WatchIndex watches = new WatchIndex(arena);
+    // the learned clauses of arena
+    private final LearnedClauses learned;
+
+    // values[lit] = current value of literal lit
+    private byte[] values = new byte[0];
+    // level[v] = decision level at which variable v was assigned
+    private int[] level = new int[0];
+    // reason[v] = clause that implied v's assignment, or NO_REASON
+    private int[] reason = new int[0];
+
+    // assigned literals in assignment order
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    // trailLim[d] = trail size when decision level d+1 was entered
+    private int[] trailLim = new int[0];
+    private int decisionLevel = 0;
+    // index into trail of the next literal to propagate
+    private int qhead = 0;
+
+    // false once the clauses are known to be unsatisfiable at level 0
+    private boolean ok = true;
+
+    // scratch space for conflict analysis and clause addition
+    private boolean[] seen = new boolean[0];
+    private int[] analyzeOut = new int[0];
+    private int[] addBuffer = new int[16];
+    // levelStamp[d] == stamp iff level d has been met in the current count
+    // of distinct levels
+    private int[] levelStamp = new int[0];
+    private int stamp = 0;
+
+    // failed[0..numFailed) = assumptions responsible for the last Bool.FALSE
+    private int[] failed = new int[0];
+    private int numFailed = 0;
+
+    // unit propagations run, and the clause visits made by the latest one
+    private long propagations = 0;
+    private long lastPropagationVisits = 0;
+
+    // counters over all calls to solve, copied to statistics from time to
+    // time so that the hot loops touch no volatile field
+    private SolverStatistics statistics = new SolverStatistics();
+    private long decisions = 0;
+    private long propagatedLiterals = 0;
+    private long conflictCount = 0;
+    private long learnedClauses = 0;
+    private long deletedClauses = 0;
+    private long restartCount = 0;
+    private int maxDecisionLevel = 0;
+
+    /*
+     * Rep invariant:
+     *     values.length == 2 * level.length
+     *     level, reason, seen, trail, phase have equal length >= numVars
+     *     trailLim.length >= numVars
+     *     watches can watch every literal of the numVars variables
+     *     for every literal l: values[l] == -values[l ^ 1]
+     *     trail[0..trailSize) holds exactly the literals with values[l] == TRUE
+     *     0 <= qhead <= trailSize
+     *     every clause in arena has at least two literals, is not deleted and
+     *       is attached to watches; it is a learned clause iff its LEARNT
+     *       flag is set, and then it is in learned
+     *     reason[v] == NO_REASON for every variable v assigned at level 0
+     *       before the last reduction of learned
+     *     if !ok, the clause set is unsatisfiable
+     */
+
+    /**
+     * Create a solver with no variables and no clauses.
+     */
+    public CDCLSolver() {
+        this(SolverConfig.DEFAULT);
+    }
+
+    /**
+     * Create a solver with no variables and no clauses, searching according
+     * to config.
+     */
+    public CDCLSolver(SolverConfig config) {
+        this.config = config;
+        this.random = new Random(config.getSeed());
+        this.learned = new LearnedClauses(arena, config.getLearnedMemoryLimit());
+        if (config.getHeuristic() == SolverConfig.Heuristic.VSIDS)
+            heuristic = new VSIDSHeuristic();
+        else
+            heuristic = new ShortestClauseHeuristic(arena);
+    }
+
+    /**
+     * Create a solver for the clauses of a packed formula.
+     */
+    public CDCLSolver(PackedFormula formula) {
+        this(formula, SolverConfig.DEFAULT);
+    }
+
+    /**
+     * Create a solver for the clauses of a packed formula, searching
+     * according to config. The formula is only read.
+     */
+    public CDCLSolver(PackedFormula formula, SolverConfig config) {
+        this(config);
+        addClauses(formula);
+    }
+
+    /**
+     * Add the variables and clauses of a packed formula, which is only read.
+     *
+     * @return false if the clause set is now known to be unsatisfiable
+     */
+    public boolean addClauses(PackedFormula formula) {
+        ensureVariables(formula.numVariables());
+        ClauseArena clauses = formula.getClauses();
+        int[] data = clauses.data();
+        for (int ref = clauses.first(); ref != clauses.end(); ref = clauses.next(ref))
+            if (!addClause(data, ref + 1, ref + 1 + clauses.size(ref)))
+                return false;
+        return ok;
+    }
+
+    /**
+     * @return number of variables known to this solver
+     */
+    public int numVariables() {
+        return numVars;
+    }
+
+    /**
+     * Ensure that variables 0..n-1 exist.
+     */
+    public void ensureVariables(int n) {
+        if (n <= numVars)
+            return;
+        int cap = Math.max(n, numVars * 2);
+        if (cap > level.length) {
+            level = Arrays.copyOf(level, cap);
+            reason = Arrays.copyOf(reason, cap);
+            seen = Arrays.copyOf(seen, cap);
+            analyzeOut = new int[cap + 1];
+            trail = Arrays.copyOf(trail, cap);
+            trailLim = Arrays.copyOf(trailLim, cap);
+            values = Arrays.copyOf(values, 2 * cap);
+            int old = phase.length;
+            phase = Arrays.copyOf(phase, cap);
+            Arrays.fill(phase, old, cap, TRUE);
+        }
+        heuristic.ensureVariables(n);
+        watches.ensureLiterals(2 * n);
+        numVars = n;
+    }
+
+    /**
+     * Share learned clauses with other solvers of the same formula through
+     * exchange, under the name id. Clauses from the others are imported at
+     * each restart.
+     */
+    public void share(ClauseExchange exchange, int id) {
+        assert proof == null : "CDCLSolver.share: solver logs a proof";
+        this.exchange = exchange;
+        this.exchangeId = id;
+        this.exchangeRead = 0;
+    }
+
+    /**
+     * Log a DRAT proof to proof from now on: each clause learned, and the
+     * empty clause once the clauses are found unsatisfiable without
+     * assumptions. If proof starts with the clauses of this solver, it
+     * refutes them whenever solve returns Bool.FALSE for no assumptions.
+     * Requires that this solver does not share clauses, since clauses
+     * imported from other solvers need not follow by unit propagation.
+     */
+    public void setProof(DratWriter proof) {
+        assert exchange == null : "CDCLSolver.setProof: solver shares clauses";
+        this.proof = proof;
+    }
+
+    /**
+     * Make the current or next call to solve stop soon and return
+     * Bool.UNDEFINED. May be called from any thread; once interrupted, the
+     * solver stays interrupted.
+     */
+    public void interrupt() {
+        interrupted = true;
+    }
+
+    /**
+     * Limit each call to solve to the given number of conflicts, after which
+     * it returns Bool.UNDEFINED.
+     *
+     * @param conflicts
+     *            requires conflicts >= 0, or NO_LIMIT for no limit
+     */
+    public void setConflictLimit(long conflicts) {
+        assert conflicts >= 0 || conflicts == NO_LIMIT : "CDCLSolver.setConflictLimit: negative limit";
+        conflictLimit = conflicts;
+    }
+
+    /**
+     * Limit each call to solve to about the given wall-clock time, after
+     * which it returns Bool.UNDEFINED. The clock is checked at conflicts, so
+     * a call may overrun by the time between two conflicts.
+     *
+     * @param millis
+     *            requires millis >= 0, or NO_LIMIT for no limit
+     */
+    public void setTimeLimit(long millis) {
+        assert millis >= 0 || millis == NO_LIMIT : "CDCLSolver.setTimeLimit: negative limit";
+        timeLimit = millis;
+    }
+
+    /**
+     * @return the statistics this solver reports its progress to
+     */
+    public SolverStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * Report progress to stats from now on, for instance to watch a solver
+     * made by some other class. Requires that no other solver reports to
+     * stats and that the solver is not in a call to solve.
+     */
+    public void setStatistics(SolverStatistics stats) {
+        statistics = stats;
+        publishStatistics();
+    }
+
+    /**
+     * Add a clause, given as a disjunction of literals.
+     *
+     * @see #addClause(int[], int, int)
+     */
+    public boolean addClause(int... literals) {
+        return addClause(literals, 0, literals.length);
+    }
+
+    /**
+     * Add the clause lits[from..to). Must be called when the solver is not
+     * in the middle of a search (that is, between calls to solve). Duplicate
+     * literals are removed, and clauses containing a literal and its negation
+     * are ignored.
+     *
+     * @return false if the clause set is now known to be unsatisfiable
+     */
+    public boolean addClause(int[] lits, int from, int to) {
+        return addClause(lits, from, to, 0);
+    }
+
+    /*
+     * Add the clause lits[from..to) with the given arena flags.
+     */
+    private boolean addClause(int[] lits, int from, int to, int flags) {
+        if (!ok)
+            return false;
+        cancelUntil(0);
+        int len = to - from;
+        if (addBuffer.length < len)
+            addBuffer = new int[Math.max(len, 2 * addBuffer.length)];
+        int[] c = addBuffer;
+        System.arraycopy(lits, from, c, 0, len);
+        Arrays.sort(c, 0, len);
+        if (len > 0)
+            ensureVariables((c[len - 1] >> 1) + 1);
+        int n = 0;
+        for (int i = 0; i < len; i++) {
+            int lit = c[i];
+            if (n > 0 && c[n - 1] == lit)
+                continue; // duplicate
+            if (n > 0 && c[n - 1] == (lit ^ 1))
+                return true; // tautology
+            if (values[lit] == TRUE)
+                return true; // already satisfied at level 0
+            if (values[lit] == FALSE)
+                continue; // false at level 0, drop it
+            c[n++] = lit;
+        }
+        if (n == 0) {
+            ok = false;
+        } else if (n == 1) {
+            enqueue(c[0], NO_REASON);
+            ok = (propagate() == NO_REASON);
+        } else {
+            int ref = arena.add(c, 0, n, flags);
+            watches.attach(ref);
+            // the LBD of an imported clause is unknown; its size bounds it
+            if (flags == LEARNT)
+                learned.add(ref, n);
+        }
+        if (!ok && proof != null)
+            proof.add(c, 0, 0);
+        return ok;
+    }
+
+    /**
+     * Search for a satisfying assignment of the clauses added so far.
+     *
+     * @return Bool.TRUE if the clauses are satisfiable, in which case the
+     *         model can be read with modelValue; Bool.FALSE if they are
+     *         unsatisfiable; Bool.UNDEFINED if the solver was interrupted or
+     *         ran out of its conflict or time limit
+     */
+    public Bool solve() {
+        return solve(NO_ASSUMPTIONS);
+    }
+
+    /**
+     * Search for a satisfying assignment of the clauses added so far in
+     * which every literal of assumptions is true. The assumptions are
+     * decided first, one per decision level; clauses learned along the way
+     * follow from the clauses alone and are kept.
+     *
+     * @param assumptions
+     *            literals over variables known to this solver
+     * @return Bool.TRUE if the clauses and assumptions are satisfiable, in
+     *         which case the model can be read with modelValue; Bool.FALSE if
+     *         they are unsatisfiable, in which case failedAssumptions tells
+     *         which assumptions are to blame; Bool.UNDEFINED if the solver
+     *         was interrupted or ran out of its conflict or time limit
+     */
+    public Bool solve(int[] assumptions) {
+        statistics.started();
+        try {
+            return search(assumptions);
+        } finally {
+            publishStatistics();
+            statistics.finished();
+        }
+    }
+
+    /*
+     * The body of solve(assumptions).
+     */
+    private Bool search(int[] assumptions) {
+        cancelUntil(0);
+        numFailed = 0;
+        if (!ok)
+            return Bool.FALSE;
+        if (trailLim.length < numVars + assumptions.length)
+            trailLim = Arrays.copyOf(trailLim, numVars + assumptions.length);
+        long deadline = timeLimit == NO_LIMIT ? Long.MAX_VALUE
+                : System.currentTimeMillis() + timeLimit;
+        long totalConflicts = 0;
+        int restarts = 0;
+        long conflictBudget = restartInterval(restarts);
+        long conflicts = 0;
+        int untilPublish = STATISTICS_INTERVAL;
+        // the search keeps its state on the trail, so this loop runs in
+        // constant stack space whatever the number of decisions
+        while (true) {
+            if (interrupted) {
+                cancelUntil(0);
+                return Bool.UNDEFINED;
+            }
+            if (--untilPublish == 0) {
+                untilPublish = STATISTICS_INTERVAL;
+                publishStatistics();
+            }
+            int conflict = propagate();
+            if (conflict != NO_REASON) {
+                conflicts++;
+                totalConflicts++;
+                conflictCount++;
+                if (decisionLevel == 0) {
+                    ok = false;
+                    if (proof != null)
+                        proof.add(analyzeOut, 0, 0);
+                    return Bool.FALSE;
+                }
+                learn(conflict);
+                if ((conflictLimit != NO_LIMIT && totalConflicts >= conflictLimit)
+                        || (deadline != Long.MAX_VALUE && System.currentTimeMillis() >= deadline)) {
+                    cancelUntil(0);
+                    return Bool.UNDEFINED;
+                }
+            } else if (conflicts >= conflictBudget) {
+                cancelUntil(0);
+                restarts++;
+                restartCount++;
+                publishStatistics();
+                statistics.fireProgress();
+                conflicts = 0;
+                conflictBudget = restartInterval(restarts);
+                if (!importShared())
+                    return Bool.FALSE;
+            } else if (learned.isReductionDue()) {
+                reduceLearned();
+            } else {
+                int lit = -1;
+                while (decisionLevel < assumptions.length) {
+                    int a = assumptions[decisionLevel];
+                    if (values[a] == TRUE) {
+                        // already implied: keep levels aligned with assumptions
+                        trailLim[decisionLevel++] = trailSize;
+                    } else if (values[a] == FALSE) {
+                        analyzeFinal(a);
+                        cancelUntil(0);
+                        return Bool.FALSE;
+                    } else {
+                        lit = a;
+                        break;
+                    }
+                }
+                if (lit < 0) {
+                    lit = pickBranchLiteral();
+                    if (lit < 0)
+                        return Bool.TRUE;
+                }
+                trailLim[decisionLevel++] = trailSize;
+                decisions++;
+                if (decisionLevel > maxDecisionLevel)
+                    maxDecisionLevel = decisionLevel;
+                enqueue(lit, NO_REASON);
+            }
+        }
+    }
+
+    /*
+     * Copy the counters to statistics.
+     */
+    private void publishStatistics() {
+        statistics.update(decisions, propagatedLiterals, conflictCount, learnedClauses,
+                deletedClauses, restartCount, maxDecisionLevel);
+    }
+
+    /**
+     * Requires: the last call to solve returned Bool.TRUE and no clause has
+     * been added since.
+     *
+     * @return the value of variable v in the satisfying assignment found;
+     *         variables left unassigned by the search are reported as true
+     */
+    public boolean modelValue(int v) {
+        return values[2 * v] != FALSE;
+    }
+
+    /**
+     * Requires: the last call to solve returned Bool.TRUE and no clause has
+     * been added since.
+     *
+     * @return model[v] = modelValue(v) for every variable v
+     */
+    public boolean[] model() {
+        boolean[] model = new boolean[numVars];
+        for (int v = 0; v < numVars; v++)
+            model[v] = modelValue(v);
+        return model;
+    }
+
+    /**
+     * Requires: the last call to solve returned Bool.FALSE.
+     *
+     * @return a subset of the assumptions of that call that is unsatisfiable
+     *         together with the clauses; empty if the clauses alone are
+     *         unsatisfiable
+     */
+    public int[] failedAssumptions() {
+        return Arrays.copyOf(failed, numFailed);
+    }
+
+    /**
+     * @return number of unit propagations (each run to fixpoint or conflict)
+     *         performed so far
+     */
+    public long propagations() {
+        return propagations;
+    }
+
+    /**
+     * @return total number of clause visits made by unit propagation
+     */
+    public long clauseVisits() {
+        return watches.visits();
+    }
+
+    /**
+     * @return number of clause visits made by the most recent unit
+     *         propagation
+     */
+    public long lastPropagationVisits() {
+        return lastPropagationVisits;
+    }
+
+    /**
+     * @return approximate number of bytes taken by the learned clauses now
+     *         kept, their watches included
+     */
+    public long learnedMemoryBytes() {
+        return learned.memoryBytes();
+    }
+
+    /*
+     * Lookahead support: assume lit at a new decision level and propagate.
+     * @return false if this leads to a conflict; either way the caller
+     * undoes the assumption with cancelUntil
+     */
+    boolean assume(int lit) {
+        if (decisionLevel == trailLim.length)
+            trailLim = Arrays.copyOf(trailLim, 2 * decisionLevel + 1);
+        trailLim[decisionLevel++] = trailSize;
+        if (values[lit] == FALSE)
+            return false;
+        if (values[lit] == UNASSIGNED)
+            enqueue(lit, NO_REASON);
+        return propagate() == NO_REASON;
+    }
+
+    /*
+     * @return current value of literal lit: TRUE, FALSE or UNASSIGNED
+     */
+    byte value(int lit) {
+        return values[lit];
+    }
+
+    /*
+     * @return current decision level
+     */
+    int decisionLevel() {
+        return decisionLevel;
+    }
+
+    /*
+     * @return number of literals assigned so far
+     */
+    int numAssigned() {
+        return trailSize;
+    }
+
+    /*
+     * @return false if the clauses are known to be unsatisfiable
+     */
+    boolean isOk() {
+        return ok;
+    }
+
+    /*
+     * Assign literal lit to true with the given reason at the current level.
+     * Requires lit to be unassigned.
+     */
+    void enqueue(int lit, int from) {
+        int v = lit >> 1;
+        values[lit] = TRUE;
+        values[lit ^ 1] = FALSE;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    /*
+     * Undo all assignments made above decision level lvl.
+     */
+    void cancelUntil(int lvl) {
+        if (decisionLevel <= lvl)
+            return;
+        int bound = trailLim[lvl];
+        for (int i = trailSize - 1; i >= bound; i--) {
+            int lit = trail[i];
+            int v = lit >> 1;
+            values[lit] = UNASSIGNED;
+            values[lit ^ 1] = UNASSIGNED;
+            reason[v] = NO_REASON;
+            phase[v] = (lit & 1) == 0 ? TRUE : FALSE;
+            heuristic.unassigned(v);
+        }
+        trailSize = bound;
+        qhead = bound;
+        decisionLevel = lvl;
+    }
+
+    /*
+     * Propagate all enqueued literals.
+     * @return a clause all of whose literals are false, or NO_REASON if
+     * propagation reached a fixpoint without conflict
+     */
+    private int propagate() {
+        long before = watches.visits();
+        int conflict = NO_REASON;
+        int start = qhead;
+        while (conflict == NO_REASON && qhead < trailSize) {
+            int p = trail[qhead++];
+            conflict = watches.propagate(p ^ 1, values, this);
+        }
+        propagatedLiterals += qhead - start;
+        if (conflict != NO_REASON)
+            qhead = trailSize;
+        propagations++;
+        lastPropagationVisits = watches.visits() - before;
+        return conflict;
+    }
+
+    /*
+     * Analyze a conflict at decision level > 0, learn the first-UIP clause,
+     * backjump, and assert the learned clause's UIP literal.
+     */
+    private void learn(int conflict) {
+        int[] data = arena.data();
+        int[] out = analyzeOut;
+        int outSize = 1; // out[0] is reserved for the asserting literal
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        int c = conflict;
+        do {
+            if (arena.flags(c) == LEARNT)
+                learned.bump(c);
+            // the literals of clause c, skipping the implied literal p
+            int end = c + 1 + arena.size(c);
+            for (int k = (p == -1 ? c + 1 : c + 2); k < end; k++) {
+                int q = data[k];
+                int v = q >> 1;
+                if (!seen[v] && level[v] > 0) {
+                    seen[v] = true;
+                    heuristic.bump(v);
+                    if (level[v] >= decisionLevel)
+                        pathCount++;
+                    else
+                        out[outSize++] = q;
+                }
+            }
+            // select next literal on the trail to expand
+            while (!seen[trail[index] >> 1])
+                index--;
+            p = trail[index--];
+            c = reason[p >> 1];
+            seen[p >> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        out[0] = p ^ 1;
+        heuristic.decay();
+        learned.decay();
+        learnedClauses++;
+
+        // drop literals implied by the rest of the learned clause, moving
+        // them past the kept ones so that their marks can still be cleared
+        int n = 1;
+        for (int i = 1; i < outSize; i++) {
+            if (!isRedundant(out[i])) {
+                int tmp = out[n];
+                out[n++] = out[i];
+                out[i] = tmp;
+            }
+        }
+        for (int i = 1; i < outSize; i++)
+            seen[out[i] >> 1] = false;
+
+        // backjump to the highest level among the non-asserting literals,
+        // which is placed at index 1 so that it is watched
+        int btLevel = 0;
+        if (n > 1) {
+            int maxI = 1;
+            for (int i = 2; i < n; i++)
+                if (level[out[i] >> 1] > level[out[maxI] >> 1])
+                    maxI = i;
+            int tmp = out[1];
+            out[1] = out[maxI];
+            out[maxI] = tmp;
+            btLevel = level[out[1] >> 1];
+        }
+        cancelUntil(btLevel);
+        if (proof != null)
+            proof.add(out, 0, n);
+        if (exchange != null)
+            exchange.publish(exchangeId, out, n);
+        if (n == 1) {
+            enqueue(out[0], NO_REASON);
+        } else {
+            int ref = arena.add(out, 0, n, LEARNT);
+            watches.attach(ref);
+            learned.add(ref, levels(out, n));
+            enqueue(out[0], ref);
+        }
+    }
+
+    /*
+     * @return number of distinct decision levels among the variables of
+     * lits[0..n)
+     */
+    private int levels(int[] lits, int n) {
+        if (levelStamp.length <= trailLim.length)
+            levelStamp = new int[trailLim.length + 1];
+        stamp++;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            int d = level[lits[i] >> 1];
+            if (levelStamp[d] != stamp) {
+                levelStamp[d] = stamp;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /*
+     * Delete the less useful learned clauses, as chosen by learned, and
+     * compact the arena. Requires no conflict. The solver backtracks to
+     * level 0, whose reasons are never read again and are forgotten, since
+     * compacting moves the clauses; in a proof the literals they implied are
+     * logged as unit clauses first, so that no step relies on a deleted
+     * clause.
+     */
+    private void reduceLearned() {
+        cancelUntil(0);
+        for (int i = 0; i < trailSize; i++) {
+            int v = trail[i] >> 1;
+            if (reason[v] != NO_REASON) {
+                if (proof != null)
+                    proof.add(trail, i, i + 1);
+                reason[v] = NO_REASON;
+            }
+        }
+        deletedClauses += learned.reduce(proof);
+        watches.rebuild();
+    }
+
+    /*
+     * Assumption p has been found false. Collect in failed the assumptions
+     * that imply its negation: p itself and the decisions reached by walking
+     * back from the negation of p through the reasons on the trail.
+     */
+    private void analyzeFinal(int p) {
+        if (failed.length < decisionLevel + 1)
+            failed = new int[decisionLevel + 1];
+        numFailed = 0;
+        failed[numFailed++] = p;
+        if (decisionLevel == 0)
+            return;
+        int[] data = arena.data();
+        seen[p >> 1] = true;
+        for (int i = trailSize - 1; i >= trailLim[0]; i--) {
+            int x = trail[i] >> 1;
+            if (!seen[x])
+                continue;
+            int r = reason[x];
+            if (r == NO_REASON) {
+                // a decision, hence an assumption
+                failed[numFailed++] = trail[i];
+            } else {
+                int end = r + 1 + arena.size(r);
+                for (int k = r + 2; k < end; k++)
+                    if (level[data[k] >> 1] > 0)
+                        seen[data[k] >> 1] = true;
+            }
+            seen[x] = false;
+        }
+        seen[p >> 1] = false;
+    }
+
+    /*
+     * A literal q of the learned clause is redundant if it was implied by a
+     * clause whose other literals are all in the learned clause (or fixed at
+     * level 0).
+     */
+    private boolean isRedundant(int q) {
+        int r = reason[q >> 1];
+        if (r == NO_REASON)
+            return false;
+        int[] data = arena.data();
+        int end = r + 1 + arena.size(r);
+        for (int k = r + 2; k < end; k++) {
+            int v = data[k] >> 1;
+            if (!seen[v] && level[v] > 0)
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * Add the clauses published by other solvers since the last import.
+     * Requires decision level 0.
+     * @return false if the clause set is now known to be unsatisfiable
+     */
+    private boolean importShared() {
+        if (exchange == null)
+            return true;
+        List<int[]> shared = new ArrayList<int[]>();
+        exchangeRead = exchange.collect(exchangeId, exchangeRead, shared);
+        for (int[] c : shared)
+            if (!addClause(c, 0, c.length, LEARNT))
+                return false;
+        return true;
+    }
+
+    /*
+     * @return the number of conflicts allowed before restart number i
+     */
+    private long restartInterval(int i) {
+        switch (config.getRestarts()) {
+        case LUBY:
+            return RESTART_BASE * luby(i);
+        case GEOMETRIC:
+            return (long) (RESTART_BASE * Math.pow(1.5, i));
+        default:
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /*
+     * Choose the next decision: a variable picked by the branching heuristic,
+     * or now and then a random one, with the value given by the polarity.
+     * @return the literal to decide, or -1 if every clause is satisfied
+     */
+    private int pickBranchLiteral() {
+        int v = -1;
+        double f = config.getRandomFrequency();
+        if (f > 0 && numVars > 0 && random.nextDouble() < f) {
+            v = random.nextInt(numVars);
+            if (values[2 * v] != UNASSIGNED)
+                v = -1;
+        }
+        if (v < 0)
+            v = heuristic.pickVariable(values);
+        if (v < 0)
+            return -1;
+        switch (config.getPolarity()) {
+        case SAVED:
+            return 2 * v + (phase[v] == TRUE ? 0 : 1);
+        case POSITIVE:
+            return 2 * v;
+        case NEGATIVE:
+            return 2 * v + 1;
+        default:
+            return 2 * v + (random.nextBoolean() ? 0 : 1);
+        }
+    }
+
+    /*
+     * @return the ith element (from 0) of the Luby sequence 1,1,2,1,1,2,4,...
+     */
+    static long luby(int i) {
+        int size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1L << seq;
+    }
+}
@@ -0,0 +1,100 @@
+package sat;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A channel through which solvers working on the same formula share short
+ * learned clauses. Since every learned clause is implied by the formula, a
+ * solver may add clauses learned by the others without changing its answer.
+ *
+ * Clauses are kept in a log of bounded capacity: once it is full, each new
+ * clause overwrites the oldest. Each reader remembers how far it has read;
+ * a reader that falls more than the capacity behind skips the clauses it
+ * missed, which costs it nothing but their help. So the memory taken is
+ * bounded however long the solvers run. Safe for use by multiple threads.
+ */
+class ClauseExchange {
+    /** Number of clauses kept when no capacity is given. */
+    static final int DEFAULT_CAPACITY = 1 << 14;
+
+    private final int maxSize;
+    // the clause published at position p, and the solver that published
+    // it, are in clauses and sources at index p % capacity
+    private final int[][] clauses;
+    private final int[] sources;
+    // number of clauses published so far
+    private long published = 0;
+
+    /*
+     * Rep invariant:
+     *     maxSize >= 1
+     *     clauses.length == sources.length >= 1
+     *     clauses[p % clauses.length] is non-null, with at most maxSize
+     *       literals, for max(0, published - clauses.length) <= p < published
+     */
+
+    /**
+     * Create an exchange for clauses of at most maxSize literals, keeping
+     * the last DEFAULT_CAPACITY of them. Requires maxSize >= 1.
+     */
+    public ClauseExchange(int maxSize) {
+        this(maxSize, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an exchange for clauses of at most maxSize literals, keeping
+     * the last capacity of them. Requires maxSize >= 1, capacity >= 1.
+     */
+    public ClauseExchange(int maxSize, int capacity) {
+        assert maxSize >= 1 && capacity >= 1 : "ClauseExchange: bad size";
+        this.maxSize = maxSize;
+        this.clauses = new int[capacity][];
+        this.sources = new int[capacity];
+    }
+
+    /**
+     * @return largest number of literals of a shared clause
+     */
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of clauses kept, at most the capacity
+     */
+    public synchronized int size() {
+        return (int) Math.min(published, clauses.length);
+    }
+
+    /**
+     * Publish the clause lits[0..n) learned by solver source, if it is short
+     * enough to be shared.
+     */
+    public synchronized void publish(int source, int[] lits, int n) {
+        if (n > maxSize)
+            return;
+        int i = (int) (published % clauses.length);
+        clauses[i] = Arrays.copyOf(lits, n);
+        sources[i] = source;
+        published++;
+    }
+
+    /**
+     * Collect the clauses published by solvers other than reader, starting
+     * at position from of the log, or at the oldest clause still kept if
+     * that is later.
+     *
+     * @param out
+     *            list to which the collected clauses are appended
+     * @return the position to collect from next time
+     */
+    public synchronized long collect(int reader, long from, List<int[]> out) {
+        for (long p = Math.max(from, published - clauses.length); p < published; p++) {
+            int i = (int) (p % clauses.length);
+            if (sources[i] != reader)
+                out.add(clauses[i]);
+        }
+        return published;
+    }
+}
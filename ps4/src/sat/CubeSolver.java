@@ -0,0 +1,272 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicReference;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.formula.ClauseArena;
+import sat.formula.Formula;
+import sat.formula.PackedFormula;
+
+/**
+ * A parallel SAT solver that divides the search space instead of racing
+ * over it (cube and conquer).
+ *
+ * First a lookahead phase splits the problem into cubes: partial assignments,
+ * given as arrays of literals, that together cover every assignment not
+ * already refuted by unit propagation. At each split the variable chosen is
+ * the one whose two values, tried in turn, propagate the most, so the cubes
+ * are roughly balanced in difficulty.
+ *
+ * Then each worker thread solves cubes with its own CDCL solver, assuming
+ * the literals of the cube. Every worker has its own deque of cubes; a worker
+ * whose deque is empty steals from the far end of another's. The formula is
+ * satisfiable iff some cube is, and the first model found ends the search.
+ * Workers also share short learned clauses, which hold independently of the
+ * cube they were learned under.
+ *
+ * The workers search as SolverConfig.DEFAULT says, so the formula is first
+ * simplified once by a Preprocessor; cubes are made from the simplified
+ * formula, and the model found is extended to the original.
+ */
+public class CubeSolver {
+    // number of most frequent unassigned variables scored at each split
+    private static final int CANDIDATES = 64;
+
+    private CubeSolver() {
+    }
+
+    /**
+     * Solve the problem with one worker per available processor.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     *         null if no such environment exists, as SATSolver.solve(formula)
+     */
+    public static Environment solve(Formula formula) {
+        return solve(formula.compile());
+    }
+
+    /**
+     * Solve a formula in packed form with one worker per available
+     * processor, splitting into at most 2^(ceil(log2 n) + 4) cubes for n
+     * workers: 16 per worker when n is a power of two, fewer than 32
+     * otherwise.
+     *
+     * @return as SATSolver.solve(formula)
+     */
+    public static Environment solve(PackedFormula formula) {
+        int n = Runtime.getRuntime().availableProcessors();
+        return solve(formula, n, 32 - Integer.numberOfLeadingZeros(n - 1) + 4);
+    }
+
+    /**
+     * Solve a formula in packed form by cube and conquer.
+     *
+     * @param workers
+     *            number of worker threads; requires workers >= 1
+     * @param depth
+     *            number of splits along each branch of the lookahead, so
+     *            there are at most 2^depth cubes; requires depth >= 0
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists or the calling thread is interrupted while
+     *         waiting
+     */
+    public static Environment solve(PackedFormula formula, int workers, int depth) {
+        assert workers >= 1 : "CubeSolver.solve: workers >= 1";
+        Preprocessor pre = new Preprocessor(formula);
+        if (pre.isUnsatisfiable())
+            return null;
+        final PackedFormula simplified = pre.getSimplified();
+        List<int[]> cubes = cubes(simplified, depth);
+        final List<LinkedBlockingDeque<int[]>> deques = new ArrayList<LinkedBlockingDeque<int[]>>();
+        for (int i = 0; i < workers; i++)
+            deques.add(new LinkedBlockingDeque<int[]>());
+        for (int i = 0; i < cubes.size(); i++)
+            deques.get(i % workers).add(cubes.get(i));
+
+        final ClauseExchange exchange = new ClauseExchange(PortfolioSolver.DEFAULT_SHARE_SIZE);
+        final AtomicReference<boolean[]> model = new AtomicReference<boolean[]>();
+        final List<CDCLSolver> solvers = new ArrayList<CDCLSolver>();
+        for (int i = 0; i < workers; i++) {
+            CDCLSolver solver = new CDCLSolver();
+            solver.share(exchange, i);
+            solvers.add(solver);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        List<Future<Void>> results = new ArrayList<Future<Void>>();
+        try {
+            for (int i = 0; i < workers; i++) {
+                final int id = i;
+                results.add(pool.submit(new Callable<Void>() {
+                    public Void call() {
+                        conquer(id, simplified, solvers, deques, model);
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> result : results)
+                result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (CDCLSolver solver : solvers)
+                solver.interrupt();
+            pool.shutdown();
+        }
+        return model.get() == null ? null : formula.toEnvironment(pre.extend(model.get()));
+    }
+
+    /*
+     * Worker id: solve cubes from its own deque, then from the others',
+     * until the deques are empty or some worker has found a model.
+     */
+    private static void conquer(int id, PackedFormula formula, List<CDCLSolver> solvers,
+            List<LinkedBlockingDeque<int[]>> deques, AtomicReference<boolean[]> model) {
+        CDCLSolver solver = solvers.get(id);
+        if (!solver.addClauses(formula))
+            return;
+        while (model.get() == null) {
+            int[] cube = deques.get(id).pollFirst();
+            for (int i = 1; cube == null && i < deques.size(); i++)
+                cube = deques.get((id + i) % deques.size()).pollLast();
+            if (cube == null)
+                return;
+            Bool result = solver.solve(cube);
+            if (result == Bool.FALSE && !solver.isOk()) {
+                // unsatisfiable whatever the cube: stop the others too
+                for (LinkedBlockingDeque<int[]> deque : deques)
+                    deque.clear();
+                for (CDCLSolver other : solvers)
+                    if (other != solver)
+                        other.interrupt();
+                return;
+            }
+            if (result == Bool.TRUE && model.compareAndSet(null, solver.model())) {
+                for (CDCLSolver other : solvers)
+                    if (other != solver)
+                        other.interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Split formula into cubes by lookahead.
+     *
+     * @param depth
+     *            largest number of literals in a cube
+     * @return cubes such that every satisfying assignment of formula
+     *         satisfies some cube
+     */
+    static List<int[]> cubes(PackedFormula formula, int depth) {
+        CDCLSolver solver = new CDCLSolver(formula);
+        List<int[]> cubes = new ArrayList<int[]>();
+        if (!solver.isOk())
+            return cubes;
+        int[] byOccurrence = variablesByOccurrence(formula);
+
+        LinkedList<int[]> pending = new LinkedList<int[]>();
+        pending.add(new int[0]);
+        while (!pending.isEmpty()) {
+            int[] cube = pending.removeFirst();
+            boolean consistent = true;
+            for (int i = 0; consistent && i < cube.length; i++)
+                consistent = solver.assume(cube[i]);
+            if (consistent) {
+                int v = cube.length < depth ? splitVariable(solver, byOccurrence) : -1;
+                if (v < 0) {
+                    cubes.add(cube);
+                } else {
+                    pending.add(extend(cube, PackedFormula.literal(v, false)));
+                    pending.add(extend(cube, PackedFormula.literal(v, true)));
+                }
+            }
+            solver.cancelUntil(0);
+        }
+        return cubes;
+    }
+
+    /*
+     * Lookahead: among the CANDIDATES most frequent unassigned variables,
+     * find the one for which the product of the numbers of literals
+     * propagated by its two values is largest. A value that leads to a
+     * conflict settles the choice at once, since that branch is refuted.
+     * @return the variable, or -1 if every variable is assigned
+     */
+    private static int splitVariable(CDCLSolver solver, int[] byOccurrence) {
+        int best = -1;
+        long bestScore = -1;
+        int scored = 0;
+        for (int i = 0; i < byOccurrence.length && scored < CANDIDATES; i++) {
+            int v = byOccurrence[i];
+            int pos = PackedFormula.literal(v, false);
+            if (solver.value(pos) != CDCLSolver.UNASSIGNED)
+                continue;
+            scored++;
+            long p = probe(solver, pos);
+            long n = probe(solver, pos ^ 1);
+            if (p < 0 || n < 0)
+                return v;
+            long score = (p + 1) * (n + 1);
+            if (score > bestScore) {
+                best = v;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * @return number of literals assigned by assuming lit, or -1 if that
+     * leads to a conflict
+     */
+    private static long probe(CDCLSolver solver, int lit) {
+        int level = solver.decisionLevel();
+        int before = solver.numAssigned();
+        boolean consistent = solver.assume(lit);
+        int propagated = solver.numAssigned() - before;
+        solver.cancelUntil(level);
+        return consistent ? propagated : -1;
+    }
+
+    /*
+     * @return the variables of formula, most frequently occurring first
+     */
+    private static int[] variablesByOccurrence(PackedFormula formula) {
+        int n = formula.numVariables();
+        final int[] count = new int[n];
+        ClauseArena clauses = formula.getClauses();
+        for (int ref = clauses.first(); ref != clauses.end(); ref = clauses.next(ref))
+            for (int i = 0; i < clauses.size(ref); i++)
+                count[PackedFormula.variable(clauses.literal(ref, i))]++;
+        // sort (count, variable) pairs packed into longs, largest first
+        long[] keyed = new long[n];
+        for (int v = 0; v < n; v++)
+            keyed[v] = ((long) count[v] << 32) | v;
+        Arrays.sort(keyed);
+        int[] vars = new int[n];
+        for (int i = 0; i < n; i++)
+            vars[i] = (int) keyed[n - 1 - i];
+        return vars;
+    }
+
+    private static int[] extend(int[] cube, int lit) {
+        int[] c = Arrays.copyOf(cube, cube.length + 1);
+        c[cube.length] = lit;
+        return c;
+    }
+}
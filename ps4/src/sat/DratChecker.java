@@ -0,0 +1,468 @@
+package sat;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import sat.formula.ClauseArena;
+import sat.formula.Dimacs;
+import sat.formula.PackedFormula;
+
+/**
+ * Checks a DRAT proof of unsatisfiability, in the binary format written by
+ * DratWriter, against a formula.
+ *
+ * The proof is checked forwards, one step at a time as it is read. A lemma
+ * is accepted if assigning the negation of its literals and propagating
+ * units over the clauses so far leads to a conflict (RUP); otherwise, if
+ * every resolvent of it on its first literal with a clause containing the
+ * negation of that literal passes the same test (RAT). The proof is valid if
+ * every lemma up to an empty one is accepted.
+ *
+ * As in drat-trim, deletions of unit clauses and of clauses that are the
+ * reason of a literal fixed by unit propagation are ignored, and so are
+ * deletions of clauses not in the database. Ignoring a deletion only makes
+ * the check stricter, never unsound.
+ */
+public class DratChecker {
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+    private static final byte UNASSIGNED = 0;
+    private static final int NO_REASON = -1;
+
+    private int numVars = 0;
+    // clauses[i] = sorted literals of clause i, or null once deleted
+    private final List<int[]> clauses = new ArrayList<int[]>();
+    // byHash.get(Arrays.hashCode(c)) = indices of live clauses c
+    private final Map<Integer, List<Integer>> byHash = new HashMap<Integer, List<Integer>>();
+    // watches[lit] = clauses with two or more literals, one of their first
+    // two being lit; may list deleted clauses
+    private IntList[] watches = new IntList[0];
+    // values[lit] = current value of literal lit
+    private byte[] values = new byte[0];
+    // reason[v] = clause that fixed variable v, or NO_REASON
+    private int[] reason = new int[0];
+    // assigned literals, the first `fixed` of them by unit propagation over
+    // the clauses and the rest by a check in progress
+    private int[] trail = new int[0];
+    private int trailSize = 0;
+    private int fixed = 0;
+    private int qhead = 0;
+    // true once unit propagation over the clauses reaches a conflict
+    private boolean refuted = false;
+
+    private long lemmas = 0;
+    private long ratLemmas = 0;
+    private long deletions = 0;
+    private long ignoredDeletions = 0;
+    // why the last check failed, or null
+    private String error = null;
+
+    /*
+     * Rep invariant:
+     *     values.length == 2 * numVars, reason and trail have length numVars
+     *     0 <= qhead <= trailSize, fixed <= trailSize
+     *     outside a check, trailSize == fixed, and unless refuted,
+     *       qhead == trailSize and every live clause is satisfied, has an
+     *       unassigned literal among its first two, or is the reason of
+     *       the literal it fixed
+     */
+
+    /**
+     * Make a checker for proofs about formula, which is only read.
+     */
+    public DratChecker(PackedFormula formula) {
+        ensureVariables(formula.numVariables());
+        ClauseArena arena = formula.getClauses();
+        for (int ref = arena.first(); ref != arena.end(); ref = arena.next(ref)) {
+            int[] c = new int[arena.size(ref)];
+            for (int i = 0; i < c.length; i++)
+                c[i] = arena.literal(ref, i);
+            add(c);
+        }
+    }
+
+    /**
+     * Usage: DratChecker formula.cnf proof.drat
+     *
+     * Check a binary DRAT proof against a formula in DIMACS CNF format.
+     * Prints "s VERIFIED" and exits with status 0 if the proof refutes the
+     * formula, else prints "s NOT VERIFIED" and the reason and exits with
+     * status 1.
+     */
+    public static void main(String[] args) throws IOException, Dimacs.ParseException {
+        if (args.length != 2) {
+            System.err.println("usage: DratChecker formula.cnf proof.drat");
+            System.exit(2);
+        }
+        long started = System.nanoTime();
+        DratChecker checker = new DratChecker(Dimacs.read(new File(args[0])));
+        InputStream in = new FileInputStream(args[1]);
+        boolean ok;
+        try {
+            ok = checker.check(in);
+        } finally {
+            in.close();
+        }
+        System.out.println(String.format("c %d lemmas (%d by RAT), %d deletions (%d ignored), %.3f s",
+                checker.lemmas, checker.ratLemmas, checker.deletions, checker.ignoredDeletions,
+                (System.nanoTime() - started) / 1e9));
+        if (ok) {
+            System.out.println("s VERIFIED");
+        } else {
+            System.out.println("c " + checker.getError());
+            System.out.println("s NOT VERIFIED");
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Check a proof, read from in to its end or to its first invalid step,
+     * taking up from the clauses of the formula and any proof checked
+     * before.
+     *
+     * @return true if the clauses are refuted: the formula has the empty
+     *         clause, or the proof adds it and every lemma of the proof up to
+     *         it is accepted
+     * @throws IOException
+     *             if reading in fails
+     */
+    public boolean check(InputStream in) throws IOException {
+        InputStream proof = new BufferedInputStream(in, 1 << 16);
+        int[] lits = new int[16];
+        error = null;
+        while (true) {
+            int kind = proof.read();
+            if (kind < 0)
+                break;
+            if (kind != 'a' && kind != 'd')
+                return fail("step " + (lemmas + deletions + 1) + ": bad byte " + kind);
+            int n = 0;
+            while (true) {
+                long u = 0;
+                int shift = 0, b;
+                do {
+                    b = proof.read();
+                    if (b < 0)
+                        return fail("proof ends inside a clause");
+                    u |= (long) (b & 0x7f) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0 && shift < 35);
+                if (u == 0)
+                    break;
+                if (u == 1 || u > Integer.MAX_VALUE)
+                    return fail("step " + (lemmas + deletions + 1) + ": bad literal " + u);
+                if (n == lits.length)
+                    lits = Arrays.copyOf(lits, 2 * n);
+                lits[n++] = (int) u - 2;
+            }
+            int[] c = Arrays.copyOf(lits, n);
+            if (kind == 'd') {
+                deletions++;
+                delete(c);
+                continue;
+            }
+            lemmas++;
+            if (!isRUP(c)) {
+                if (n == 0 || !isRAT(c))
+                    return fail("lemma " + lemmas + " " + dimacs(c) + " is neither RUP nor RAT");
+                ratLemmas++;
+            }
+            add(c);
+            if (refuted)
+                return true;
+        }
+        if (refuted)
+            return true;
+        return fail("the proof does not add the empty clause");
+    }
+
+    /**
+     * @return why the last call to check returned false, or null if it
+     *         returned true
+     */
+    public String getError() {
+        return error;
+    }
+
+    private boolean fail(String why) {
+        error = why;
+        return false;
+    }
+
+    /*
+     * @return c in DIMACS notation
+     */
+    private static String dimacs(int[] c) {
+        StringBuilder sb = new StringBuilder("[");
+        for (int lit : c)
+            sb.append((lit & 1) == 0 ? "" : "-").append((lit >> 1) + 1).append(' ');
+        return sb.append("0]").toString();
+    }
+
+    private void ensureVariables(int n) {
+        if (n <= numVars)
+            return;
+        int cap = Math.max(n, 2 * numVars);
+        values = Arrays.copyOf(values, 2 * cap);
+        reason = Arrays.copyOf(reason, cap);
+        trail = Arrays.copyOf(trail, cap);
+        int old = watches.length;
+        watches = Arrays.copyOf(watches, 2 * cap);
+        for (int l = old; l < watches.length; l++)
+            watches[l] = new IntList();
+        numVars = cap;
+    }
+
+    /*
+     * @return c sorted, without duplicate literals, or null if it is a
+     *         tautology
+     */
+    private int[] normalize(int[] c) {
+        int[] d = c.clone();
+        Arrays.sort(d);
+        int n = 0;
+        for (int i = 0; i < d.length; i++) {
+            if (n > 0 && d[n - 1] == d[i])
+                continue;
+            if (n > 0 && d[n - 1] == (d[i] ^ 1))
+                return null;
+            d[n++] = d[i];
+        }
+        if (n > 0)
+            ensureVariables((d[n - 1] >> 1) + 1);
+        return Arrays.copyOf(d, n);
+    }
+
+    /*
+     * Add clause c to the database and propagate any unit it makes.
+     */
+    private void add(int[] c) {
+        c = normalize(c);
+        if (c == null || refuted)
+            return;
+        int ci = clauses.size();
+        clauses.add(c);
+        Integer h = Arrays.hashCode(c);
+        List<Integer> same = byHash.get(h);
+        if (same == null) {
+            same = new ArrayList<Integer>(1);
+            byHash.put(h, same);
+        }
+        same.add(ci);
+        // move two literals that are not false to the front
+        int free = 0;
+        for (int i = 0; i < c.length && free < 2; i++) {
+            if (values[c[i]] != FALSE) {
+                int t = c[free];
+                c[free++] = c[i];
+                c[i] = t;
+            }
+        }
+        if (free == 0) {
+            refuted = true;
+        } else if (free == 1 && values[c[0]] == UNASSIGNED) {
+            assign(c[0], ci);
+            fixed = trailSize;
+            if (!propagate())
+                refuted = true;
+            fixed = trailSize;
+        }
+        if (c.length >= 2) {
+            watches[c[0]].add(ci);
+            watches[c[1]].add(ci);
+        }
+    }
+
+    /*
+     * Delete a clause set-equal to c, if there is one and it may be deleted.
+     */
+    private void delete(int[] c) {
+        c = normalize(c);
+        List<Integer> same = c == null ? null : byHash.get(Arrays.hashCode(c));
+        if (same != null && c.length > 1) {
+            for (int k = 0; k < same.size(); k++) {
+                int ci = same.get(k);
+                int[] d = clauses.get(ci);
+                if (!sameLiterals(c, d))
+                    continue;
+                if (reason[d[0] >> 1] == ci && values[d[0]] == TRUE)
+                    break; // the reason of a fixed literal
+                clauses.set(ci, null);
+                same.remove(k);
+                return;
+            }
+        }
+        ignoredDeletions++;
+    }
+
+    private static boolean sameLiterals(int[] sorted, int[] d) {
+        if (sorted.length != d.length)
+            return false;
+        int[] e = d.clone();
+        Arrays.sort(e);
+        return Arrays.equals(sorted, e);
+    }
+
+    /*
+     * @return true if c follows from the clauses by reverse unit propagation
+     */
+    private boolean isRUP(int[] c) {
+        if (refuted)
+            return true;
+        for (int lit : c)
+            if (lit >> 1 >= numVars)
+                ensureVariables((lit >> 1) + 1);
+        boolean conflict = false;
+        for (int lit : c) {
+            if (values[lit] == TRUE) {
+                conflict = true; // c is satisfied
+                break;
+            }
+            if (values[lit] == UNASSIGNED)
+                assign(lit ^ 1, NO_REASON);
+        }
+        if (!conflict)
+            conflict = !propagate();
+        // undo the check
+        for (int i = trailSize - 1; i >= fixed; i--) {
+            int lit = trail[i];
+            values[lit] = UNASSIGNED;
+            values[lit ^ 1] = UNASSIGNED;
+            reason[lit >> 1] = NO_REASON;
+        }
+        trailSize = fixed;
+        qhead = fixed;
+        return conflict;
+    }
+
+    /*
+     * @return true if c, which is not empty, has the RAT property on its
+     *         first literal p: every resolvent on p with a clause containing
+     *         the negation of p is a tautology or RUP
+     */
+    private boolean isRAT(int[] c) {
+        int p = c[0];
+        for (int ci = 0; ci < clauses.size(); ci++) {
+            int[] d = clauses.get(ci);
+            if (d == null)
+                continue;
+            boolean hasNegation = false;
+            for (int q : d)
+                if (q == (p ^ 1))
+                    hasNegation = true;
+            if (!hasNegation)
+                continue;
+            int[] r = new int[c.length + d.length - 1];
+            int n = 0;
+            for (int q : c)
+                r[n++] = q;
+            for (int q : d)
+                if (q != (p ^ 1))
+                    r[n++] = q;
+            r = normalize(r);
+            if (r != null && !isRUP(r))
+                return false;
+        }
+        return true;
+    }
+
+    private void assign(int lit, int from) {
+        values[lit] = TRUE;
+        values[lit ^ 1] = FALSE;
+        reason[lit >> 1] = from;
+        trail[trailSize++] = lit;
+    }
+
+    /*
+     * Propagate the assigned literals with two watched literals per clause.
+     * @return false on a conflict
+     */
+    private boolean propagate() {
+        while (qhead < trailSize) {
+            int falseLit = trail[qhead++] ^ 1;
+            IntList ws = watches[falseLit];
+            int j = 0;
+            boolean conflict = false;
+            for (int i = 0; i < ws.size(); i++) {
+                int ci = ws.get(i);
+                int[] c = clauses.get(ci);
+                if (c == null)
+                    continue; // deleted: drop the watch
+                if (conflict) {
+                    ws.set(j++, ci);
+                    continue;
+                }
+                if (c[0] == falseLit) {
+                    c[0] = c[1];
+                    c[1] = falseLit;
+                }
+                if (values[c[0]] == TRUE) {
+                    ws.set(j++, ci);
+                    continue;
+                }
+                // look for a new literal to watch
+                boolean moved = false;
+                for (int k = 2; k < c.length; k++) {
+                    if (values[c[k]] != FALSE) {
+                        c[1] = c[k];
+                        c[k] = falseLit;
+                        watches[c[1]].add(ci);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved)
+                    continue;
+                ws.set(j++, ci);
+                if (values[c[0]] == FALSE)
+                    conflict = true;
+                else
+                    assign(c[0], ci);
+            }
+            ws.truncate(j);
+            if (conflict) {
+                qhead = trailSize;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Growable list of ints.
+     */
+    private static final class IntList {
+        private int[] a = new int[4];
+        private int n = 0;
+
+        void add(int x) {
+            if (n == a.length)
+                a = Arrays.copyOf(a, 2 * n);
+            a[n++] = x;
+        }
+
+        int get(int i) {
+            return a[i];
+        }
+
+        void set(int i, int x) {
+            a[i] = x;
+        }
+
+        int size() {
+            return n;
+        }
+
+        void truncate(int size) {
+            n = size;
+        }
+    }
+}
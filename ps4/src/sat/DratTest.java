@@ -0,0 +1,126 @@
+package sat;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import sat.env.Variable;
+import sat.formula.PackedFormula;
+
+public class DratTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void DratWriterFormatTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DratWriter w = new DratWriter(out);
+        // DIMACS 1 -2, then -101 (literal 201, written 203 = 0xcb 0x01)
+        w.add(new int[] { 0, 3 }, 0, 2);
+        w.delete(new int[] { 7, 201 }, 1, 2);
+        w.add(new int[0], 0, 0);
+        assertEquals(0, out.size());
+        w.flush();
+        assertTrue(Arrays.equals(new byte[] { 'a', 2, 5, 0, 'd', (byte) 0xcb, 0x01, 0, 'a', 0 },
+                out.toByteArray()));
+        assertEquals(2, w.numAdded());
+        assertEquals(1, w.numDeleted());
+    }
+
+    @Test
+    public void DratPigeonholeTest() throws IOException {
+        PackedFormula f = TestFormulas.pigeonhole(6, 5).compile();
+        for (boolean preprocess : new boolean[] { true, false }) {
+            byte[] proof = solve(f, preprocess);
+            assertNotNull(proof);
+            DratChecker checker = new DratChecker(f);
+            assertTrue(checker.getError(), checker.check(new ByteArrayInputStream(proof)));
+        }
+        // the empty clause alone does not follow by unit propagation
+        DratChecker checker = new DratChecker(f);
+        assertFalse(checker.check(new ByteArrayInputStream(new byte[] { 'a', 0 })));
+        assertTrue(checker.getError().startsWith("lemma 1 "));
+        // nor does a satisfiable formula have a refutation
+        PackedFormula g = TestFormulas.pigeonhole(5, 5).compile();
+        assertNull(solve(g, true));
+        assertFalse(new DratChecker(g).check(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void DratRandomTest() throws IOException {
+        // random 3-SAT at the threshold: about half are unsatisfiable
+        Random random = new Random(7);
+        int refuted = 0;
+        for (int t = 0; t < 40; t++) {
+            PackedFormula f = variables(40);
+            for (int i = 0; i < 170; i++)
+                f.addClause(2 * random.nextInt(40) + random.nextInt(2),
+                        2 * random.nextInt(40) + random.nextInt(2),
+                        2 * random.nextInt(40) + random.nextInt(2));
+            for (boolean preprocess : new boolean[] { true, false }) {
+                byte[] proof = solve(f, preprocess);
+                if (proof == null)
+                    continue;
+                refuted++;
+                DratChecker checker = new DratChecker(f);
+                assertTrue(checker.getError(), checker.check(new ByteArrayInputStream(proof)));
+                // ending with the empty clause
+                assertEquals('a', proof[proof.length - 2]);
+                assertEquals(0, proof[proof.length - 1]);
+            }
+        }
+        assertTrue(refuted > 10);
+    }
+
+    @Test
+    public void DratRatTest() throws IOException {
+        // (1 | 2) & (-1 | 2) & (1 | -2) & (-1 | -2)
+        PackedFormula f = variables(2);
+        f.addClause(0, 2);
+        f.addClause(1, 2);
+        f.addClause(0, 3);
+        f.addClause(1, 3);
+        // 3 is new: RAT but not RUP; then 1, and the empty clause, by RUP
+        DratChecker checker = new DratChecker(f);
+        assertTrue(checker.getError(), checker.check(new ByteArrayInputStream(
+                new byte[] { 'a', 6, 0, 'a', 2, 0, 'a', 0 })));
+
+        // in (1 | 2) & (-1 | 2), -2 is neither RUP nor RAT
+        PackedFormula g = variables(2);
+        g.addClause(0, 2);
+        g.addClause(1, 2);
+        checker = new DratChecker(g);
+        assertFalse(checker.check(new ByteArrayInputStream(new byte[] { 'a', 5, 0 })));
+        assertEquals("lemma 1 [-2 0] is neither RUP nor RAT", checker.getError());
+    }
+
+    // Helper function solving f with a proof.
+    // Returns the proof, or null if f is satisfiable.
+    private static byte[] solve(PackedFormula f, boolean preprocess) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DratWriter proof = new DratWriter(out);
+        SolverConfig config = SolverConfig.DEFAULT.withPreprocessing(preprocess);
+        boolean satisfiable = SATSolver.solve(f, config, new SolverStatistics(), proof) != null;
+        proof.close();
+        return satisfiable ? null : out.toByteArray();
+    }
+
+    private static PackedFormula variables(int n) {
+        PackedFormula f = new PackedFormula();
+        for (int v = 0; v < n; v++)
+            f.addVariable(new Variable("x" + v));
+        return f;
+    }
+}
@@ -0,0 +1,163 @@
+package sat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a clausal proof of unsatisfiability in binary DRAT format, as read
+ * by DratChecker and by drat-trim.
+ *
+ * A proof is a sequence of clause additions and deletions. Each added clause
+ * (lemma) must follow from the formula and the clauses added and not deleted
+ * before it: by reverse unit propagation (RUP), or else by having the
+ * resolution asymmetric tautology property (RAT) on its first literal. A
+ * proof that adds the empty clause refutes the formula.
+ *
+ * In the binary format an addition is the byte 'a' and a deletion the byte
+ * 'd', followed by the literals of the clause and a 0 byte. Literal lit of a
+ * PackedFormula, which is DIMACS literal +-(v+1) for variable v, is written
+ * as the unsigned number lit + 2 in 7-bit groups, least significant first,
+ * with the high bit set on every byte but the last.
+ *
+ * Output goes through a buffer of this writer's own, so that logging a
+ * clause costs a few array stores. The writing methods do not throw: the
+ * first IOException is kept and thrown by flush or close, and nothing more
+ * is written after it.
+ */
+public class DratWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    // longest encoding of one literal: 5 bytes of 7 bits
+    private static final int MAX_LITERAL_BYTES = 5;
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    // buffer[0..pos) is yet to be written to out
+    private int pos = 0;
+    // first error writing to out, or null
+    private IOException error = null;
+    private long added = 0;
+    private long deleted = 0;
+
+    /*
+     * Rep invariant:
+     *     0 <= pos <= BUFFER_SIZE
+     *     if error != null, pos == 0
+     */
+
+    /**
+     * Make a writer of a proof to out, which is closed by close.
+     */
+    public DratWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Log the addition of the clause lits[from..to), whose literals are
+     * those of a PackedFormula.
+     */
+    public void add(int[] lits, int from, int to) {
+        added++;
+        write('a', lits, from, to);
+    }
+
+    /**
+     * Log the deletion of the clause lits[from..to).
+     */
+    public void delete(int[] lits, int from, int to) {
+        deleted++;
+        write('d', lits, from, to);
+    }
+
+    /**
+     * @return number of clause additions logged
+     */
+    public long numAdded() {
+        return added;
+    }
+
+    /**
+     * @return number of clause deletions logged
+     */
+    public long numDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Write out everything logged so far.
+     *
+     * @throws IOException
+     *             if this or any earlier write to the stream failed
+     */
+    public void flush() throws IOException {
+        drain();
+        if (error != null)
+            throw error;
+        out.flush();
+    }
+
+    /**
+     * Flush and close the stream.
+     *
+     * @throws IOException
+     *             if this or any earlier write to the stream failed
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void write(char kind, int[] lits, int from, int to) {
+        if (error != null)
+            return;
+        if (BUFFER_SIZE - pos < 2 + MAX_LITERAL_BYTES * (to - from)) {
+            drain();
+            if (error != null)
+                return;
+            if (to - from > (BUFFER_SIZE - 2) / MAX_LITERAL_BYTES) {
+                // too long for the buffer: write it in pieces
+                buffer[pos++] = (byte) kind;
+                for (int i = from; i < to; i++) {
+                    if (BUFFER_SIZE - pos < MAX_LITERAL_BYTES + 1) {
+                        drain();
+                        if (error != null)
+                            return;
+                    }
+                    literal(lits[i]);
+                }
+                buffer[pos++] = 0;
+                return;
+            }
+        }
+        buffer[pos++] = (byte) kind;
+        for (int i = from; i < to; i++)
+            literal(lits[i]);
+        buffer[pos++] = 0;
+    }
+
+    private void literal(int lit) {
+        int u = lit + 2;
+        while ((u & ~0x7f) != 0) {
+            buffer[pos++] = (byte) ((u & 0x7f) | 0x80);
+            u >>>= 7;
+        }
+        buffer[pos++] = (byte) u;
+    }
+
+    /*
+     * Write the buffer to out, keeping the first error.
+     */
+    private void drain() {
+        if (pos > 0 && error == null) {
+            try {
+                out.write(buffer, 0, pos);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        pos = 0;
+    }
+}
@@ -0,0 +1,278 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.Clause;
+import sat.formula.Formula;
+import sat.formula.Literal;
+import sat.formula.NegLiteral;
+import sat.formula.PosLiteral;
+
+/**
+ * IncrementalSolver is a mutable SAT solver to which clauses can be added
+ * between calls to solve. Each call may assume some literals true for that
+ * call only. What the solver has learned, both learned clauses and variable
+ * activities, is kept from one call to the next, so solving many related
+ * problems, such as Sudoku puzzles that share the rules and differ in the
+ * givens, costs far less than solving each from scratch.
+ *
+ * When the result is unsatisfiable because of the assumptions, the solver
+ * reports a subset of them that is already unsatisfiable with the clauses.
+ *
+ * An IncrementalSolver is not safe for use by multiple threads.
+ */
+public class IncrementalSolver {
+    /** Value of a conflict or time limit meaning unlimited. */
+    public static final long NO_LIMIT = CDCLSolver.NO_LIMIT;
+
+    private final CDCLSolver solver;
+    // ids.get(x) = number of Variable x in solver; variables.get(id) = x, or
+    // null for a variable of the solver's own, such as the activation
+    // variable of a SolutionIterator
+    private final Map<Variable, Integer> ids = new HashMap<Variable, Integer>();
+    private final List<Variable> variables = new ArrayList<Variable>();
+    // result of the last call to solve, or null before the first
+    private Bool result = null;
+    private int[] lits = new int[8];
+
+    /*
+     * Rep invariant:
+     *     ids and variables are inverse: ids.get(variables.get(i)) == i
+     *       for every i with variables.get(i) != null
+     *     solver.numVariables() >= variables.size()
+     *
+     * Abstraction function:
+     *     the conjunction of the clauses added so far, where solver variable
+     *     i stands for variables.get(i)
+     */
+
+    /**
+     * Create a solver with no clauses.
+     */
+    public IncrementalSolver() {
+        this(SolverConfig.DEFAULT);
+    }
+
+    /**
+     * Create a solver with no clauses, searching according to config.
+     */
+    public IncrementalSolver(SolverConfig config) {
+        solver = new CDCLSolver(config);
+    }
+
+    /**
+     * Add clause c. Tautologies (null clauses, as produced by Formula.or) are
+     * ignored.
+     */
+    public void addClause(Clause c) {
+        if (c == null)
+            return;
+        if (c.size() > lits.length)
+            lits = new int[c.size()];
+        int n = 0;
+        for (Literal l : c)
+            lits[n++] = literal(l);
+        solver.addClause(lits, 0, n);
+        result = null;
+    }
+
+    /**
+     * Add all the clauses of f.
+     */
+    public void addFormula(Formula f) {
+        for (Clause c : f.getClauses())
+            addClause(c);
+    }
+
+    /**
+     * Solve the clauses added so far with no assumptions.
+     *
+     * @see #solve(List)
+     */
+    public Bool solve() {
+        return solve(new ArrayList<Literal>());
+    }
+
+    /**
+     * Search for an assignment satisfying the clauses added so far in which
+     * every literal of assumptions is true.
+     *
+     * @return Bool.TRUE if one exists, in which case getModel returns it;
+     *         Bool.FALSE if not, in which case getFailedAssumptions tells why;
+     *         Bool.UNDEFINED if the search was interrupted or ran out of
+     *         its conflict or time limit
+     */
+    public Bool solve(List<Literal> assumptions) {
+        int[] as = new int[assumptions.size()];
+        for (int i = 0; i < as.length; i++)
+            as[i] = literal(assumptions.get(i));
+        return solve(as);
+    }
+
+    /**
+     * Enumerate the solutions of the clauses added so far in which every
+     * literal of assumptions is true, told apart by the variables of
+     * projection. Each solution is an environment binding exactly the
+     * variables of projection, and no two solutions bind them alike.
+     * Solutions are searched for one at a time, as the iterator is
+     * advanced; each rules out its own assignment of projection with a
+     * blocking clause for the rest of the enumeration, so the solver keeps
+     * what it learned from one solution to the next.
+     *
+     * The solver must not be used otherwise while the iteration runs. Once
+     * hasNext returns false, or if the iterator is dropped early, the
+     * blocking clauses have no effect on later calls.
+     *
+     * @param limit
+     *            largest number of solutions to return; requires limit >= 0,
+     *            or NO_LIMIT for no limit
+     */
+    public SolutionIterator solutions(List<Literal> assumptions,
+            Collection<Variable> projection, long limit) {
+        assert limit >= 0 || limit == NO_LIMIT : "IncrementalSolver.solutions: negative limit";
+        int[] as = new int[assumptions.size() + 1];
+        for (int i = 0; i < assumptions.size(); i++)
+            as[i] = literal(assumptions.get(i));
+        // the blocking clauses hold only while the last assumption does
+        as[as.length - 1] = 2 * newVariable(null);
+        List<Variable> vars = new ArrayList<Variable>(projection);
+        int[] lits = new int[vars.size()];
+        for (int i = 0; i < lits.length; i++)
+            lits[i] = literal(PosLiteral.make(vars.get(i)));
+        return new SolutionIterator(this, as, vars, lits, limit);
+    }
+
+    /*
+     * Solve the clauses with solver literals as assumptions.
+     */
+    Bool solve(int[] assumptions) {
+        result = solver.solve(assumptions);
+        return result;
+    }
+
+    /*
+     * Add the clause lits[0..n) of solver literals.
+     */
+    void addClause(int[] lits, int n) {
+        solver.addClause(lits, 0, n);
+        result = null;
+    }
+
+    /*
+     * Requires: the last call to solve returned Bool.TRUE and no clause has
+     * been added since.
+     * @return the value of solver literal lit in the model found
+     */
+    boolean modelValue(int lit) {
+        return solver.modelValue(lit >> 1) == ((lit & 1) == 0);
+    }
+
+    /**
+     * Limit each call to solve to the given number of conflicts.
+     *
+     * @param conflicts
+     *            requires conflicts >= 0, or NO_LIMIT for no limit
+     */
+    public void setConflictLimit(long conflicts) {
+        solver.setConflictLimit(conflicts);
+    }
+
+    /**
+     * Limit each call to solve to about the given wall-clock time.
+     *
+     * @param millis
+     *            requires millis >= 0, or NO_LIMIT for no limit
+     */
+    public void setTimeLimit(long millis) {
+        solver.setTimeLimit(millis);
+    }
+
+    /**
+     * @return the statistics the solver reports its progress to, which may
+     *         be read from other threads during a call to solve
+     */
+    public SolverStatistics getStatistics() {
+        return solver.statistics();
+    }
+
+    /**
+     * Make the current or next call to solve return Bool.UNDEFINED soon. May
+     * be called from any thread; the solver stays interrupted.
+     */
+    public void interrupt() {
+        solver.interrupt();
+    }
+
+    /**
+     * Requires: the last call to solve returned Bool.TRUE and no clause has
+     * been added since.
+     *
+     * @return an environment binding every variable of the clauses and
+     *         assumptions seen so far, satisfying the clauses and the
+     *         assumptions of that call; auxiliary variables (see
+     *         Formula.isAuxiliary) are left out
+     */
+    public Environment getModel() {
+        assert result == Bool.TRUE : "IncrementalSolver.getModel: no model";
+        Environment.Builder env = new Environment.Builder();
+        for (int v = 0; v < variables.size(); v++)
+            if (variables.get(v) != null && !Formula.isAuxiliary(variables.get(v)))
+                env.put(variables.get(v), solver.modelValue(v) ? Bool.TRUE : Bool.FALSE);
+        return env.build();
+    }
+
+    /**
+     * Requires: the last call to solve returned Bool.FALSE.
+     *
+     * @return assumptions of that call that are unsatisfiable together with
+     *         the clauses; empty if the clauses alone are unsatisfiable
+     */
+    public List<Literal> getFailedAssumptions() {
+        assert result == Bool.FALSE : "IncrementalSolver.getFailedAssumptions: not unsatisfiable";
+        List<Literal> core = new ArrayList<Literal>();
+        for (int lit : solver.failedAssumptions()) {
+            Variable v = variables.get(lit >> 1);
+            if (v != null)
+                core.add((lit & 1) == 0 ? PosLiteral.make(v) : NegLiteral.make(v));
+        }
+        return core;
+    }
+
+    /**
+     * @return number of distinct variables seen so far
+     */
+    public int numVariables() {
+        return ids.size();
+    }
+
+    /*
+     * @return the solver literal for l, adding its variable if new
+     */
+    private int literal(Literal l) {
+        Variable x = l.getVariable();
+        Integer id = ids.get(x);
+        if (id == null)
+            id = newVariable(x);
+        return 2 * id + (l instanceof NegLiteral ? 1 : 0);
+    }
+
+    /*
+     * @return the number of a new solver variable standing for x, or for no
+     *         Variable if x is null
+     */
+    private int newVariable(Variable x) {
+        int id = variables.size();
+        if (x != null)
+            ids.put(x, id);
+        variables.add(x);
+        solver.ensureVariables(id + 1);
+        return id;
+    }
+}
@@ -0,0 +1,229 @@
+package sat;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.Clause;
+import sat.formula.Literal;
+import sat.formula.PosLiteral;
+import sudoku.SolutionCounter;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ParseException;
+
+public class IncrementalSolverTest {
+    Literal a = PosLiteral.make("a");
+    Literal b = PosLiteral.make("b");
+    Literal c = PosLiteral.make("c");
+    Literal d = PosLiteral.make("d");
+    Literal na = a.getNegation();
+    Literal nb = b.getNegation();
+    Literal nc = c.getNegation();
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void IncrementalAssumptionsTest() {
+        // (!a | b) & (!b | c)
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.addClause(new Clause(na).add(b));
+        solver.addClause(new Clause(nb).add(c));
+
+        assertEquals(Bool.TRUE, solver.solve(Arrays.asList(a)));
+        Environment env = solver.getModel();
+        assertEquals(Bool.TRUE, env.get(c.getVariable()));
+
+        // a forces c, so a and !c fail together; d plays no part
+        assertEquals(Bool.FALSE, solver.solve(Arrays.asList(d, a, nc)));
+        List<Literal> core = solver.getFailedAssumptions();
+        assertTrue(core.contains(a));
+        assertTrue(core.contains(nc));
+        assertFalse(core.contains(d));
+
+        // assumptions hold for one call only
+        assertEquals(Bool.TRUE, solver.solve(Arrays.asList(nc)));
+        assertEquals(Bool.FALSE, solver.getModel().get(a.getVariable()));
+
+        // clauses can be added between calls
+        solver.addClause(new Clause(c).add(a));
+        solver.addClause(new Clause(nc));
+        assertEquals(Bool.FALSE, solver.solve());
+        assertTrue(solver.getFailedAssumptions().isEmpty());
+    }
+
+    @Test
+    public void IncrementalSudokuTest() throws IOException, ParseException {
+        // one solver for the rules, each puzzle's givens as assumptions
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.addFormula(new Sudoku(3).getProblem());
+        for (String name : new String[] { "sudoku_easy.txt", "sudoku_hard.txt", "sudoku_evil.txt" }) {
+            Sudoku puzzle = Sudoku.fromFile(3, "samples" + File.separator + name);
+            assertEquals(Bool.TRUE, solver.solve(puzzle.getGivens()));
+            Sudoku solution = puzzle.interpretSolution(solver.getModel());
+            assertFalse(solution.toString().contains("."));
+        }
+
+        // two different digits in one square: the core names just those
+        List<Literal> givens = new ArrayList<Literal>();
+        givens.add(PosLiteral.make("occupies(0,0,0)"));
+        givens.add(PosLiteral.make("occupies(4,4,4)"));
+        givens.add(PosLiteral.make("occupies(0,0,1)"));
+        assertEquals(Bool.FALSE, solver.solve(givens));
+        List<Literal> core = solver.getFailedAssumptions();
+        assertEquals(2, core.size());
+        assertFalse(core.contains(givens.get(1)));
+    }
+
+    @Test
+    public void IncrementalLimitsTest() {
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.addFormula(TestFormulas.pigeonhole(9, 8));
+        // far too few conflicts to refute the pigeonhole formula
+        solver.setConflictLimit(10);
+        assertEquals(Bool.UNDEFINED, solver.solve());
+        // and no time at all
+        solver.setConflictLimit(IncrementalSolver.NO_LIMIT);
+        solver.setTimeLimit(0);
+        assertEquals(Bool.UNDEFINED, solver.solve());
+        // a smaller instance without limits is refuted as before
+        IncrementalSolver small = new IncrementalSolver();
+        small.addFormula(TestFormulas.pigeonhole(5, 4));
+        small.setConflictLimit(100000);
+        assertEquals(Bool.FALSE, small.solve());
+    }
+
+    @Test
+    public void IncrementalStatisticsTest() throws Exception {
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.addFormula(TestFormulas.pigeonhole(6, 5));
+        SolverStatistics stats = solver.getStatistics();
+        final List<Long> reported = new ArrayList<Long>();
+        stats.addListener(new SolverListener() {
+            public void progress(SolverStatistics s) {
+                reported.add(s.getConflicts());
+            }
+        });
+        ObjectName name = stats.register("IncrementalStatisticsTest");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(Bool.FALSE, solver.solve());
+            assertFalse(stats.isRunning());
+            assertTrue(stats.getDecisions() > 0);
+            assertTrue(stats.getPropagations() > 0);
+            assertTrue(stats.getConflicts() > 0);
+            assertTrue(stats.getLearnedClauses() > 0);
+            assertTrue(stats.getMaxDecisionLevel() > 0);
+            // one report per restart, and the last when solve returned
+            assertEquals(stats.getRestarts() + 1, reported.size());
+            assertEquals(stats.getConflicts(), (long) reported.get(reported.size() - 1));
+            assertEquals(stats.getConflicts(), server.getAttribute(name, "Conflicts"));
+        } finally {
+            stats.unregister();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
+
+    @Test
+    public void IncrementalSolutionsTest() {
+        // (a | b | c) & (!a | !b): five of the eight assignments
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.addClause(new Clause(a).add(b).add(c));
+        solver.addClause(new Clause(na).add(nb));
+        List<Variable> abc = Arrays.asList(a.getVariable(), b.getVariable(), c.getVariable());
+        SolutionIterator it = solver.solutions(new ArrayList<Literal>(), abc, IncrementalSolver.NO_LIMIT);
+        Set<String> seen = new HashSet<String>();
+        while (it.hasNext()) {
+            Environment env = it.next();
+            boolean va = env.get(a.getVariable()) == Bool.TRUE;
+            boolean vb = env.get(b.getVariable()) == Bool.TRUE;
+            boolean vc = env.get(c.getVariable()) == Bool.TRUE;
+            assertTrue((va || vb || vc) && !(va && vb));
+            assertTrue(seen.add(va + " " + vb + " " + vc));
+        }
+        assertEquals(5, seen.size());
+        assertEquals(5, it.count());
+        assertTrue(it.isComplete());
+
+        // with !a assumed, told apart by b and c only
+        assertEquals(3, count(solver.solutions(Arrays.asList(na),
+                abc.subList(1, 3), IncrementalSolver.NO_LIMIT)));
+        // projected onto a and b: (a,b) is one of 00, 01, 10
+        assertEquals(3, count(solver.solutions(new ArrayList<Literal>(),
+                abc.subList(0, 2), IncrementalSolver.NO_LIMIT)));
+
+        // stopped by the limit, and an iterator dropped early
+        it = solver.solutions(new ArrayList<Literal>(), abc, 2);
+        assertEquals(2, count(it));
+        assertFalse(it.isComplete());
+        it = solver.solutions(new ArrayList<Literal>(), abc, IncrementalSolver.NO_LIMIT);
+        it.next();
+
+        // neither left anything behind
+        assertEquals(Bool.TRUE, solver.solve(Arrays.asList(a, nc)));
+        assertEquals(5, count(solver.solutions(new ArrayList<Literal>(), abc, IncrementalSolver.NO_LIMIT)));
+        assertEquals(3, solver.numVariables());
+
+        // unsatisfiable assumptions: no solutions at all
+        it = solver.solutions(Arrays.asList(a, b), abc, IncrementalSolver.NO_LIMIT);
+        assertFalse(it.hasNext());
+        assertTrue(it.isComplete());
+    }
+
+    @Test
+    public void IncrementalSudokuUniquenessTest() throws IOException, ParseException {
+        SolutionCounter counter = new SolutionCounter(3);
+        for (String name : new String[] { "sudoku_easy.txt", "sudoku_hard.txt", "sudoku_evil.txt" })
+            assertTrue(counter.isUnique(Sudoku.fromFile(3, "samples" + File.separator + name)));
+        // the empty grid has far more solutions than asked for
+        assertEquals(10, counter.countSolutions(new Sudoku(3), 10));
+        assertFalse(counter.isUnique(new Sudoku(3)));
+
+        // 288 ways to fill a 4x4 grid, each filling in every square
+        SolutionCounter small = new SolutionCounter(2);
+        assertEquals(288, small.countSolutions(new Sudoku(2), IncrementalSolver.NO_LIMIT));
+        // a filled-in first row leaves 288/4! of them
+        Sudoku puzzle = new Sudoku(2, new int[][] {
+                new int[] { 3, 1, 2, 4 },
+                new int[] { 0, 0, 0, 0 },
+                new int[] { 0, 0, 0, 0 },
+                new int[] { 0, 0, 0, 0 } });
+        Set<String> seen = new HashSet<String>();
+        for (Iterator<Sudoku> it = small.solutions(puzzle, IncrementalSolver.NO_LIMIT); it.hasNext();) {
+            int[][] grid = it.next().getGrid();
+            assertEquals("[3, 1, 2, 4]", Arrays.toString(grid[0]));
+            assertFalse(Arrays.deepToString(grid).contains("0"));
+            assertTrue(seen.add(Arrays.deepToString(grid)));
+        }
+        assertEquals(12, seen.size());
+        assertEquals(12, small.countSolutions(puzzle, IncrementalSolver.NO_LIMIT));
+    }
+
+    // Helper function running it to the end; returns the number of solutions.
+    private long count(SolutionIterator it) {
+        while (it.hasNext())
+            it.next();
+        return it.count();
+    }
+}
@@ -0,0 +1,211 @@
+package sat;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import sat.formula.ClauseArena;
+
+/**
+ * The learned clauses of a CDCLSolver, with what is known of their
+ * usefulness, and the policy deciding which of them to delete.
+ *
+ * The literal block distance (LBD) of a learned clause is the number of
+ * distinct decision levels among its literals when it was learned. A clause
+ * of low LBD ties together few decisions and is likely to propagate again;
+ * clauses of LBD at most GLUE, binary clauses among them, are glue clauses
+ * and survive every reduction but those forced by the memory limit. The
+ * activity of a clause is bumped whenever it takes part in conflict
+ * analysis, and decays the way variable activities do in VSIDS.
+ *
+ * A reduction is due when the number of learned clauses reaches a bound,
+ * which after each reduction is set further ahead by a growing interval, so
+ * that a long search keeps more clauses; or when the learned clauses take
+ * more memory than the limit. A reduction deletes the worse half of the
+ * clauses that are not glue, ordered by LBD and then by activity, and if
+ * the memory limit is exceeded as many more as it takes to come down to half
+ * the limit. The arena is then compacted, so the memory is given back.
+ */
+class LearnedClauses {
+    /** Largest LBD of a glue clause. */
+    static final int GLUE = 2;
+
+    // learned clauses before the first reduction; the interval between
+    // reductions grows by INTERVAL_GROWTH each time
+    private static final int FIRST_INTERVAL = 2000;
+    private static final int INTERVAL_GROWTH = 300;
+    // activities are multiplied by DECAY relative to the bump after each conflict
+    private static final double DECAY = 0.999;
+    // activities are rescaled before they can overflow
+    private static final double RESCALE_LIMIT = 1e20;
+    // memory of a clause besides its words in the arena: two watches of two
+    // ints each, and its entry here
+    private static final int OVERHEAD_BYTES = 16 + 16;
+
+    private final ClauseArena arena;
+    // bytes the learned clauses may take before a reduction is forced
+    private final long memoryLimit;
+
+    // refs[0..size) are the learned clauses, lbd and activity their scores
+    private int[] refs = new int[64];
+    private int[] lbd = new int[64];
+    private double[] activity = new double[64];
+    private int size = 0;
+    private double increment = 1.0;
+    // memory taken by the learned clauses
+    private long bytes = 0;
+
+    private int reductions = 0;
+    // number of learned clauses at which the next reduction is due
+    private long nextReduction = FIRST_INTERVAL;
+
+    /*
+     * Rep invariant:
+     *     refs, lbd, activity have equal length >= size
+     *     refs[0..size) are increasing references to clauses of arena that
+     *       are not deleted
+     *     lbd[i] >= 1, activity[i] >= 0
+     *     bytes == sum over i < size of 4 * (1 + arena.size(refs[i])) + OVERHEAD_BYTES
+     *     memoryLimit > 0
+     */
+
+    /**
+     * Make an empty store of learned clauses kept in arena.
+     *
+     * @param memoryLimit
+     *            bytes the learned clauses may take before a reduction is
+     *            due; requires memoryLimit > 0
+     */
+    public LearnedClauses(ClauseArena arena, long memoryLimit) {
+        assert memoryLimit > 0 : "LearnedClauses: memory limit not positive";
+        this.arena = arena;
+        this.memoryLimit = memoryLimit;
+    }
+
+    /**
+     * Record the learned clause ref with the given LBD.
+     * Requires: ref was added to the arena after every clause recorded here
+     */
+    public void add(int ref, int lbd) {
+        assert size == 0 || refs[size - 1] < ref : "LearnedClauses.add: reference out of order";
+        if (size == refs.length) {
+            refs = Arrays.copyOf(refs, 2 * size);
+            this.lbd = Arrays.copyOf(this.lbd, 2 * size);
+            activity = Arrays.copyOf(activity, 2 * size);
+        }
+        refs[size] = ref;
+        this.lbd[size] = Math.max(lbd, 1);
+        activity[size] = 0;
+        size++;
+        bytes += clauseBytes(ref);
+    }
+
+    /**
+     * Bump the activity of the learned clause ref, which took part in
+     * conflict analysis.
+     */
+    public void bump(int ref) {
+        int i = Arrays.binarySearch(refs, 0, size, ref);
+        if (i < 0)
+            return;
+        activity[i] += increment;
+        if (activity[i] > RESCALE_LIMIT) {
+            for (int j = 0; j < size; j++)
+                activity[j] /= RESCALE_LIMIT;
+            increment /= RESCALE_LIMIT;
+        }
+    }
+
+    /**
+     * Age all activities, after a conflict.
+     */
+    public void decay() {
+        increment /= DECAY;
+    }
+
+    /**
+     * @return number of learned clauses
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return approximate number of bytes taken by the learned clauses,
+     *         their watches included
+     */
+    public long memoryBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return true if there are enough learned clauses, or they take enough
+     *         memory, for reduce to be called
+     */
+    public boolean isReductionDue() {
+        return size >= nextReduction || bytes > memoryLimit;
+    }
+
+    /**
+     * Delete the less useful learned clauses, logging their deletion to
+     * proof if it is not null, and compact the arena. The references of all
+     * clauses of the arena, learned or not, may change; no watch is touched.
+     *
+     * @return number of clauses deleted
+     */
+    public int reduce(DratWriter proof) {
+        // indices of the clauses, best first
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            public int compare(Integer a, Integer b) {
+                if (lbd[a] != lbd[b])
+                    return lbd[a] < lbd[b] ? -1 : 1;
+                return Double.compare(activity[b], activity[a]);
+            }
+        });
+        int loose = 0;
+        for (int i = 0; i < size; i++)
+            if (lbd[i] > GLUE)
+                loose++;
+        // the worse half of the clauses that are not glue, then if the
+        // memory limit is exceeded the worst of the others until half the
+        // limit is reached; glue clauses sort first
+        boolean over = bytes > memoryLimit;
+        boolean[] delete = new boolean[size];
+        int deleted = 0;
+        for (int k = size - 1; k >= 0; k--) {
+            int i = order[k];
+            if (deleted >= loose / 2 && (!over || bytes <= memoryLimit / 2))
+                break;
+            delete[i] = true;
+            deleted++;
+            bytes -= clauseBytes(refs[i]);
+            int ref = refs[i];
+            if (proof != null)
+                proof.delete(arena.data(), ref + 1, ref + 1 + arena.size(ref));
+            arena.delete(ref);
+        }
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (delete[i])
+                continue;
+            refs[n] = refs[i];
+            lbd[n] = lbd[i];
+            activity[n] = activity[i];
+            n++;
+        }
+        size = n;
+        arena.compact(refs, size);
+        reductions++;
+        nextReduction = size + FIRST_INTERVAL + (long) INTERVAL_GROWTH * reductions;
+        return deleted;
+    }
+
+    /*
+     * @return memory taken by clause ref
+     */
+    private long clauseBytes(int ref) {
+        return 4L * (1 + arena.size(ref)) + OVERHEAD_BYTES;
+    }
+}
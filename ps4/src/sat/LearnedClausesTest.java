@@ -0,0 +1,135 @@
+package sat;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import sat.env.Bool;
+import sat.formula.ClauseArena;
+import sat.formula.PackedFormula;
+
+public class LearnedClausesTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void LearnedArenaCompactTest() {
+        ClauseArena arena = new ClauseArena();
+        int a = arena.add(new int[] { 0, 2, 4 }, 0, 3, 1);
+        int b = arena.add(1, 3);
+        int c = arena.add(new int[] { 5, 7 }, 0, 2, 1);
+        int d = arena.add(0, 9, 11, 13);
+        arena.delete(b);
+        arena.delete(d);
+        assertTrue(arena.isDeleted(b));
+        assertFalse(arena.isDeleted(c));
+        assertEquals(2, arena.numClauses());
+        assertEquals(3 + 5, arena.wasted());
+        // deleted clauses are still walked over until compact
+        assertEquals(13, arena.literal(d, 3));
+
+        int[] refs = { a, c };
+        arena.compact(refs, 2);
+        assertEquals(0, arena.wasted());
+        assertEquals(2, arena.numClauses());
+        assertEquals(a, refs[0]);
+        assertEquals(4, refs[1]);
+        assertEquals(7, arena.end());
+        assertEquals(refs[1], arena.next(refs[0]));
+        assertEquals(2, arena.size(refs[1]));
+        assertEquals(5, arena.literal(refs[1], 0));
+        assertEquals(7, arena.literal(refs[1], 1));
+        assertEquals(1, arena.flags(refs[1]));
+        assertFalse(arena.isDeleted(refs[1]));
+    }
+
+    @Test
+    public void LearnedReductionTest() {
+        // random 3-SAT at the threshold, hard enough for thousands of
+        // learned clauses; a small memory limit forces many reductions
+        Random random = new Random(3);
+        long limit = 64 * 1024;
+        int deleted = 0;
+        for (int t = 0; t < 6; t++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 160, 681);
+            Bool expected = new CDCLSolver(f).solve();
+            final CDCLSolver solver = new CDCLSolver(f,
+                    SolverConfig.DEFAULT.withLearnedMemoryLimit(limit));
+            final long[] most = new long[1];
+            SolverStatistics stats = new SolverStatistics();
+            stats.addListener(new SolverListener() {
+                public void progress(SolverStatistics statistics) {
+                    most[0] = Math.max(most[0], solver.learnedMemoryBytes());
+                }
+            });
+            solver.setStatistics(stats);
+            Bool result = solver.solve();
+            assertEquals(expected, result);
+            if (result == Bool.TRUE)
+                assertTrue(TestFormulas.satisfies(f, solver.model()));
+            // at a restart the learned clauses are within the limit, give or
+            // take the clauses learned since the last propagation
+            assertTrue(most[0] + " bytes", most[0] <= limit + 1024);
+            deleted += stats.getDeletedClauses();
+        }
+        assertTrue(deleted > 1000);
+    }
+
+    @Test
+    public void LearnedUnderLimitKeepsGlueTest() {
+        // a reduction due to the number of clauses, with the memory limit
+        // configured but not exceeded, deletes only the worse half of the
+        // clauses that are not glue
+        ClauseArena arena = new ClauseArena();
+        LearnedClauses learned = new LearnedClauses(arena, 150 * 1000);
+        int glue = 0;
+        for (int i = 0; learned.size() < 2000; i++) {
+            int ref = arena.add(new int[] { 6 * i, 6 * i + 2, 6 * i + 4 }, 0, 3, 1);
+            boolean isGlue = i % 10 != 0;
+            learned.add(ref, isGlue ? LearnedClauses.GLUE : LearnedClauses.GLUE + 3);
+            if (isGlue)
+                glue++;
+        }
+        assertTrue(learned.isReductionDue());
+        long before = learned.memoryBytes();
+        assertTrue(before > 75 * 1000 && before <= 150 * 1000);
+        assertEquals((2000 - glue) / 2, learned.reduce(null));
+        assertEquals(glue + (2000 - glue) / 2, learned.size());
+        assertEquals(learned.size(), arena.numClauses());
+    }
+
+    @Test
+    public void LearnedProofTest() throws IOException {
+        // deleted clauses are logged, and the proofs still check
+        Random random = new Random(9);
+        int refuted = 0;
+        for (int t = 0; t < 6; t++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 130, 553);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            DratWriter proof = new DratWriter(out);
+            CDCLSolver solver = new CDCLSolver(SolverConfig.DEFAULT.withLearnedMemoryLimit(32 * 1024));
+            solver.setProof(proof);
+            solver.addClauses(f);
+            Bool result = solver.solve();
+            proof.close();
+            if (result != Bool.FALSE)
+                continue;
+            refuted++;
+            assertTrue(proof.numDeleted() > 0);
+            DratChecker checker = new DratChecker(f);
+            assertTrue(checker.getError(), checker.check(new ByteArrayInputStream(out.toByteArray())));
+        }
+        assertTrue(refuted > 2);
+    }
+}
@@ -0,0 +1,132 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.formula.Formula;
+import sat.formula.PackedFormula;
+
+/**
+ * A parallel SAT solver that runs a portfolio of differently configured
+ * CDCL solvers on the same formula, one per thread, and takes the answer of
+ * whichever finishes first. The others are then interrupted.
+ *
+ * The formula is compiled once and only read by the solvers, each of which
+ * copies its clauses. If any configuration asks for preprocessing, the
+ * formula is simplified once by a Preprocessor before the solvers start,
+ * and all of them search the simplified formula; the winning model is then
+ * extended to the original. Optionally, the solvers share the short clauses
+ * they learn, so that each can prune its search with what the others found.
+ */
+public class PortfolioSolver {
+    /** Default largest size of a shared learned clause. */
+    public static final int DEFAULT_SHARE_SIZE = 8;
+
+    // result of a solver that proved the formula unsatisfiable; a solver
+    // that was interrupted returns null, and one that found a model the model
+    private static final boolean[] UNSATISFIABLE = new boolean[0];
+
+    private PortfolioSolver() {
+    }
+
+    /**
+     * Solve the problem with one solver per available processor, sharing
+     * learned clauses of up to DEFAULT_SHARE_SIZE literals.
+     *
+     * @return an environment for which the problem evaluates to Bool.TRUE, or
+     *         null if no such environment exists, as SATSolver.solve(formula)
+     */
+    public static Environment solve(Formula formula) {
+        return solve(formula.compile());
+    }
+
+    /**
+     * Solve a formula in packed form with one solver per available
+     * processor, sharing learned clauses of up to DEFAULT_SHARE_SIZE
+     * literals.
+     *
+     * @return as SATSolver.solve(formula)
+     */
+    public static Environment solve(PackedFormula formula) {
+        int n = Runtime.getRuntime().availableProcessors();
+        return solve(formula, SolverConfig.portfolio(n), DEFAULT_SHARE_SIZE);
+    }
+
+    /**
+     * Solve a formula in packed form with one solver per configuration, each
+     * in its own thread.
+     *
+     * @param configs
+     *            configurations of the solvers; requires at least one
+     * @param shareSize
+     *            solvers share learned clauses of at most this many literals;
+     *            0 to share none
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists or the calling thread is interrupted while
+     *         waiting
+     */
+    public static Environment solve(PackedFormula formula,
+            List<SolverConfig> configs, int shareSize) {
+        assert !configs.isEmpty() : "PortfolioSolver.solve: no configurations";
+        boolean preprocess = false;
+        for (SolverConfig config : configs)
+            preprocess |= config.isPreprocessing();
+        Preprocessor pre = null;
+        final PackedFormula input;
+        if (preprocess) {
+            pre = new Preprocessor(formula);
+            if (pre.isUnsatisfiable())
+                return null;
+            input = pre.getSimplified();
+        } else {
+            input = formula;
+        }
+        ClauseExchange exchange = shareSize > 0 ? new ClauseExchange(shareSize) : null;
+        List<CDCLSolver> solvers = new ArrayList<CDCLSolver>();
+        ExecutorService pool = Executors.newFixedThreadPool(configs.size());
+        CompletionService<boolean[]> done = new ExecutorCompletionService<boolean[]>(pool);
+        try {
+            for (SolverConfig config : configs) {
+                final CDCLSolver solver = new CDCLSolver(config);
+                if (exchange != null)
+                    solver.share(exchange, solvers.size());
+                solvers.add(solver);
+                done.submit(new Callable<boolean[]>() {
+                    public boolean[] call() {
+                        solver.addClauses(input);
+                        Bool result = solver.solve();
+                        if (result == Bool.TRUE)
+                            return solver.model();
+                        return result == Bool.FALSE ? UNSATISFIABLE : null;
+                    }
+                });
+            }
+            for (int i = 0; i < configs.size(); i++) {
+                boolean[] model = done.take().get();
+                if (model == UNSATISFIABLE)
+                    return null;
+                if (model != null)
+                    return formula.toEnvironment(pre == null ? model : pre.extend(model));
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            for (CDCLSolver solver : solvers)
+                solver.interrupt();
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package sat;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.formula.ClauseArena;
+import sat.formula.PackedFormula;
+
+public class PortfolioSolverTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void PortfolioAgreesWithSATSolverTest() {
+        // random 3-SAT near the threshold, both satisfiable and not
+        Random random = new Random(6005);
+        for (int round = 0; round < 20; round++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 50, 213);
+            boolean expected = SATSolver.solve(f) != null;
+            for (int share = 0; share <= PortfolioSolver.DEFAULT_SHARE_SIZE; share += PortfolioSolver.DEFAULT_SHARE_SIZE) {
+                Environment env = PortfolioSolver.solve(f, SolverConfig.portfolio(4), share);
+                assertEquals(expected, env != null);
+                if (env != null)
+                    assertSatisfies(f, env);
+            }
+        }
+    }
+
+    @Test
+    public void PortfolioConfigsTest() {
+        // every configuration on its own must still be correct
+        Random random = new Random(1);
+        for (SolverConfig config : SolverConfig.portfolio(6)) {
+            for (int round = 0; round < 10; round++) {
+                PackedFormula f = TestFormulas.random3Sat(random, 30, 128);
+                CDCLSolver solver = new CDCLSolver(f, config);
+                Bool result = solver.solve();
+                assertEquals(SATSolver.solve(f) != null, result == Bool.TRUE);
+                if (result == Bool.TRUE)
+                    assertSatisfies(f, f.toEnvironment(solver.model()));
+            }
+        }
+    }
+
+    @Test
+    public void ExchangeBoundedTest() {
+        // the log keeps only the last clauses published, and a reader that
+        // fell behind skips to the oldest of them
+        ClauseExchange exchange = new ClauseExchange(2, 16);
+        List<int[]> read = new ArrayList<int[]>();
+        long fast = 0;
+        for (int i = 0; i < 1000; i++) {
+            exchange.publish(i % 2, new int[] { 2 * i, 2 * i + 1 }, 2);
+            exchange.publish(0, new int[] { 0, 2, 4 }, 3);
+            if (i % 10 == 0)
+                fast = exchange.collect(2, fast, read);
+            assertTrue(exchange.size() <= 16);
+        }
+        assertEquals(16, exchange.size());
+        // the fast reader missed nothing
+        fast = exchange.collect(2, fast, read);
+        assertEquals(1000, read.size());
+        assertEquals(1000, fast);
+        // a slow reader gets only what is kept, less its own clauses
+        read.clear();
+        assertEquals(1000, exchange.collect(1, 0, read));
+        assertEquals(8, read.size());
+        assertEquals(2 * 984, read.get(0)[0]);
+        assertEquals(2 * 998 + 1, read.get(7)[1]);
+    }
+
+    @Test
+    public void CubeSolverAgreesWithSATSolverTest() {
+        Random random = new Random(9);
+        for (int round = 0; round < 20; round++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 50, 213);
+            boolean expected = SATSolver.solve(f) != null;
+            for (int depth = 0; depth <= 6; depth += 3) {
+                Environment env = CubeSolver.solve(f, 3, depth);
+                assertEquals(expected, env != null);
+                if (env != null)
+                    assertSatisfies(f, env);
+            }
+        }
+    }
+
+    @Test
+    public void PreprocessedTest() {
+        // formulas the preprocessor simplifies a lot, most of their
+        // variables eliminated or pure; models are extended to them all
+        Random random = new Random(12);
+        List<SolverConfig> plain = new ArrayList<SolverConfig>();
+        for (SolverConfig config : SolverConfig.portfolio(3))
+            plain.add(config.withPreprocessing(false));
+        for (int round = 0; round < 10; round++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 60, 120);
+            for (Environment env : new Environment[] {
+                    PortfolioSolver.solve(f, SolverConfig.portfolio(3), PortfolioSolver.DEFAULT_SHARE_SIZE),
+                    PortfolioSolver.solve(f, plain, PortfolioSolver.DEFAULT_SHARE_SIZE),
+                    CubeSolver.solve(f, 2, 3) }) {
+                assertNotNull(env);
+                assertSatisfies(f, env);
+            }
+        }
+        PackedFormula unsat = TestFormulas.pigeonhole(5, 4).compile();
+        assertNull(PortfolioSolver.solve(unsat, SolverConfig.portfolio(3), 0));
+        assertNull(CubeSolver.solve(unsat, 2, 3));
+    }
+
+    @Test
+    public void CubesCoverTest() {
+        // every model of the formula satisfies some cube
+        PackedFormula f = TestFormulas.random3Sat(new Random(4), 12, 40);
+        List<int[]> cubes = CubeSolver.cubes(f, 4);
+        for (int m = 0; m < (1 << 12); m++) {
+            CDCLSolver check = new CDCLSolver(f);
+            int[] assignment = new int[12];
+            for (int v = 0; v < 12; v++)
+                assignment[v] = PackedFormula.literal(v, ((m >> v) & 1) == 0);
+            if (check.solve(assignment) != Bool.TRUE)
+                continue;
+            boolean covered = false;
+            for (int[] cube : cubes) {
+                boolean all = true;
+                for (int lit : cube)
+                    if (assignment[PackedFormula.variable(lit)] != lit)
+                        all = false;
+                if (all)
+                    covered = true;
+            }
+            assertTrue(covered);
+        }
+    }
+
+    @Test
+    public void AssumptionsTest() {
+        // a | b, !a | b: b holds, so assuming !b fails and assuming a works
+        CDCLSolver solver = new CDCLSolver();
+        int a = PackedFormula.literal(0, false), b = PackedFormula.literal(1, false);
+        solver.addClause(a, b);
+        solver.addClause(a ^ 1, b);
+        assertEquals(Bool.FALSE, solver.solve(new int[] { b ^ 1 }));
+        assertEquals(Bool.TRUE, solver.solve(new int[] { a ^ 1 }));
+        assertFalse(solver.modelValue(0));
+        assertTrue(solver.modelValue(1));
+        assertEquals(Bool.TRUE, solver.solve());
+    }
+
+    @Test
+    public void HeuristicsTest() {
+        // both branching rules, with every polarity, agree with each other
+        Random random = new Random(3);
+        for (int round = 0; round < 10; round++) {
+            PackedFormula f = TestFormulas.random3Sat(random, 40, 170);
+            Bool expected = new CDCLSolver(f).solve();
+            for (SolverConfig.Heuristic h : SolverConfig.Heuristic.values()) {
+                for (SolverConfig.Polarity p : SolverConfig.Polarity.values()) {
+                    SolverConfig config = SolverConfig.DEFAULT.withHeuristic(h).withPolarity(p);
+                    CDCLSolver solver = new CDCLSolver(f, config);
+                    assertEquals(expected, solver.solve());
+                    if (expected == Bool.TRUE)
+                        assertSatisfies(f, f.toEnvironment(solver.model()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void InterruptTest() {
+        PackedFormula f = TestFormulas.random3Sat(new Random(2), 30, 128);
+        CDCLSolver solver = new CDCLSolver(f);
+        solver.interrupt();
+        assertEquals(Bool.UNDEFINED, solver.solve());
+    }
+
+    // check that every clause of f has a literal true in env
+    private static void assertSatisfies(PackedFormula f, Environment env) {
+        ClauseArena clauses = f.getClauses();
+        for (int ref = clauses.first(); ref != clauses.end(); ref = clauses.next(ref)) {
+            boolean sat = false;
+            for (int i = 0; i < clauses.size(ref); i++) {
+                int lit = clauses.literal(ref, i);
+                Bool value = env.get(f.getVariable(PackedFormula.variable(lit)));
+                if (value == (PackedFormula.isNegative(lit) ? Bool.FALSE : Bool.TRUE))
+                    sat = true;
+            }
+            assertTrue(sat);
+        }
+    }
+}
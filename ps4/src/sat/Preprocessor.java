@@ -0,0 +1,551 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import sat.formula.ClauseArena;
+import sat.formula.PackedFormula;
+
+/**
+ * Preprocessor simplifies a formula in packed form before search, keeping
+ * enough information to turn a model of the simplified formula back into a
+ * model of the original. It applies, until nothing changes:
+ *
+ *   unit propagation:     a unit clause fixes its literal, which satisfies
+ *                         the clauses containing it and is removed from the
+ *                         clauses containing its negation
+ *   pure literals:        a literal whose negation occurs nowhere is made
+ *                         true
+ *   subsumption:          a clause containing all the literals of another
+ *                         is removed
+ *   self-subsumption:     if C = A | x and D contains A and !x, then !x is
+ *                         removed from D (D resolved with C subsumes D)
+ *   variable elimination: a variable is replaced by all the non-tautological
+ *                         resolvents of its positive and negative clauses,
+ *                         if there are no more of them than clauses removed
+ *
+ * The simplified formula has the same variables as the original, so a
+ * solver's model of it can be passed directly to extend.
+ *
+ * The simplification may be logged to a DratWriter as the first part of a
+ * DRAT proof about the original formula. Strengthened clauses and
+ * resolvents follow by reverse unit propagation and are logged as added,
+ * and every clause removed is logged as deleted, so that a pure literal
+ * added as a unit has the RAT property, no clause left containing its
+ * negation.
+ */
+public class Preprocessor {
+    // variables with more occurrences than this are not eliminated
+    private static final int ELIMINATION_OCCURRENCES = 16;
+    // resolvents longer than this prevent elimination
+    private static final int RESOLVENT_LENGTH = 20;
+    private static final int MAX_ROUNDS = 8;
+
+    private final PackedFormula original;
+    private final int numVars;
+
+    // live clauses; null for removed ones. Each is sorted, without
+    // duplicate literals or tautologies, and has at least two literals.
+    private final List<int[]> clauses = new ArrayList<int[]>();
+    // occurs[lit] = indices of clauses that contained lit when it was
+    // listed; may also list clauses that no longer do
+    private final IntList[] occurs;
+
+    // values[lit]: 1 if lit is fixed true, -1 if false, 0 otherwise
+    private final byte[] values;
+    private final IntList units = new IntList();
+    private int unitHead = 0;
+    // eliminated[v]: v no longer occurs in the live clauses
+    private final boolean[] eliminated;
+    private boolean unsatisfiable = false;
+
+    // reconstruction stack: for each entry, a literal and the clauses that
+    // contained it when it was removed; see extend
+    private final IntList stackLits = new IntList();
+    private final List<int[][]> stackClauses = new ArrayList<int[][]>();
+
+    // scratch marks, indexed by literal
+    private final boolean[] mark;
+
+    // where the simplification is logged, or null
+    private final DratWriter proof;
+
+    /*
+     * Rep invariant:
+     *     every literal of a live clause is unfixed and not eliminated
+     *     every live clause index is in occurs[lit] for each of its literals
+     *     stackLits.size == stackClauses.size()
+     *
+     * Abstraction function:
+     *     the simplified formula is the conjunction of the live clauses and
+     *     of the units whose values are fixed; it is satisfiable iff original
+     *     is, and any model of it is extended to a model of original by
+     *     undoing the reconstruction stack from the top
+     */
+
+    /**
+     * Simplify formula, which is only read.
+     */
+    public Preprocessor(PackedFormula formula) {
+        this(formula, null);
+    }
+
+    /**
+     * Simplify formula, which is only read, logging the simplification to
+     * proof, if not null. The simplified formula is then the original with
+     * the clauses added to proof and without those deleted, less the unit
+     * clauses; if it is found unsatisfiable the empty clause is logged.
+     */
+    public Preprocessor(PackedFormula formula, DratWriter proof) {
+        this.proof = proof;
+        original = formula;
+        numVars = formula.numVariables();
+        occurs = new IntList[2 * numVars];
+        for (int l = 0; l < occurs.length; l++)
+            occurs[l] = new IntList();
+        values = new byte[2 * numVars];
+        eliminated = new boolean[numVars];
+        mark = new boolean[2 * numVars];
+
+        ClauseArena arena = formula.getClauses();
+        for (int ref = arena.first(); ref != arena.end() && !unsatisfiable; ref = arena.next(ref)) {
+            int[] c = new int[arena.size(ref)];
+            for (int i = 0; i < c.length; i++)
+                c[i] = arena.literal(ref, i);
+            int[] d = normalize(c.clone());
+            if (d == null || d.length < c.length) {
+                // satisfied, or with literals dropped: log the change
+                if (d != null)
+                    logAdd(d);
+                logDelete(c);
+            }
+            addClause(d);
+        }
+        simplify();
+    }
+
+    /**
+     * @return true if the original formula was found to be unsatisfiable
+     */
+    public boolean isUnsatisfiable() {
+        return unsatisfiable;
+    }
+
+    /**
+     * @return the simplified formula, over the variables of the original.
+     *         Requires !isUnsatisfiable().
+     */
+    public PackedFormula getSimplified() {
+        assert !unsatisfiable : "Preprocessor.getSimplified: unsatisfiable";
+        PackedFormula f = new PackedFormula();
+        for (int v = 0; v < numVars; v++)
+            f.addVariable(original.getVariable(v));
+        for (int[] c : clauses)
+            if (c != null)
+                f.addClause(c);
+        return f;
+    }
+
+    /**
+     * @param model
+     *            a model of getSimplified(): model[v] is the value of
+     *            variable v
+     * @return a model of the original formula that agrees with model on the
+     *         variables that are neither fixed nor eliminated
+     */
+    public boolean[] extend(boolean[] model) {
+        boolean[] m = Arrays.copyOf(model, numVars);
+        for (int e = stackClauses.size() - 1; e >= 0; e--) {
+            int lit = stackLits.get(e);
+            int v = lit >> 1;
+            // default to the opposite of lit, unless a clause needs lit
+            m[v] = (lit & 1) != 0;
+            for (int[] c : stackClauses.get(e)) {
+                boolean satisfied = false;
+                for (int q : c)
+                    if (q != lit && m[q >> 1] == ((q & 1) == 0))
+                        satisfied = true;
+                if (!satisfied) {
+                    m[v] = (lit & 1) == 0;
+                    break;
+                }
+            }
+        }
+        return m;
+    }
+
+    /**
+     * @return number of live clauses of the simplified formula
+     */
+    public int numClauses() {
+        int n = 0;
+        for (int[] c : clauses)
+            if (c != null)
+                n++;
+        return n;
+    }
+
+    /**
+     * @return number of variables fixed or eliminated
+     */
+    public int numRemovedVariables() {
+        return stackClauses.size();
+    }
+
+    private void simplify() {
+        boolean changed = true;
+        for (int round = 0; changed && round < MAX_ROUNDS && !unsatisfiable; round++) {
+            changed = false;
+            propagate();
+            changed |= pureLiterals();
+            changed |= subsume();
+            propagate();
+            changed |= eliminate();
+        }
+        propagate();
+    }
+
+    /*
+     * Sort c and remove duplicate literals and literals fixed false.
+     * @return the result, or null if c is a tautology or satisfied
+     */
+    private int[] normalize(int[] c) {
+        Arrays.sort(c);
+        int n = 0;
+        for (int i = 0; i < c.length; i++) {
+            int lit = c[i];
+            if (n > 0 && c[n - 1] == lit)
+                continue;
+            if (n > 0 && c[n - 1] == (lit ^ 1))
+                return null;
+            if (values[lit] > 0)
+                return null;
+            if (values[lit] < 0)
+                continue;
+            c[n++] = lit;
+        }
+        return Arrays.copyOf(c, n);
+    }
+
+    /*
+     * Add a normalized clause (or null, which is ignored).
+     */
+    private void addClause(int[] c) {
+        if (c == null)
+            return;
+        if (c.length == 0) {
+            unsatisfiable = true;
+            logAdd(c);
+        } else if (c.length == 1) {
+            fix(c[0]);
+        } else {
+            int ci = clauses.size();
+            clauses.add(c);
+            for (int lit : c)
+                occurs[lit].add(ci);
+        }
+    }
+
+    /*
+     * Make lit true and record it for reconstruction.
+     */
+    private void fix(int lit) {
+        if (values[lit] > 0)
+            return;
+        if (values[lit] < 0) {
+            unsatisfiable = true;
+            logAdd(new int[0]);
+            return;
+        }
+        values[lit] = 1;
+        values[lit ^ 1] = -1;
+        units.add(lit);
+        push(lit, new int[][] { { lit } });
+    }
+
+    private void push(int lit, int[][] saved) {
+        stackLits.add(lit);
+        stackClauses.add(saved);
+    }
+
+    /*
+     * Unit propagation to fixpoint.
+     */
+    private void propagate() {
+        while (unitHead < units.size() && !unsatisfiable) {
+            int lit = units.get(unitHead++);
+            IntList pos = occurs[lit];
+            for (int i = 0; i < pos.size(); i++) {
+                int ci = pos.get(i);
+                if (contains(ci, lit))
+                    remove(ci);
+            }
+            pos.clear();
+            IntList neg = occurs[lit ^ 1];
+            for (int i = 0; i < neg.size() && !unsatisfiable; i++) {
+                int ci = neg.get(i);
+                if (contains(ci, lit ^ 1))
+                    strengthen(ci, lit ^ 1);
+            }
+            neg.clear();
+        }
+    }
+
+    /*
+     * Remove literal lit from live clause ci, which contains it.
+     */
+    private void strengthen(int ci, int lit) {
+        int[] c = clauses.get(ci);
+        int[] d = new int[c.length - 1];
+        int n = 0;
+        for (int q : c)
+            if (q != lit)
+                d[n++] = q;
+        logAdd(d);
+        logDelete(c);
+        if (d.length == 1) {
+            clauses.set(ci, null);
+            fix(d[0]);
+        } else {
+            clauses.set(ci, d);
+        }
+    }
+
+    /*
+     * Remove live clause ci.
+     */
+    private void remove(int ci) {
+        logDelete(clauses.get(ci));
+        clauses.set(ci, null);
+    }
+
+    private void logAdd(int[] c) {
+        if (proof != null)
+            proof.add(c, 0, c.length);
+    }
+
+    private void logDelete(int[] c) {
+        if (proof != null)
+            proof.delete(c, 0, c.length);
+    }
+
+    private boolean contains(int ci, int lit) {
+        int[] c = clauses.get(ci);
+        if (c == null)
+            return false;
+        return Arrays.binarySearch(c, lit) >= 0;
+    }
+
+    /*
+     * Drop the entries of occurs[lit] that no longer contain lit.
+     * @return the number of live clauses containing lit
+     */
+    private int count(int lit) {
+        IntList occ = occurs[lit];
+        int j = 0;
+        for (int i = 0; i < occ.size(); i++) {
+            int ci = occ.get(i);
+            if (contains(ci, lit))
+                occ.set(j++, ci);
+        }
+        occ.truncate(j);
+        return j;
+    }
+
+    /*
+     * Fix every pure literal.
+     * @return true if any was found
+     */
+    private boolean pureLiterals() {
+        boolean changed = false;
+        for (int v = 0; v < numVars; v++) {
+            if (eliminated[v] || values[2 * v] != 0)
+                continue;
+            int p = count(2 * v), n = count(2 * v + 1);
+            if (p == 0 && n == 0)
+                continue;
+            if (p == 0 || n == 0) {
+                int pure = n == 0 ? 2 * v : 2 * v + 1;
+                // satisfies and removes the clauses containing it
+                logAdd(new int[] { pure });
+                fix(pure);
+                propagate();
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /*
+     * Subsumption and self-subsumption with every live clause.
+     * @return true if any clause was removed or strengthened
+     */
+    private boolean subsume() {
+        boolean changed = false;
+        for (int ci = 0; ci < clauses.size() && !unsatisfiable; ci++) {
+            int[] c = clauses.get(ci);
+            if (c == null)
+                continue;
+            // candidates contain the literal of c with fewest occurrences,
+            // or its negation
+            int best = c[0];
+            int bestCount = Integer.MAX_VALUE;
+            for (int lit : c) {
+                int k = count(lit) + count(lit ^ 1);
+                if (k < bestCount) {
+                    best = lit;
+                    bestCount = k;
+                }
+            }
+            for (int lit : c)
+                mark[lit] = true;
+            for (int side = 0; side < 2; side++) {
+                IntList occ = occurs[best ^ side];
+                for (int i = 0; i < occ.size(); i++) {
+                    int di = occ.get(i);
+                    if (di == ci || clauses.get(ci) != c)
+                        continue;
+                    int[] d = clauses.get(di);
+                    if (d == null || d.length < c.length)
+                        continue;
+                    // count literals of c in d, and note one flipped literal
+                    int same = 0, flipped = -1, flips = 0;
+                    for (int q : d) {
+                        if (mark[q])
+                            same++;
+                        else if (mark[q ^ 1]) {
+                            flipped = q;
+                            flips++;
+                        }
+                    }
+                    if (same == c.length) {
+                        remove(di);
+                        changed = true;
+                    } else if (flips == 1 && same == c.length - 1) {
+                        strengthen(di, flipped);
+                        changed = true;
+                    }
+                }
+            }
+            for (int lit : c)
+                mark[lit] = false;
+        }
+        propagate();
+        return changed;
+    }
+
+    /*
+     * Bounded variable elimination over all variables.
+     * @return true if any variable was eliminated
+     */
+    private boolean eliminate() {
+        boolean changed = false;
+        for (int v = 0; v < numVars && !unsatisfiable; v++) {
+            if (eliminated[v] || values[2 * v] != 0)
+                continue;
+            int p = count(2 * v), n = count(2 * v + 1);
+            if (p == 0 || n == 0 || p + n > ELIMINATION_OCCURRENCES)
+                continue;
+            List<int[]> resolvents = new ArrayList<int[]>();
+            boolean ok = true;
+            IntList pos = occurs[2 * v], neg = occurs[2 * v + 1];
+            for (int i = 0; ok && i < pos.size(); i++) {
+                for (int j = 0; ok && j < neg.size(); j++) {
+                    int[] r = resolve(clauses.get(pos.get(i)), clauses.get(neg.get(j)), v);
+                    if (r == null)
+                        continue;
+                    if (r.length > RESOLVENT_LENGTH || resolvents.size() >= p + n)
+                        ok = false;
+                    resolvents.add(r);
+                }
+            }
+            if (!ok)
+                continue;
+            // the resolvents are logged before the clauses they replace
+            // are deleted, so that they follow from them
+            for (int k = 0; k < resolvents.size(); k++) {
+                int[] r = normalize(resolvents.get(k));
+                resolvents.set(k, r);
+                if (r != null)
+                    logAdd(r);
+            }
+            // save the positive clauses for reconstruction, remove all
+            int[][] saved = new int[p][];
+            for (int i = 0; i < p; i++) {
+                saved[i] = clauses.get(pos.get(i));
+                remove(pos.get(i));
+            }
+            for (int j = 0; j < n; j++)
+                remove(neg.get(j));
+            pos.clear();
+            neg.clear();
+            eliminated[v] = true;
+            push(2 * v, saved);
+            for (int[] r : resolvents)
+                addClause(r);
+            changed = true;
+            propagate();
+        }
+        return changed;
+    }
+
+    /*
+     * @return the resolvent of c (containing v) and d (containing !v) on v,
+     *         or null if it is a tautology
+     */
+    private int[] resolve(int[] c, int[] d, int v) {
+        int[] r = new int[c.length + d.length - 2];
+        int n = 0;
+        for (int q : c)
+            if (q >> 1 != v)
+                r[n++] = q;
+        for (int q : d)
+            if (q >> 1 != v)
+                r[n++] = q;
+        Arrays.sort(r, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m > 0 && r[m - 1] == r[i])
+                continue;
+            if (m > 0 && r[m - 1] == (r[i] ^ 1))
+                return null;
+            r[m++] = r[i];
+        }
+        return Arrays.copyOf(r, m);
+    }
+
+    /*
+     * Growable list of ints.
+     */
+    private static class IntList {
+        private int[] items = new int[4];
+        private int size = 0;
+
+        void add(int x) {
+            if (size == items.length)
+                items = Arrays.copyOf(items, 2 * size);
+            items[size++] = x;
+        }
+
+        int get(int i) {
+            return items[i];
+        }
+
+        void set(int i, int x) {
+            items[i] = x;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void truncate(int n) {
+            size = n;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
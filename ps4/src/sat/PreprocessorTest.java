@@ -0,0 +1,73 @@
+package sat;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import sat.env.Bool;
+import sat.env.Variable;
+import sat.formula.ClauseArena;
+import sat.formula.PackedFormula;
+import sudoku.Sudoku;
+import sudoku.Sudoku.ParseException;
+
+public class PreprocessorTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void PreprocessorRandomTest() {
+        // short random clauses over few variables, so that every technique
+        // gets used; the extended model must satisfy the original formula
+        Random random = new Random(12);
+        for (int round = 0; round < 500; round++) {
+            int vars = 2 + random.nextInt(10);
+            PackedFormula f = new PackedFormula();
+            for (int v = 0; v < vars; v++)
+                f.addVariable(new Variable("p" + v));
+            int clauses = random.nextInt(4 * vars);
+            for (int c = 0; c < clauses; c++) {
+                int[] lits = new int[1 + random.nextInt(3)];
+                for (int i = 0; i < lits.length; i++)
+                    lits[i] = PackedFormula.literal(random.nextInt(vars), random.nextBoolean());
+                f.addClause(lits);
+            }
+            CDCLSolver plain = new CDCLSolver(f);
+            boolean expected = plain.solve() == Bool.TRUE;
+
+            Preprocessor pre = new Preprocessor(f);
+            if (pre.isUnsatisfiable()) {
+                assertFalse(expected);
+                continue;
+            }
+            CDCLSolver solver = new CDCLSolver(pre.getSimplified());
+            boolean actual = solver.solve() == Bool.TRUE;
+            assertEquals(expected, actual);
+            if (actual)
+                assertTrue(TestFormulas.satisfies(f, pre.extend(solver.model())));
+        }
+    }
+
+    @Test
+    public void PreprocessorSudokuTest() throws IOException, ParseException {
+        // the givens propagate through the rules, leaving far fewer clauses
+        Sudoku sudoku = Sudoku.fromFile(3, "samples" + File.separator + "sudoku_hard.txt");
+        PackedFormula f = sudoku.getPackedProblem();
+        Preprocessor pre = new Preprocessor(f);
+        assertFalse(pre.isUnsatisfiable());
+        assertTrue(pre.numClauses() < f.numClauses() / 4);
+        CDCLSolver solver = new CDCLSolver(pre.getSimplified());
+        assertEquals(Bool.TRUE, solver.solve());
+        assertTrue(TestFormulas.satisfies(f, pre.extend(solver.model())));
+    }
+}
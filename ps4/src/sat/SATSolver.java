@@ -1,127 +1,118 @@
 package sat;
 
-import immutable.EmptyImList;
-import immutable.ImList;
 import sat.env.Bool;
 import sat.env.Environment;
-import sat.env.Variable;
-import sat.formula.Clause;
 import sat.formula.Formula;
-import sat.formula.Literal;
-import sat.formula.NegLiteral;
-import sat.formula.PosLiteral;
+import sat.formula.PackedFormula;
 
 /**
- * A simple DPLL SAT solver. See http://en.wikipedia.org/wiki/DPLL_algorithm
+ * A SAT solver for formulas in conjunctive normal form.
  *
- * Algorithm DPLL
- * 		Input: A set of clauses .
- *		Output: A Truth Value.
- * 	
- * function DPLL()
- *  if  is a consistent set of literals
- *      then return true;
- *  if  contains an empty clause
- *      then return false;
- *  for every unit clause l in 
- *       unit-propagate(l, );
- *  for every literal l that occurs pure in 
- *       pure-literal-assign(l, );
- *  l  choose-literal();
- *  return DPLL(  l) or DPLL(  not(l));
- * */
+ * The search is done by CDCLSolver, a conflict-driven clause learning engine
+ * with watched literals, learned clauses, non-chronological backjumping and
+ * restarts. A Formula is first compiled into a PackedFormula, whose integer
+ * literals the solver works on directly, and simplified by a Preprocessor;
+ * the solution is translated back into an Environment. An answer of
+ * unsatisfiable can be certified by a DRAT proof, checked by DratChecker.
+ */
 public class SATSolver {
     /**
-     * Solve the problem using a simple version of DPLL with backtracking and
-     * unit propagation. The returned environment binds literals of class
-     * bool.Variable rather than the special literals used in clausification of
-     * class clausal.Literal, so that clients can more readily use it.
-     * 
+     * Solve the problem using conflict-driven clause learning. The returned
+     * environment binds literals of class bool.Variable rather than the
+     * special literals used in clausification of class clausal.Literal, so
+     * that clients can more readily use it.
+     *
      * @return an environment for which the problem evaluates to Bool.TRUE, or
-     *         null if no such environment exists.
+     *         null if no such environment exists. Every variable of the
+     *         problem is bound in the environment.
      */
     public static Environment solve(Formula formula) {
-    	ImList<Clause> clauses = formula.getClauses();
-		return solve (clauses, new Environment());
+        return solve(formula.compile());
     }
 
     /**
-     * Takes a partial assignment of variables to values, and recursively
-     * searches for a complete satisfying assignment.
+     * Solve a formula in packed form.
      * 
-     * @param clauses
-     *            formula in conjunctive normal form
-     * @param env
-     *            assignment of some or all variables in clauses to true or
-     *            false values.
-     * @return an environment for which all the clauses evaluate to Bool.TRUE,
-     *         or null if no such environment exists.
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists.
      */
-    private static Environment solve(ImList<Clause> clauses, Environment env) {
-    	if (clauses.isEmpty()) { // no clauses, trivially satisfiable
-        	return env;
-        } else {
-        	Clause sc = null;
-        	for (Clause c : clauses) {
-        		if (c.isEmpty()) {
-        			// contains empty clause, unsatisfiable, fail and backtrack
-        			return null;
-        		}
-        		// find the smallest clause (by number of literals)
-        		if ((sc == null) || (c.size() < sc.size())) {
-        			sc = c;
-        		}
-        	}
-        	Literal l = sc.chooseLiteral();
-        	Variable var = l.getVariable();
-        	if (sc.isUnit()) { // encounter a unit clause, apply unit propagation
-        		// bind the literal's variable in the environment so that
-        		// the clause is satisfied
-        		if (l.equals(PosLiteral.make(l.getVariable()))) {
-        			env = env.put(var, Bool.TRUE);
-        		} else {
-        			env = env.put(var, Bool.FALSE);
-        		}
-        		return solve(substitute(clauses, l), env);
-        	} else { // pick an arbitrary literal from this small clause
-        		if (l.equals(NegLiteral.make(l.getVariable()))) {
-        			l = l.getNegation();
-        		}
-        		// try setting the literal to TRUE, substitute, then
-        		// solve() recursively
-        		Environment posTrial = solve(substitute(clauses, l), env.put(var, Bool.TRUE));
-        		if (posTrial != null) { // the trial succeeds
-        			return posTrial;
-        		} else {
-        			// the trial fails, then try setting the literal to FALSE,
-        			// substitute, and solve recursively
-        			l = l.getNegation();
-        			return solve(substitute(clauses, l), env.put(var, Bool.FALSE));
-        		}
-        	}
-        }
+    public static Environment solve(PackedFormula formula) {
+        return solve(formula, SolverConfig.DEFAULT);
     }
 
     /**
-     * given a clause list and literal, produce a new list resulting from
-     * setting that literal to true
+     * Solve a formula in packed form, searching according to config.
      * 
-     * @param clauses
-     *            , a list of clauses
-     * @param l
-     *            , a literal to set to true
-     * @return a new list of clauses resulting from setting l to true
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists.
      */
-    private static ImList<Clause> substitute(ImList<Clause> clauses,
-            Literal l) {
-    	ImList<Clause> reducedClauses = new EmptyImList<Clause>();
-        for (Clause c : clauses) {
-        	Clause rc = c.reduce(l);
-        	if (rc != null) {
-        		reducedClauses = reducedClauses.add(rc);
-        	}
-        }
-        return reducedClauses;
+    public static Environment solve(PackedFormula formula, SolverConfig config) {
+        return solve(formula, config, new SolverStatistics());
+    }
+
+    /**
+     * Solve a formula in packed form, searching according to config and
+     * reporting progress to statistics, which may be watched from other
+     * threads meanwhile.
+     * 
+     * @param statistics
+     *            statistics no other solver is reporting to
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists.
+     */
+    public static Environment solve(PackedFormula formula, SolverConfig config,
+            SolverStatistics statistics) {
+        return solve(formula, config, statistics, null);
     }
 
+    /**
+     * Solve a formula in packed form, logging a DRAT proof to proof, which
+     * is left open.
+     *
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists, in which case proof ends with the empty
+     *         clause and refutes formula as written by Dimacs.write
+     */
+    public static Environment solve(PackedFormula formula, DratWriter proof) {
+        return solve(formula, SolverConfig.DEFAULT, new SolverStatistics(), proof);
+    }
+
+    /**
+     * Solve a formula in packed form, searching according to config,
+     * reporting progress to statistics and logging a DRAT proof to proof,
+     * if not null, which is left open.
+     *
+     * @param statistics
+     *            statistics no other solver is reporting to
+     * @return an environment binding every variable of the formula, for
+     *         which the formula evaluates to Bool.TRUE, or null if no such
+     *         environment exists, in which case proof ends with the empty
+     *         clause and refutes formula as written by Dimacs.write
+     */
+    public static Environment solve(PackedFormula formula, SolverConfig config,
+            SolverStatistics statistics, DratWriter proof) {
+        if (!config.isPreprocessing()) {
+            CDCLSolver solver = new CDCLSolver(config);
+            solver.setStatistics(statistics);
+            solver.setProof(proof);
+            solver.addClauses(formula);
+            if (solver.solve() != Bool.TRUE)
+                return null;
+            return formula.toEnvironment(solver.model());
+        }
+        Preprocessor pre = new Preprocessor(formula, proof);
+        if (pre.isUnsatisfiable())
+            return null;
+        CDCLSolver solver = new CDCLSolver(config);
+        solver.setStatistics(statistics);
+        solver.setProof(proof);
+        solver.addClauses(pre.getSimplified());
+        if (solver.solve() != Bool.TRUE)
+            return null;
+        return formula.toEnvironment(pre.extend(solver.model()));
+    }
 }
@@ -2,13 +2,22 @@ package sat;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Test;
 
 import sat.env.Bool;
 import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.AtMostOne;
+import sat.formula.Clausification;
 import sat.formula.Clause;
 import sat.formula.Formula;
 import sat.formula.Literal;
+import sat.formula.PackedFormula;
 import sat.formula.PosLiteral;
 
 public class SATSolverTest {
@@ -66,6 +75,163 @@ public class SATSolverTest {
     	assertEquals(env.get(c.getVariable()), Bool.TRUE);
     }
     
+    @Test
+    public void SATPigeonholeTest() {
+        // n+1 pigeons in n holes is unsatisfiable, and no single lucky
+        // branch shows it; n pigeons in n holes is satisfiable
+        assertNull(SATSolver.solve(TestFormulas.pigeonhole(5, 4)));
+
+        Environment env = SATSolver.solve(TestFormulas.pigeonhole(4, 4));
+        for (int p = 0; p < 4; p++) {
+            int count = 0;
+            for (int h = 0; h < 4; h++)
+                if (env.get(PosLiteral.make("in" + p + "_" + h).getVariable()) == Bool.TRUE)
+                    count++;
+            assertTrue(count >= 1);
+        }
+    }
+
+    @Test
+    public void SATAtMostOneTest() {
+        // with x_0..x_{n-1} fixed to each assignment, every encoding must be
+        // satisfiable exactly when at most one x_i is true
+        for (AtMostOne amo : AtMostOne.values()) {
+            for (int n = 1; n <= 8; n++) {
+                for (int mask = 0; mask < (1 << n); mask++) {
+                    PackedFormula f = new PackedFormula();
+                    int[] x = new int[n];
+                    for (int i = 0; i < n; i++)
+                        x[i] = PackedFormula.literal(f.addVariable(new Variable("x" + i)), false);
+                    amo.encode(f, x, n);
+                    for (int i = 0; i < n; i++)
+                        f.addClause(((mask >> i) & 1) != 0 ? x[i] : x[i] ^ 1);
+                    boolean expected = Integer.bitCount(mask) <= 1;
+                    assertEquals(amo + " n=" + n + " mask=" + mask,
+                            expected, SATSolver.solve(f) != null);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void SATDefinitionalTest() {
+        // definitional or and not agree with the truth table of the formula
+        // they build, once the auxiliary variables are solved for
+        Literal[] vars = { a, b, c, PosLiteral.make("d") };
+        Random random = new Random(5);
+        for (int round = 0; round < 300; round++) {
+            boolean[] truth = new boolean[1 << vars.length];
+            Formula f = randomFormula(random, vars, 4, truth);
+            IncrementalSolver solver = new IncrementalSolver();
+            solver.addFormula(f);
+            for (int m = 0; m < truth.length; m++) {
+                List<Literal> assignment = new ArrayList<Literal>();
+                for (int i = 0; i < vars.length; i++)
+                    assignment.add(((m >> i) & 1) != 0 ? vars[i] : vars[i].getNegation());
+                assertEquals("round " + round + " assignment " + m,
+                        truth[m] ? Bool.TRUE : Bool.FALSE, solver.solve(assignment));
+            }
+        }
+
+        // (x0 & y0 & z0) | ... | (x11 & y11 & z11) distributes into 3^12
+        // clauses, but takes a clause per operand and one more per or here
+        Formula f = new Formula();
+        for (int i = 0; i < 12; i++) {
+            Formula conj = makeFormula(new Clause(PosLiteral.make("x" + i)),
+                    new Clause(PosLiteral.make("y" + i)), new Clause(PosLiteral.make("z" + i)));
+            f = i == 0 ? conj : f.or(conj, Clausification.DEFINITIONAL);
+        }
+        assertTrue(f.getSize() < 12 * 5);
+        Environment env = SATSolver.solve(f.and(new Formula(new Clause(PosLiteral.make("x3").getNegation()))));
+        assertNotNull(env);
+        assertEquals(Bool.FALSE, env.get(new Variable("x3")));
+        // solutions leave out the auxiliary variables aux#1, aux#2, ...
+        for (int k = 1; k <= 10000; k++)
+            assertEquals(Bool.UNDEFINED, env.get(new Variable("aux#" + k)));
+    }
+
+    @Test
+    public void SATAuxiliaryNameTest() {
+        // ((x & y) | (z & w)) & !x & !y, and true client variables named
+        // like the auxiliary variables of the or, is satisfied by z = w =
+        // true: the client's aux#k is a variable of its own
+        Literal x = PosLiteral.make("x"), y = PosLiteral.make("y");
+        Literal z = PosLiteral.make("z"), w = PosLiteral.make("w");
+        Formula or = makeFormula(new Clause(x), new Clause(y)).or(
+                makeFormula(new Clause(z), new Clause(w)), Clausification.DEFINITIONAL);
+        Formula f = or.and(makeFormula(new Clause(x.getNegation()), new Clause(y.getNegation())));
+        List<Variable> namesakes = new ArrayList<Variable>();
+        namesakes.add(new Variable("aux#1"));
+        for (Clause clause : or.getClauses()) {
+            for (Literal l : clause) {
+                Variable v = l.getVariable();
+                if (!Formula.isAuxiliary(v))
+                    continue;
+                Variable namesake = new Variable(v.getName());
+                assertFalse(v.equals(namesake));
+                assertFalse(namesake.equals(v));
+                assertFalse(Formula.isAuxiliary(namesake));
+                namesakes.add(namesake);
+            }
+        }
+        assertTrue(namesakes.size() > 1);
+        for (Variable v : namesakes)
+            f = f.addClause(new Clause(PosLiteral.make(v)));
+        Environment env = SATSolver.solve(f);
+        assertNotNull(env);
+        assertEquals(Bool.TRUE, env.get(z.getVariable()));
+        assertEquals(Bool.TRUE, env.get(w.getVariable()));
+        for (Variable v : namesakes)
+            assertEquals(Bool.TRUE, env.get(v));
+    }
+
+    // Helper function making a random formula over vars with the
+    // definitional connectives, nested at most depth deep.
+    // @param truth   set to the value of the formula under each assignment
+    //                m of vars, in which vars[i] is true iff bit i of m is
+    private Formula randomFormula(Random random, Literal[] vars, int depth, boolean[] truth) {
+        if (depth == 0 || random.nextInt(3) == 0) {
+            Formula f = new Formula();
+            Arrays.fill(truth, true);
+            for (int k = random.nextInt(3); k >= 0; k--) {
+                Clause clause = new Clause();
+                for (int j = random.nextInt(3); j >= 0; j--) {
+                    Literal l = vars[random.nextInt(vars.length)];
+                    Clause more = clause.add(random.nextBoolean() ? l : l.getNegation());
+                    if (more != null)
+                        clause = more;
+                }
+                f = f.addClause(clause);
+                for (int m = 0; m < truth.length; m++) {
+                    boolean holds = false;
+                    for (int i = 0; i < vars.length; i++)
+                        holds |= clause.contains(((m >> i) & 1) != 0 ? vars[i] : vars[i].getNegation());
+                    truth[m] &= holds;
+                }
+            }
+            return f;
+        }
+        boolean[] left = new boolean[truth.length];
+        boolean[] right = new boolean[truth.length];
+        Formula f = randomFormula(random, vars, depth - 1, left);
+        switch (random.nextInt(3)) {
+        case 0:
+            for (int m = 0; m < truth.length; m++)
+                truth[m] = !left[m];
+            return f.not(Clausification.DEFINITIONAL);
+        case 1:
+            Formula g = randomFormula(random, vars, depth - 1, right);
+            for (int m = 0; m < truth.length; m++)
+                truth[m] = left[m] || right[m];
+            return f.or(g, Clausification.DEFINITIONAL);
+        default:
+            Formula h = randomFormula(random, vars, depth - 1, right);
+            for (int m = 0; m < truth.length; m++)
+                truth[m] = left[m] && right[m];
+            return f.and(h);
+        }
+    }
+
     // Helper function for constructing a formula.  Takes
     // a variable number of arguments, e.g.
     // makeFormula(a, b, c) will make the formula (a and b and c)
@@ -0,0 +1,64 @@
+package sat;
+
+import sat.formula.ClauseArena;
+
+/**
+ * The branching rule of the original DPLL solver: decide the first
+ * unassigned variable of an unsatisfied problem clause with the fewest
+ * unassigned literals. Every decision scans all the problem clauses, so this
+ * is kept mainly for comparison with VSIDSHeuristic.
+ */
+class ShortestClauseHeuristic implements BranchingHeuristic {
+    private final ClauseArena arena;
+
+    /**
+     * Create a heuristic over the clauses in arena; clauses flagged
+     * CDCLSolver.LEARNT are ignored.
+     */
+    public ShortestClauseHeuristic(ClauseArena arena) {
+        this.arena = arena;
+    }
+
+    public void ensureVariables(int n) {
+    }
+
+    public void bump(int v) {
+    }
+
+    public void decay() {
+    }
+
+    public void unassigned(int v) {
+    }
+
+    public int pickVariable(byte[] values) {
+        int[] data = arena.data();
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int ref = arena.first(); ref != arena.end(); ref = arena.next(ref)) {
+            if (arena.flags(ref) == CDCLSolver.LEARNT)
+                continue;
+            int count = 0;
+            int first = -1;
+            boolean satisfied = false;
+            int end = ref + 1 + arena.size(ref);
+            for (int k = ref + 1; k < end; k++) {
+                int lit = data[k];
+                if (values[lit] == CDCLSolver.TRUE) {
+                    satisfied = true;
+                    break;
+                }
+                if (values[lit] == CDCLSolver.UNASSIGNED) {
+                    if (first < 0)
+                        first = lit;
+                    count++;
+                }
+            }
+            if (!satisfied && count < bestCount) {
+                best = first;
+                bestCount = count;
+            }
+        }
+        return best < 0 ? -1 : best >> 1;
+    }
+}
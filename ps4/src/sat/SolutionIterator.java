@@ -0,0 +1,165 @@
+package sat;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.env.Variable;
+
+/**
+ * Iterates over the solutions of an IncrementalSolver, as returned by
+ * IncrementalSolver.solutions. Each call to hasNext that has no solution in
+ * hand runs the solver once; after each solution found, a blocking clause
+ * ruling out its assignment of the projected variables is added to the
+ * solver.
+ *
+ * The blocking clauses all contain the negation of an activation variable
+ * that is assumed true by every search of the enumeration. When the
+ * enumeration ends, the activation variable is set false for good, which
+ * satisfies the blocking clauses; an iterator dropped before then leaves its
+ * activation variable free, which the solver may also set false. Either way
+ * the blocking clauses never constrain later searches.
+ */
+public class SolutionIterator implements Iterator<Environment> {
+    private final IncrementalSolver solver;
+    // solver literals assumed by every search; the last is the activation
+    // literal
+    private final int[] assumptions;
+    // vars.get(i) is the projected variable with solver literal lits[i]
+    private final List<Variable> vars;
+    private final int[] lits;
+    // largest number of solutions to return, or IncrementalSolver.NO_LIMIT
+    private final long limit;
+    // room for a blocking clause
+    private final int[] block;
+
+    // solution found and not yet returned by next, or null
+    private Environment pending = null;
+    // number of solutions found so far
+    private long found = 0;
+    // result of the last search, or null before the first
+    private Bool last = null;
+    private boolean done = false;
+
+    /*
+     * Rep invariant:
+     *     vars.size() == lits.length, block.length == lits.length + 1
+     *     limit >= 0 or limit == NO_LIMIT
+     *     if limit != NO_LIMIT, found <= limit
+     *     pending != null implies !done
+     *
+     * Abstraction function:
+     *     represents pending (if any) followed by the solutions of the
+     *     solver not yet found, as long as fewer than limit have been found
+     *     in all; none if done
+     */
+
+    private void checkRep() {
+        assert vars.size() == lits.length && block.length == lits.length + 1 : "SolutionIterator, Rep invariant: lits";
+        assert limit == IncrementalSolver.NO_LIMIT || (limit >= 0 && found <= limit) : "SolutionIterator, Rep invariant: limit";
+        assert pending == null || !done : "SolutionIterator, Rep invariant: pending";
+    }
+
+    /*
+     * Make an iterator over the solutions of solver under assumptions,
+     * projected onto vars.
+     */
+    SolutionIterator(IncrementalSolver solver, int[] assumptions, List<Variable> vars,
+            int[] lits, long limit) {
+        this.solver = solver;
+        this.assumptions = assumptions;
+        this.vars = vars;
+        this.lits = lits;
+        this.limit = limit;
+        this.block = new int[lits.length + 1];
+        checkRep();
+    }
+
+    /**
+     * Search for the next solution, unless one has been found already and
+     * not yet returned by next.
+     *
+     * @return true if there is another solution
+     */
+    public boolean hasNext() {
+        if (pending != null)
+            return true;
+        if (done)
+            return false;
+        if (limit != IncrementalSolver.NO_LIMIT && found == limit) {
+            finish();
+            return false;
+        }
+        last = solver.solve(assumptions);
+        if (last != Bool.TRUE) {
+            finish();
+            return false;
+        }
+        Environment.Builder env = new Environment.Builder();
+        int n = 0;
+        block[n++] = assumptions[assumptions.length - 1] ^ 1;
+        for (int i = 0; i < lits.length; i++) {
+            boolean value = solver.modelValue(lits[i]);
+            env.put(vars.get(i), value ? Bool.TRUE : Bool.FALSE);
+            block[n++] = value ? lits[i] ^ 1 : lits[i];
+        }
+        solver.addClause(block, n);
+        pending = env.build();
+        found++;
+        checkRep();
+        return true;
+    }
+
+    /**
+     * @return the next solution, an environment binding exactly the
+     *         projected variables
+     * @throws NoSuchElementException
+     *             if there are no more solutions
+     */
+    public Environment next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        Environment env = pending;
+        pending = null;
+        return env;
+    }
+
+    /**
+     * Unsupported.
+     *
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    public void remove() {
+        throw new UnsupportedOperationException("SolutionIterator.remove");
+    }
+
+    /**
+     * @return number of solutions found so far
+     */
+    public long count() {
+        return found;
+    }
+
+    /**
+     * @return true if hasNext has returned false because every solution has
+     *         been found; false while the enumeration goes on, or if it was
+     *         cut short by the limit on solutions or by a conflict or time
+     *         limit or interrupt of the solver
+     */
+    public boolean isComplete() {
+        return done && last == Bool.FALSE;
+    }
+
+    /*
+     * End the enumeration, switching its blocking clauses off.
+     */
+    private void finish() {
+        done = true;
+        block[0] = assumptions[assumptions.length - 1] ^ 1;
+        solver.addClause(block, 1);
+        checkRep();
+    }
+}
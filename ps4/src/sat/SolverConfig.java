@@ -0,0 +1,244 @@
+package sat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SolverConfig is an immutable set of search parameters for the CDCL
+ * solver. Differently configured solvers explore the search space in
+ * different orders, which is what a portfolio relies on.
+ *
+ *   heuristic:       branching rule choosing decision variables
+ *   seed:            seed of the solver's random choices
+ *   polarity:        value tried first for a decision variable
+ *   restarts:        how the number of conflicts between restarts grows
+ *   randomFrequency: probability that a decision picks a random unassigned
+ *                    variable instead of the one chosen by the branching rule
+ *   preprocess:      whether SATSolver simplifies the formula with a
+ *                    Preprocessor before search; PortfolioSolver does so
+ *                    once for all its solvers if any configuration asks
+ *   learnedMemoryLimit:
+ *                    bytes the learned clauses may take before the solver
+ *                    deletes the less useful ones; they are also deleted
+ *                    from time to time as their number grows
+ */
+public class SolverConfig {
+    /**
+     * Branching rule.
+     *
+     *   VSIDS:           the unassigned variable most active in recent
+     *                    conflicts
+     *   SHORTEST_CLAUSE: a variable of the shortest unsatisfied clause, as
+     *                    in the original DPLL solver; scans every clause at
+     *                    each decision
+     */
+    public enum Heuristic {
+        VSIDS, SHORTEST_CLAUSE
+    }
+
+    /**
+     * Value given to a decision variable: the value it had when last
+     * assigned (initially true), true, false, or random.
+     */
+    public enum Polarity {
+        SAVED, POSITIVE, NEGATIVE, RANDOM
+    }
+
+    /**
+     * Restart schedule, in units of RESTART_BASE conflicts.
+     *
+     *   LUBY:      the Luby sequence 1,1,2,1,1,2,4,...
+     *   GEOMETRIC: 1, 1.5, 2.25, ... growing by half each restart
+     *   NONE:      never restart
+     */
+    public enum Restarts {
+        LUBY, GEOMETRIC, NONE
+    }
+
+    /** The configuration used by SATSolver.solve. */
+    public static final SolverConfig DEFAULT =
+            new SolverConfig(Heuristic.VSIDS, 0, Polarity.SAVED, Restarts.LUBY, 0.0, true,
+                    Long.MAX_VALUE);
+
+    private final Heuristic heuristic;
+    private final long seed;
+    private final Polarity polarity;
+    private final Restarts restarts;
+    private final double randomFrequency;
+    private final boolean preprocess;
+    private final long learnedMemoryLimit;
+
+    /*
+     * Rep invariant:
+     *     heuristic != null, polarity != null, restarts != null
+     *     0 <= randomFrequency <= 1
+     *     learnedMemoryLimit > 0
+     */
+
+    private void checkRep() {
+        assert heuristic != null : "SolverConfig, Rep invariant: heuristic non-null";
+        assert polarity != null : "SolverConfig, Rep invariant: polarity non-null";
+        assert restarts != null : "SolverConfig, Rep invariant: restarts non-null";
+        assert randomFrequency >= 0 && randomFrequency <= 1 : "SolverConfig, Rep invariant: randomFrequency in [0,1]";
+        assert learnedMemoryLimit > 0 : "SolverConfig, Rep invariant: learnedMemoryLimit positive";
+    }
+
+    private SolverConfig(Heuristic heuristic, long seed, Polarity polarity,
+            Restarts restarts, double randomFrequency, boolean preprocess, long learnedMemoryLimit) {
+        this.heuristic = heuristic;
+        this.seed = seed;
+        this.polarity = polarity;
+        this.restarts = restarts;
+        this.randomFrequency = randomFrequency;
+        this.preprocess = preprocess;
+        this.learnedMemoryLimit = learnedMemoryLimit;
+        checkRep();
+    }
+
+    /**
+     * @return n configurations for a portfolio of n solvers. The first is
+     *         DEFAULT; the others vary polarity, restart schedule, random
+     *         decisions and seed, and every eighth uses the shortest-clause
+     *         rule instead of VSIDS.
+     */
+    public static List<SolverConfig> portfolio(int n) {
+        List<SolverConfig> configs = new ArrayList<SolverConfig>();
+        Polarity[] polarities = Polarity.values();
+        for (int i = 0; i < n; i++) {
+            if (i == 0) {
+                configs.add(DEFAULT);
+            } else {
+                configs.add(new SolverConfig(
+                        i % 8 == 7 ? Heuristic.SHORTEST_CLAUSE : Heuristic.VSIDS,
+                        i, polarities[i % polarities.length],
+                        i % 2 == 0 ? Restarts.LUBY : Restarts.GEOMETRIC,
+                        i % 4 < 2 ? 0.0 : 0.02, true, Long.MAX_VALUE));
+            }
+        }
+        return configs;
+    }
+
+    /**
+     * @return branching rule
+     */
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * @return seed of the solver's random choices
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return value given to decision variables
+     */
+    public Polarity getPolarity() {
+        return polarity;
+    }
+
+    /**
+     * @return restart schedule
+     */
+    public Restarts getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * @return probability of a random decision
+     */
+    public double getRandomFrequency() {
+        return randomFrequency;
+    }
+
+    /**
+     * @return this configuration with the given branching rule
+     */
+    public SolverConfig withHeuristic(Heuristic heuristic) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @return this configuration with the given seed
+     */
+    public SolverConfig withSeed(long seed) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @return this configuration with the given polarity
+     */
+    public SolverConfig withPolarity(Polarity polarity) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @return this configuration with the given restart schedule
+     */
+    public SolverConfig withRestarts(Restarts restarts) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @param randomFrequency
+     *            requires 0 <= randomFrequency <= 1
+     * @return this configuration with the given probability of random
+     *         decisions
+     */
+    public SolverConfig withRandomFrequency(double randomFrequency) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @return true if SATSolver preprocesses the formula before search
+     */
+    public boolean isPreprocessing() {
+        return preprocess;
+    }
+
+    /**
+     * @return this configuration with preprocessing turned on or off
+     */
+    public SolverConfig withPreprocessing(boolean preprocess) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                learnedMemoryLimit);
+    }
+
+    /**
+     * @return bytes the learned clauses may take, Long.MAX_VALUE (the
+     *         default) if only their number is bounded
+     */
+    public long getLearnedMemoryLimit() {
+        return learnedMemoryLimit;
+    }
+
+    /**
+     * Bound the memory taken by learned clauses, for solvers that must fit
+     * in a fixed heap. Going over the limit makes the solver delete learned
+     * clauses, the most useful last, until they take at most half of it.
+     *
+     * @param bytes
+     *            requires bytes > 0
+     * @return this configuration with the given limit on the memory of
+     *         learned clauses
+     */
+    public SolverConfig withLearnedMemoryLimit(long bytes) {
+        return new SolverConfig(heuristic, seed, polarity, restarts, randomFrequency, preprocess,
+                bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "SolverConfig[heuristic=" + heuristic + ", seed=" + seed + ", polarity=" + polarity
+                + ", restarts=" + restarts + ", randomFrequency="
+                + randomFrequency + ", preprocess=" + preprocess + ", learnedMemoryLimit="
+                + learnedMemoryLimit + "]";
+    }
+}
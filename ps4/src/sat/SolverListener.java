@@ -0,0 +1,15 @@
+package sat;
+
+/**
+ * Receives progress reports from a solver. See SolverStatistics.
+ */
+public interface SolverListener {
+    /**
+     * Called on the solver's thread at every restart and at the end of every
+     * call to solve. Should return quickly, since the search waits for it.
+     *
+     * @param statistics
+     *            counters of the solver, up to date at the time of the call
+     */
+    void progress(SolverStatistics statistics);
+}
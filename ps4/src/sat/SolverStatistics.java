@@ -0,0 +1,188 @@
+package sat;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counters describing the progress of a CDCLSolver, over all its calls to
+ * solve: decisions, propagations, conflicts, learned and deleted clauses,
+ * restarts, the largest decision level reached, and the time spent
+ * searching.
+ *
+ * The solver keeps its counters in plain fields and copies them here every
+ * thousand or so steps of the search, at every restart and at the end of
+ * every call to solve, so that the statistics may be read from any thread
+ * while the solver runs at the cost of lagging slightly behind it. The
+ * values are read one at a time, so they need not all come from the same
+ * copy. Progress can also be followed by adding a SolverListener, or by
+ * registering the statistics as a JMX MBean.
+ */
+public class SolverStatistics implements SolverStatisticsMBean {
+    // written by the solver thread only
+    private volatile long decisions = 0;
+    private volatile long propagations = 0;
+    private volatile long conflicts = 0;
+    private volatile long learnedClauses = 0;
+    private volatile long deletedClauses = 0;
+    private volatile long restarts = 0;
+    private volatile int maxDecisionLevel = 0;
+    private volatile boolean running = false;
+    // System.nanoTime() when the current call to solve started
+    private volatile long startedNanos = 0;
+    // time spent in the calls to solve that have finished
+    private volatile long finishedNanos = 0;
+
+    private final List<SolverListener> listeners = new CopyOnWriteArrayList<SolverListener>();
+    // name under which this is registered with the platform MBean server,
+    // or null
+    private ObjectName objectName = null;
+
+    /**
+     * Make statistics with every counter zero, for a solver to report to.
+     */
+    public SolverStatistics() {
+    }
+
+    /**
+     * Have listener told of the solver's progress. May be called from any
+     * thread.
+     */
+    public void addListener(SolverListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stop telling listener of the solver's progress.
+     */
+    public void removeListener(SolverListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Register these statistics with the platform MBean server, under the
+     * name sat:type=SolverStatistics,name=name.
+     *
+     * @return the name registered
+     * @throws JMException
+     *             if the statistics are registered already, or the name is
+     *             taken
+     */
+    public synchronized ObjectName register(String name) throws JMException {
+        if (objectName != null)
+            throw new JMException("SolverStatistics already registered as " + objectName);
+        ObjectName on = new ObjectName("sat:type=SolverStatistics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, on);
+        objectName = on;
+        return on;
+    }
+
+    /**
+     * Undo register, if these statistics are registered.
+     */
+    public synchronized void unregister() throws JMException {
+        if (objectName == null)
+            return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        objectName = null;
+    }
+
+    public long getDecisions() {
+        return decisions;
+    }
+
+    public long getPropagations() {
+        return propagations;
+    }
+
+    public long getConflicts() {
+        return conflicts;
+    }
+
+    public long getLearnedClauses() {
+        return learnedClauses;
+    }
+
+    public long getDeletedClauses() {
+        return deletedClauses;
+    }
+
+    public long getRestarts() {
+        return restarts;
+    }
+
+    public int getMaxDecisionLevel() {
+        return maxDecisionLevel;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos() / 1000000;
+    }
+
+    public double getPropagationsPerSecond() {
+        long nanos = elapsedNanos();
+        return nanos == 0 ? 0 : propagations * 1e9 / nanos;
+    }
+
+    private long elapsedNanos() {
+        long nanos = finishedNanos;
+        if (running)
+            nanos += System.nanoTime() - startedNanos;
+        return nanos;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /*
+     * Called by the solver when a call to solve starts.
+     */
+    void started() {
+        startedNanos = System.nanoTime();
+        running = true;
+    }
+
+    /*
+     * Called by the solver when a call to solve ends, after a last update.
+     */
+    void finished() {
+        finishedNanos += System.nanoTime() - startedNanos;
+        running = false;
+        fireProgress();
+    }
+
+    /*
+     * Called by the solver to copy its counters here.
+     */
+    void update(long decisions, long propagations, long conflicts, long learnedClauses,
+            long deletedClauses, long restarts, int maxDecisionLevel) {
+        this.decisions = decisions;
+        this.propagations = propagations;
+        this.conflicts = conflicts;
+        this.learnedClauses = learnedClauses;
+        this.deletedClauses = deletedClauses;
+        this.restarts = restarts;
+        this.maxDecisionLevel = maxDecisionLevel;
+    }
+
+    /*
+     * Tell the listeners of the solver's progress.
+     */
+    void fireProgress() {
+        for (SolverListener listener : listeners)
+            listener.progress(this);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("decisions=%d propagations=%d conflicts=%d learned=%d deleted=%d"
+                + " restarts=%d maxLevel=%d time=%dms propagations/s=%.0f", getDecisions(),
+                getPropagations(), getConflicts(), getLearnedClauses(), getDeletedClauses(),
+                getRestarts(), getMaxDecisionLevel(), getElapsedMillis(),
+                getPropagationsPerSecond());
+    }
+}
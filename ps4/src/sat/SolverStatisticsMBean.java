@@ -0,0 +1,60 @@
+package sat;
+
+/**
+ * Management interface of SolverStatistics, under which the counters of a
+ * running solver can be watched from a JMX console such as jconsole.
+ */
+public interface SolverStatisticsMBean {
+    /**
+     * @return number of branching decisions made, including the decisions
+     *         on assumptions
+     */
+    long getDecisions();
+
+    /**
+     * @return number of literals whose consequences unit propagation has
+     *         worked out
+     */
+    long getPropagations();
+
+    /**
+     * @return number of conflicts met
+     */
+    long getConflicts();
+
+    /**
+     * @return number of clauses learned from conflicts, including unit
+     *         clauses
+     */
+    long getLearnedClauses();
+
+    /**
+     * @return number of learned clauses deleted to save memory
+     */
+    long getDeletedClauses();
+
+    /**
+     * @return number of restarts
+     */
+    long getRestarts();
+
+    /**
+     * @return largest decision level reached
+     */
+    int getMaxDecisionLevel();
+
+    /**
+     * @return time spent in calls to solve, in milliseconds
+     */
+    long getElapsedMillis();
+
+    /**
+     * @return propagations per second of the time spent in calls to solve
+     */
+    double getPropagationsPerSecond();
+
+    /**
+     * @return true while a call to solve is in progress
+     */
+    boolean isRunning();
+}
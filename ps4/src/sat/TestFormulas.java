@@ -0,0 +1,79 @@
+package sat;
+
+import java.util.Random;
+
+import sat.env.Variable;
+import sat.formula.Clause;
+import sat.formula.ClauseArena;
+import sat.formula.Formula;
+import sat.formula.Literal;
+import sat.formula.PackedFormula;
+import sat.formula.PosLiteral;
+
+/**
+ * Formulas shared by the tests of the sat package.
+ */
+final class TestFormulas {
+    private TestFormulas() {
+    }
+
+    /**
+     * The pigeonhole problem: every pigeon is in some hole, and no two
+     * pigeons share a hole. Unsatisfiable when pigeons > holes, and then
+     * hard for resolution. Pigeon p in hole h is the variable "in" + p + "_"
+     * + h.
+     */
+    static Formula pigeonhole(int pigeons, int holes) {
+        Literal[][] in = new Literal[pigeons][holes];
+        for (int p = 0; p < pigeons; p++)
+            for (int h = 0; h < holes; h++)
+                in[p][h] = PosLiteral.make("in" + p + "_" + h);
+        Formula f = new Formula();
+        for (int p = 0; p < pigeons; p++) {
+            Clause c = new Clause();
+            for (int h = 0; h < holes; h++)
+                c = c.add(in[p][h]);
+            f = f.addClause(c);
+        }
+        for (int h = 0; h < holes; h++)
+            for (int p = 0; p < pigeons; p++)
+                for (int q = p + 1; q < pigeons; q++)
+                    f = f.addClause(new Clause(in[p][h].getNegation()).add(in[q][h].getNegation()));
+        return f;
+    }
+
+    /**
+     * A random formula over variables "v0", "v1", ... of the given number
+     * of clauses of three literals. With about 4.26 clauses per variable,
+     * about half are satisfiable and they are the hardest.
+     */
+    static PackedFormula random3Sat(Random random, int vars, int clauses) {
+        PackedFormula f = new PackedFormula();
+        for (int v = 0; v < vars; v++)
+            f.addVariable(new Variable("v" + v));
+        for (int c = 0; c < clauses; c++)
+            f.addClause(PackedFormula.literal(random.nextInt(vars), random.nextBoolean()),
+                    PackedFormula.literal(random.nextInt(vars), random.nextBoolean()),
+                    PackedFormula.literal(random.nextInt(vars), random.nextBoolean()));
+        return f;
+    }
+
+    /**
+     * @return true if model, which gives the value of each variable of f,
+     *         satisfies every clause of f
+     */
+    static boolean satisfies(PackedFormula f, boolean[] model) {
+        ClauseArena clauses = f.getClauses();
+        for (int ref = clauses.first(); ref != clauses.end(); ref = clauses.next(ref)) {
+            boolean sat = false;
+            for (int i = 0; i < clauses.size(ref); i++) {
+                int lit = clauses.literal(ref, i);
+                if (model[PackedFormula.variable(lit)] != PackedFormula.isNegative(lit))
+                    sat = true;
+            }
+            if (!sat)
+                return false;
+        }
+        return true;
+    }
+}
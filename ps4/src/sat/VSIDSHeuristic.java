@@ -0,0 +1,137 @@
+package sat;
+
+import java.util.Arrays;
+
+/**
+ * Variable State Independent Decaying Sum: decide the unassigned variable
+ * with the highest activity.
+ *
+ * Each variable taking part in a conflict has its activity bumped by an
+ * increment that grows by a constant factor after every conflict, which
+ * amounts to decaying all older bumps exponentially, so that the search
+ * concentrates on the variables of recent conflicts. Unassigned variables
+ * are kept in a binary max-heap ordered by activity, so a decision costs
+ * O(log n) rather than a scan of the clauses.
+ */
+class VSIDSHeuristic implements BranchingHeuristic {
+    // activities are multiplied by DECAY relative to the bump after each conflict
+    private static final double DECAY = 0.95;
+    // activities are rescaled before they can overflow
+    private static final double RESCALE_LIMIT = 1e100;
+
+    private double[] activity = new double[0];
+    private double increment = 1.0;
+
+    // binary max-heap of variables by activity: heap[0..heapSize)
+    private int[] heap = new int[0];
+    private int heapSize = 0;
+    // position[v] = index of v in heap, or -1 if v is not in the heap
+    private int[] position = new int[0];
+    private int numVars = 0;
+
+    /*
+     * Rep invariant:
+     *     activity, heap, position have length >= numVars
+     *     heap[0..heapSize) holds distinct variables < numVars, and
+     *       position[heap[i]] == i; position[v] == -1 for all others
+     *     activity[heap[i]] <= activity[heap[(i-1)/2]] for 0 < i < heapSize
+     *     every unassigned variable is in the heap
+     */
+
+    public void ensureVariables(int n) {
+        if (n <= numVars)
+            return;
+        if (n > activity.length) {
+            int cap = Math.max(n, 2 * activity.length);
+            activity = Arrays.copyOf(activity, cap);
+            heap = Arrays.copyOf(heap, cap);
+            position = Arrays.copyOf(position, cap);
+        }
+        for (int v = numVars; v < n; v++) {
+            position[v] = -1;
+            insert(v);
+        }
+        numVars = n;
+    }
+
+    public void bump(int v) {
+        activity[v] += increment;
+        if (activity[v] > RESCALE_LIMIT) {
+            for (int u = 0; u < numVars; u++)
+                activity[u] /= RESCALE_LIMIT;
+            increment /= RESCALE_LIMIT;
+        }
+        if (position[v] >= 0)
+            up(position[v]);
+    }
+
+    public void decay() {
+        increment /= DECAY;
+    }
+
+    public void unassigned(int v) {
+        if (position[v] < 0)
+            insert(v);
+    }
+
+    public int pickVariable(byte[] values) {
+        while (heapSize > 0) {
+            int v = removeMax();
+            if (values[2 * v] == CDCLSolver.UNASSIGNED)
+                return v;
+        }
+        return -1;
+    }
+
+    private void insert(int v) {
+        heap[heapSize] = v;
+        position[v] = heapSize;
+        up(heapSize++);
+    }
+
+    private int removeMax() {
+        int v = heap[0];
+        position[v] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            position[heap[0]] = 0;
+            down(0);
+        }
+        return v;
+    }
+
+    // move the variable at index i up to its place
+    private void up(int i) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (activity[heap[parent]] >= activity[v])
+                break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+
+    // move the variable at index i down to its place
+    private void down(int i) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]])
+                child++;
+            if (activity[heap[child]] <= activity[v])
+                break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        position[v] = i;
+    }
+}
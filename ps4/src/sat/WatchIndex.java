@@ -0,0 +1,184 @@
+package sat;
+
+import java.util.Arrays;
+
+import sat.formula.ClauseArena;
+
+/**
+ * Two-watched-literal index over the clauses of a ClauseArena, used for unit
+ * propagation.
+ *
+ * Every clause of two or more literals watches the literals at its positions
+ * 0 and 1. When a literal becomes false, only the clauses watching it are
+ * visited: each one either finds another non-false literal to watch, is
+ * already satisfied by its other watch, or has become unit or conflicting.
+ * No clause is copied, and undoing assignments needs no work in the index.
+ *
+ * Each watch also records a blocker, some other literal of the clause. When
+ * the blocker is true the clause is satisfied and is skipped without reading
+ * the arena at all.
+ *
+ * The index counts every clause visit, so callers can see what each
+ * propagation costs.
+ */
+class WatchIndex {
+    private final ClauseArena arena;
+    // watches[lit] = clauses that have lit at position 0 or 1
+    private WatchList[] watches = new WatchList[0];
+
+    // clause visits since the index was created
+    private long visits = 0;
+
+    /*
+     * Rep invariant:
+     *     arena != null
+     *     watches[l] != null for every literal l < watches.length
+     *     every attached clause c is in exactly the watch lists of its
+     *       literals at positions 0 and 1
+     */
+
+    /**
+     * Create an index for clauses stored in arena.
+     */
+    public WatchIndex(ClauseArena arena) {
+        this.arena = arena;
+    }
+
+    /**
+     * Ensure that literals 0..n-1 can be watched.
+     */
+    public void ensureLiterals(int n) {
+        int old = watches.length;
+        if (n <= old)
+            return;
+        watches = Arrays.copyOf(watches, Math.max(n, 2 * old));
+        for (int l = old; l < watches.length; l++)
+            watches[l] = new WatchList();
+    }
+
+    /**
+     * Start watching clause ref on its first two literals.
+     * Requires: the clause has at least two literals
+     */
+    public void attach(int ref) {
+        int l0 = arena.literal(ref, 0);
+        int l1 = arena.literal(ref, 1);
+        watches[l0].add(ref, l1);
+        watches[l1].add(ref, l0);
+    }
+
+    /**
+     * Forget every watch and watch each clause of the arena on its first two
+     * literals, as after the arena has been compacted. Watch lists much
+     * longer than needed are shrunk.
+     * Requires: every clause of the arena has at least two literals and is
+     * not deleted
+     */
+    public void rebuild() {
+        int[] count = new int[watches.length];
+        for (int ref = arena.first(); ref != arena.end(); ref = arena.next(ref)) {
+            count[arena.literal(ref, 0)]++;
+            count[arena.literal(ref, 1)]++;
+        }
+        for (int l = 0; l < watches.length; l++) {
+            WatchList ws = watches[l];
+            int words = 2 * count[l];
+            if (ws.entries.length > 2 * words && ws.entries.length > 8)
+                ws.entries = new int[Math.max(words, 8)];
+            ws.size = 0;
+        }
+        for (int ref = arena.first(); ref != arena.end(); ref = arena.next(ref))
+            attach(ref);
+    }
+
+    /**
+     * Visit the clauses watching falseLit, which has just become false.
+     * Clauses that become unit have their remaining literal enqueued on the
+     * solver with the clause as reason.
+     *
+     * @param values
+     *            values[l] is the solver's current value of literal l
+     * @return a clause all of whose literals are false, or
+     *         CDCLSolver.NO_REASON if there is no conflict
+     */
+    public int propagate(int falseLit, byte[] values, CDCLSolver solver) {
+        WatchList ws = watches[falseLit];
+        int[] w = ws.entries;
+        int n = ws.size;
+        int[] data = arena.data();
+        int i = 0, j = 0;
+        while (i < n) {
+            int ref = w[i];
+            int blocker = w[i + 1];
+            i += 2;
+            visits++;
+            if (values[blocker] == CDCLSolver.TRUE) {
+                w[j++] = ref;
+                w[j++] = blocker;
+                continue;
+            }
+            // make sure the false literal is at position 1
+            int lits = ref + 1;
+            if (data[lits] == falseLit) {
+                data[lits] = data[lits + 1];
+                data[lits + 1] = falseLit;
+            }
+            // clause already satisfied by the other watch
+            int first = data[lits];
+            if (first != blocker && values[first] == CDCLSolver.TRUE) {
+                w[j++] = ref;
+                w[j++] = first;
+                continue;
+            }
+            // look for a new literal to watch
+            int end = lits + arena.size(ref);
+            boolean moved = false;
+            for (int k = lits + 2; k < end; k++) {
+                if (values[data[k]] != CDCLSolver.FALSE) {
+                    data[lits + 1] = data[k];
+                    data[k] = falseLit;
+                    watches[data[lits + 1]].add(ref, first);
+                    moved = true;
+                    break;
+                }
+            }
+            if (moved)
+                continue;
+            // clause is unit or conflicting under the current assignment
+            w[j++] = ref;
+            w[j++] = first;
+            if (values[first] == CDCLSolver.FALSE) {
+                while (i < n)
+                    w[j++] = w[i++];
+                ws.size = j;
+                return ref;
+            }
+            solver.enqueue(first, ref);
+        }
+        ws.size = j;
+        return CDCLSolver.NO_REASON;
+    }
+
+    /**
+     * @return total number of clauses visited by propagate
+     */
+    public long visits() {
+        return visits;
+    }
+
+    /*
+     * Growable list of the watches on one literal, stored as consecutive
+     * (clause reference, blocker literal) pairs.
+     */
+    private static class WatchList {
+        int[] entries = new int[8];
+        int size = 0;
+
+        void add(int ref, int blocker) {
+            if (size == entries.length)
+                entries = Arrays.copyOf(entries, size * 2);
+            entries[size++] = ref;
+            entries[size++] = blocker;
+        }
+    }
+}
@@ -5,7 +5,7 @@
  * (c) 2008, MIT and Daniel Jackson
  */
 package sat.env;
-import immutable.ImListMap;
+import immutable.HashTrieMap;
 import immutable.ImMap;
 
 /**
@@ -18,6 +18,10 @@ import immutable.ImMap;
  * to return a boolean value for an unbound variable. But this
  * implementation does not prevent a variable from being explicitly
  * bound to UNDEFINED.
+ * 
+ * Bindings are kept in a HashTrieMap, so get and put take O(log32 n) time
+ * in the number of bound variables. A Builder makes an environment binding
+ * many variables, such as a solver's model, without making one per binding.
  */
 public class Environment {
     /*
@@ -31,7 +35,7 @@ public class Environment {
     }
 
     public Environment() {
-        this (new ImListMap<Variable, Bool> ());
+        this (new HashTrieMap<Variable, Bool> ());
     }
 
     /**
@@ -72,4 +76,33 @@ public class Environment {
     public String toString () {
         return "Environment:" + bindings;
     }
+
+    /**
+     * A mutable builder of Environments. A builder may go on being used
+     * after build, to make further environments, without changing the
+     * environments already built. Not safe for use by multiple threads.
+     */
+    public static final class Builder {
+        private final HashTrieMap.Builder<Variable, Bool> bindings =
+                new HashTrieMap.Builder<Variable, Bool>();
+
+        /**
+         * Bind v to b in the environment being built, overwriting any
+         * binding for v.
+         *
+         * @return this builder
+         */
+        public Builder put(Variable v, Bool b) {
+            bindings.put(v, b);
+            return this;
+        }
+
+        /**
+         * @return the environment built; the builder may go on being
+         *         used, without changing the environment built
+         */
+        public Environment build() {
+            return new Environment(bindings.build());
+        }
+    }
 }
@@ -35,12 +35,23 @@ public class Variable {
     
     /**
      * @return true iff this and o represent the same literal
-     * (that is, they have the same string name)
+     * (that is, they are of the same class and have the same string name);
+     * a subclass may narrow equality further, as long as it stays unequal
+     * to every plain Variable
      */
     public boolean equals (Object o) {
         if (o == this) return true;
-        if (!(o instanceof Variable)) return false;
+        if (o == null || o.getClass() != getClass()) return false;
         Variable v = (Variable) o;
         return v.name.equals(name); 
     }
+
+    /**
+     * @return hash code consistent with equals, so that variables can be
+     * used as keys of hash-based maps such as the one behind Environment
+     */
+    @Override
+    public int hashCode () {
+        return name.hashCode();
+    }
 }
@@ -0,0 +1,92 @@
+package sat.formula;
+
+/**
+ * Encodings of the constraint "at most one of these literals is true" into
+ * clauses.
+ * 
+ *   PAIRWISE:   (!x_i | !x_j) for every pair; n(n-1)/2 clauses, no new
+ *               variables
+ *   SEQUENTIAL: Sinz's sequential counter; 3n-4 clauses and n-1 auxiliary
+ *               variables, where s_i means "one of x_1..x_i is true"
+ *   COMMANDER:  Klieber and Kwon's commander encoding; literals are split
+ *               into groups of three, each with a commander variable implied
+ *               by its members, pairwise within groups, and the constraint
+ *               applied recursively to the commanders; about 3n clauses and
+ *               n/2 auxiliary variables
+ * 
+ * All three let unit propagation set the other literals false as soon as one
+ * is true. The pairwise encoding is smallest for short lists; the others grow
+ * linearly and pay off for long ones such as the rows of large Sudoku boards.
+ */
+public enum AtMostOne {
+    PAIRWISE {
+        void encode(ClauseSink sink, int[] lits, int n, int[] buf) {
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    buf[0] = lits[i] ^ 1;
+                    buf[1] = lits[j] ^ 1;
+                    sink.addClause(buf, 0, 2);
+                }
+            }
+        }
+    },
+
+    SEQUENTIAL {
+        void encode(ClauseSink sink, int[] lits, int n, int[] buf) {
+            if (n <= 1)
+                return;
+            // s = literal of the counter variable s_{i-1}
+            int s = PackedFormula.literal(sink.addVariable(null), false);
+            addBinary(sink, buf, lits[0] ^ 1, s);
+            for (int i = 1; i < n - 1; i++) {
+                int next = PackedFormula.literal(sink.addVariable(null), false);
+                addBinary(sink, buf, lits[i] ^ 1, next);
+                addBinary(sink, buf, s ^ 1, next);
+                addBinary(sink, buf, lits[i] ^ 1, s ^ 1);
+                s = next;
+            }
+            addBinary(sink, buf, lits[n - 1] ^ 1, s ^ 1);
+        }
+    },
+
+    COMMANDER {
+        void encode(ClauseSink sink, int[] lits, int n, int[] buf) {
+            if (n <= GROUP_SIZE * 2) {
+                PAIRWISE.encode(sink, lits, n, buf);
+                return;
+            }
+            int[] commanders = new int[(n + GROUP_SIZE - 1) / GROUP_SIZE];
+            int g = 0;
+            for (int start = 0; start < n; start += GROUP_SIZE) {
+                int end = Math.min(start + GROUP_SIZE, n);
+                int c = PackedFormula.literal(sink.addVariable(null), false);
+                commanders[g++] = c;
+                for (int i = start; i < end; i++) {
+                    // a true member forces its commander true
+                    addBinary(sink, buf, lits[i] ^ 1, c);
+                    for (int j = i + 1; j < end; j++)
+                        addBinary(sink, buf, lits[i] ^ 1, lits[j] ^ 1);
+                }
+            }
+            encode(sink, commanders, g, buf);
+        }
+    };
+
+    private static final int GROUP_SIZE = 3;
+
+    /**
+     * Emit clauses into sink that allow at most one of lits[0..n) to be true.
+     * Auxiliary variables are added to sink as needed.
+     */
+    public void encode(ClauseSink sink, int[] lits, int n) {
+        encode(sink, lits, n, new int[2]);
+    }
+
+    abstract void encode(ClauseSink sink, int[] lits, int n, int[] buf);
+
+    private static void addBinary(ClauseSink sink, int[] buf, int a, int b) {
+        buf[0] = a;
+        buf[1] = b;
+        sink.addClause(buf, 0, 2);
+    }
+}
@@ -0,0 +1,42 @@
+package sat.formula;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import sat.env.Variable;
+
+/**
+ * A fresh variable introduced by a definitional Formula.or or Formula.not,
+ * named aux#1, aux#2, ... for display. An auxiliary variable is equal only
+ * to itself, never to a client's Variable of the same name, so it cannot
+ * be confused with one in a formula or a solution. Since no one can look
+ * an auxiliary variable up again, its literals are not interned: they are
+ * reclaimed along with the last formula that uses them.
+ */
+class AuxVariable extends Variable {
+    // number of auxiliary variables made so far, by any thread
+    private static final AtomicLong made = new AtomicLong();
+
+    private AuxVariable(String name) {
+        super(name);
+    }
+
+    /**
+     * @return true iff o is this very variable
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o == this;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(this);
+    }
+
+    /**
+     * @return the positive literal of a new auxiliary variable
+     */
+    static Literal fresh() {
+        return PosLiteral.makeUninterned(new AuxVariable("aux#" + made.incrementAndGet()));
+    }
+}
@@ -5,10 +5,10 @@
  * (c) 2008, MIT and Daniel Jackson
  */
 package sat.formula;
-import immutable.EmptyImList;
 import immutable.ImList;
-import immutable.NonEmptyImList;
+import immutable.ImVector;
 
+import java.util.Arrays;
 import java.util.Iterator;
 
 /**
@@ -16,16 +16,27 @@ import java.util.Iterator;
  * A clause is an immutable set of literals that does not contain
  * a literal and its negation.
  * 
+ * 
+ * Besides the list of its literals, a clause keeps their ids (see
+ * Literal.getId) in sorted order, and the hash code of that array. So
+ * contains takes O(log n) time, equals and subsumes O(n), and hashCode O(1),
+ * and clauses can be put in hash sets, for instance to drop duplicates.
+ * 
  * Note: reduce returns null; a questionnable design decision
  */
 public class Clause implements Iterable<Literal> {
     private final ImList<Literal> literals;
+    // ids of the literals, in increasing order, and Arrays.hashCode(ids)
+    private final int[] ids;
+    private final int hash;
     /*
      * Rep invariant:
      *       literals is non null but may be empty 
      *       contains no duplicate literals
      *    contains no literal and its negation
      *       contains no null elements
+     *       ids holds the ids of literals in strictly increasing order
+     *       hash == Arrays.hashCode(ids)
      * 
      * Abstraction function:
      *     The list of literals l1,l2,...,ln represents 
@@ -37,7 +48,7 @@ public class Clause implements Iterable<Literal> {
 
     void checkRep () {
         // check whether assertions are turned on.
-        // if they're not on, we want to avoid all the recursive
+        // if they're not on, we want to avoid all the
         // traversal that checkRep(literals) would do.
         try {
             assert false;
@@ -47,18 +58,22 @@ public class Clause implements Iterable<Literal> {
     }
     void checkRep (ImList<Literal> ls) {
         assert ls != null : "Clause, Rep invariant: literals non-null"; 
-        if (!ls.isEmpty()) {
-            Literal first = ls.first();
-            assert first != null : "Clause, Rep invariant: no null elements";
-            ImList<Literal> rest = ls.rest();
-            assert !rest.contains(first) : "Clause, Rep invariant: no dups";
-            assert !rest.contains(first.getNegation()) : "Clause, Rep invariant: no literal and its negation";
-            checkRep (rest);
-        }        
+        assert ids.length == ls.size() : "Clause, Rep invariant: one id per literal";
+        for (Literal l : ls) {
+            assert l != null : "Clause, Rep invariant: no null elements";
+            assert Arrays.binarySearch(ids, l.getId()) >= 0 : "Clause, Rep invariant: ids of literals";
+        }
+        for (int i = 1; i < ids.length; i++) {
+            assert ids[i - 1] < ids[i] : "Clause, Rep invariant: no dups";
+            assert ids[i - 1] != (ids[i] ^ 1) : "Clause, Rep invariant: no literal and its negation";
+        }
+        assert hash == Arrays.hashCode(ids) : "Clause, Rep invariant: hash";
     }
 
-    private Clause(ImList<Literal> literals) {
+    private Clause(ImList<Literal> literals, int[] ids) {
         this.literals = literals;
+        this.ids = ids;
+        this.hash = Arrays.hashCode(ids);
         checkRep();
     }
 
@@ -66,16 +81,14 @@ public class Clause implements Iterable<Literal> {
      * @return a clause contain a single literal
      */
     public Clause(Literal literal) {
-        this(new NonEmptyImList<Literal>(literal));
-        checkRep();
+        this(new ImVector<Literal>().add(literal), new int[] { literal.getId() });
     }
 
     /**
      * @return an empty clause
      */
     public Clause() {
-        this(new EmptyImList<Literal>());
-        checkRep();
+        this(new ImVector<Literal>(), new int[0]);
     }
 
     /**
@@ -114,7 +127,7 @@ public class Clause implements Iterable<Literal> {
      * @return true iff this contains the literal l
      */
     public boolean contains(Literal l) {
-        return literals.contains(l);
+        return Arrays.binarySearch(ids, l.getId()) >= 0;
     }
 
     /**
@@ -124,9 +137,16 @@ public class Clause implements Iterable<Literal> {
      * @return the new clause with the literal added, or null
      */
     public Clause add(Literal l) {
-        if (literals.contains(l)) return this;
-        if (literals.contains(l.getNegation())) return null;
-        return new Clause(literals.add(l));
+        int i = Arrays.binarySearch(ids, l.getId());
+        if (i >= 0) return this;
+        if (contains(l.getNegation())) return null;
+        // insert the id at its place, -(i + 1)
+        int at = -(i + 1);
+        int[] more = new int[ids.length + 1];
+        System.arraycopy(ids, 0, more, 0, at);
+        more[at] = l.getId();
+        System.arraycopy(ids, at, more, at + 1, ids.length - at);
+        return new Clause(literals.add(l), more);
     }
 
     /**
@@ -160,36 +180,53 @@ public class Clause implements Iterable<Literal> {
      * or null if the entire clause becomes true
      */
     public Clause reduce(Literal literal) {
-        ImList<Literal> reducedLiterals = reduce(literals, literal);
-        if (reducedLiterals == null) return null;
-        else return new Clause(reducedLiterals);
-    }
-
-    private static ImList<Literal> reduce(ImList<Literal> literals, Literal l) {
-        if (literals.isEmpty()) return literals;
-        Literal first = literals.first();
-        ImList<Literal> rest = literals.rest();
-        if (first.equals(l)) return null;
-        else if (first.equals(l.getNegation())) return rest;
-        else {
-            ImList<Literal> restR = reduce(rest, l);
-            if (restR == null) return null;
-            return restR.add(first);
+        if (contains(literal)) return null;
+        int i = Arrays.binarySearch(ids, literal.getNegation().getId());
+        if (i < 0) return this;
+        int[] fewer = new int[ids.length - 1];
+        System.arraycopy(ids, 0, fewer, 0, i);
+        System.arraycopy(ids, i + 1, fewer, i, fewer.length - i);
+        return new Clause(literals.remove(literal.getNegation()), fewer);
+    }
+
+    /**
+     * Requires: c is non-null
+     * @return true iff every literal of this clause is in c, so that c
+     * holds whenever this clause does
+     */
+    public boolean subsumes(Clause c) {
+        if (ids.length > c.ids.length) return false;
+        int j = 0;
+        for (int id : ids) {
+            while (j < c.ids.length && c.ids[j] < id)
+                j++;
+            if (j == c.ids.length || c.ids[j] != id) return false;
+            j++;
         }
+        return true;
     }
 
     public String toString() {
         return "Clause" + literals;
     }
     
+    /**
+     * @return true iff that is a clause with the same literals as this
+     */
     @Override
     public boolean equals (Object that) {
         if (this == that) return true;
         if (!(that instanceof Clause)) return false;
         Clause c = (Clause) that;
-        if (size() != c.size()) return false;
-        for (Literal l: literals)
-            if (!(c.contains(l))) return false;
-        return true;
+        return hash == c.hash && Arrays.equals(ids, c.ids);
+    }
+
+    /**
+     * @return hash code consistent with equals, computed when the clause
+     * was made
+     */
+    @Override
+    public int hashCode () {
+        return hash;
     }
 }
@@ -0,0 +1,223 @@
+package sat.formula;
+
+import java.util.Arrays;
+
+/**
+ * A growable store of clauses over integer literals, laid out contiguously
+ * in a single int array.
+ *
+ * Each clause is a header word followed by its literals. The header holds
+ * the clause size and a few flag bits whose meaning is up to the client.
+ * A clause is identified by its reference: the index of its header in the
+ * array. Clauses are appended in order, so walking the references from
+ * first() with next() visits them all with a sequential scan.
+ *
+ * A deleted clause keeps its place, and is still visited by next, until
+ * compact moves the remaining clauses down over the gaps. Compacting
+ * changes the references of the clauses that move.
+ *
+ * See PackedFormula for the literal encoding.
+ */
+public class ClauseArena {
+    /** Number of low header bits reserved for client flags. */
+    public static final int FLAG_BITS = 2;
+    private static final int FLAG_MASK = (1 << FLAG_BITS) - 1;
+    // header bit of deleted clauses, above the client flags
+    private static final int DELETED = 1 << FLAG_BITS;
+    private static final int SIZE_SHIFT = FLAG_BITS + 1;
+
+    private int[] data;
+    // index one past the last word in use
+    private int top = 0;
+    private int numClauses = 0;
+    // words taken by deleted clauses, headers included
+    private int wasted = 0;
+
+    /*
+     * Rep invariant:
+     *     data != null, 0 <= top <= data.length
+     *     data[0..top) is a sequence of clauses, each a header h followed by
+     *       (h >>> SIZE_SHIFT) literals
+     *     numClauses is the number of clauses in data[0..top) not deleted
+     *     wasted is the number of words of the deleted clauses
+     */
+
+    /**
+     * Create an empty arena.
+     */
+    public ClauseArena() {
+        this(16);
+    }
+
+    /**
+     * Create an empty arena with room for about the given number of words.
+     */
+    public ClauseArena(int capacity) {
+        data = new int[Math.max(capacity, 4)];
+    }
+
+    /**
+     * Append the clause lits[from..to).
+     *
+     * @return reference to the new clause
+     */
+    public int add(int[] lits, int from, int to, int flags) {
+        int n = to - from;
+        ensure(top + n + 1);
+        int ref = top;
+        data[top++] = (n << SIZE_SHIFT) | (flags & FLAG_MASK);
+        System.arraycopy(lits, from, data, top, n);
+        top += n;
+        numClauses++;
+        return ref;
+    }
+
+    /**
+     * Append a clause with no flags set.
+     *
+     * @return reference to the new clause
+     */
+    public int add(int... lits) {
+        return add(lits, 0, lits.length, 0);
+    }
+
+    private void ensure(int words) {
+        if (words > data.length)
+            data = Arrays.copyOf(data, Math.max(words, data.length + (data.length >> 1)));
+    }
+
+    /**
+     * @return number of literals in clause ref
+     */
+    public int size(int ref) {
+        return data[ref] >>> SIZE_SHIFT;
+    }
+
+    /**
+     * @return the flag bits of clause ref
+     */
+    public int flags(int ref) {
+        return data[ref] & FLAG_MASK;
+    }
+
+    /**
+     * Replace the flag bits of clause ref.
+     */
+    public void setFlags(int ref, int flags) {
+        data[ref] = (data[ref] & ~FLAG_MASK) | (flags & FLAG_MASK);
+    }
+
+    /**
+     * @return ith literal (from 0) of clause ref
+     */
+    public int literal(int ref, int i) {
+        return data[ref + 1 + i];
+    }
+
+    /**
+     * Delete clause ref. Its literals can still be read until compact.
+     * Requires: ref is not deleted already
+     */
+    public void delete(int ref) {
+        assert (data[ref] & DELETED) == 0 : "ClauseArena.delete: clause deleted already";
+        data[ref] |= DELETED;
+        numClauses--;
+        wasted += 1 + size(ref);
+    }
+
+    /**
+     * @return true if clause ref has been deleted
+     */
+    public boolean isDeleted(int ref) {
+        return (data[ref] & DELETED) != 0;
+    }
+
+    /**
+     * @return number of words taken by deleted clauses, which compact gives
+     *         back
+     */
+    public int wasted() {
+        return wasted;
+    }
+
+    /**
+     * Remove the deleted clauses, moving the others down in the same order
+     * so that they are contiguous again, and shrink the backing array if it
+     * is mostly unused. Every reference to a moved clause changes, and the
+     * array returned by data() may be replaced.
+     *
+     * @param refs
+     *            refs[0..n) are references to clauses that are not deleted,
+     *            in increasing order; they are replaced by the references of
+     *            the same clauses after compaction
+     */
+    public void compact(int[] refs, int n) {
+        int k = 0;
+        int to = 0;
+        for (int ref = 0; ref < top; ) {
+            int words = 1 + size(ref);
+            if ((data[ref] & DELETED) == 0) {
+                if (k < n && refs[k] == ref)
+                    refs[k++] = to;
+                if (to != ref)
+                    System.arraycopy(data, ref, data, to, words);
+                to += words;
+            }
+            ref += words;
+        }
+        assert k == n : "ClauseArena.compact: refs not in increasing order, or deleted";
+        top = to;
+        wasted = 0;
+        if (data.length > 2 * top && data.length > 16)
+            data = Arrays.copyOf(data, Math.max(top + (top >> 1), 16));
+    }
+
+    /**
+     * @return reference to the first clause; equal to end() if the arena is
+     *         empty
+     */
+    public int first() {
+        return 0;
+    }
+
+    /**
+     * @return reference to the clause following ref; equal to end() if ref is
+     *         the last clause
+     */
+    public int next(int ref) {
+        return ref + 1 + size(ref);
+    }
+
+    /**
+     * @return the reference one past the last clause
+     */
+    public int end() {
+        return top;
+    }
+
+    /**
+     * @return number of clauses in this arena, not counting deleted ones
+     */
+    public int numClauses() {
+        return numClauses;
+    }
+
+    /**
+     * Direct access for solvers that scan or reorder literals in place. The
+     * literals of clause ref are at indices ref+1 .. ref+size(ref). The array
+     * is replaced when the arena grows, so it must be fetched again after
+     * every add.
+     *
+     * @return the backing array of this arena
+     */
+    public int[] data() {
+        return data;
+    }
+
+    /**
+     * @return approximate number of bytes used by the clause data
+     */
+    public long memoryBytes() {
+        return 4L * data.length;
+    }
+}
@@ -0,0 +1,28 @@
+package sat.formula;
+
+import sat.env.Variable;
+
+/**
+ * A destination for clauses over integer literals, for encoders that emit a
+ * formula clause by clause instead of building it as a Formula first.
+ * 
+ * Literals are encoded as in PackedFormula: 2*v for variable v, and 2*v+1
+ * for its negation.
+ */
+public interface ClauseSink {
+    /**
+     * Add a new variable.
+     * 
+     * @param v
+     *            the Variable it stands for, or null for an auxiliary
+     *            variable introduced by the encoding, which is left out of
+     *            solutions
+     * @return the number of the new variable
+     */
+    int addVariable(Variable v);
+
+    /**
+     * Add the clause lits[from..to), over variables already added.
+     */
+    void addClause(int[] lits, int from, int to);
+}
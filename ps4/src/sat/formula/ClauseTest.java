@@ -1,6 +1,10 @@
 package sat.formula;
 
 import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Test;
 
 public class ClauseTest {
@@ -39,6 +43,36 @@ public class ClauseTest {
         }
     }
 
+    @Test
+    public void testEqualsAndHashCode() {
+        // equal whatever the order the literals were added in
+        Clause rqp = make(r, q, p);
+        assertEquals(cpqr, rqp);
+        assertEquals(cpqr.hashCode(), rqp.hashCode());
+        assertFalse(cpq.equals(cpnq));
+        assertFalse(cpq.equals(cpqr));
+        assertEquals(cpq, cpqr.reduce(nr));
+        assertNull(cpqr.reduce(r));
+        assertTrue(rqp.contains(q));
+        assertFalse(rqp.contains(nq));
+
+        Set<Clause> set = new HashSet<Clause>();
+        assertTrue(set.add(cpqr));
+        assertFalse(set.add(rqp));
+        assertFalse(set.add(cpq.add(r)));
+    }
+
+    @Test
+    public void testSubsumes() {
+        assertTrue(empty.subsumes(cp));
+        assertTrue(cp.subsumes(cpqr));
+        assertTrue(cpq.subsumes(cpqr));
+        assertTrue(cpqr.subsumes(make(q, r, p)));
+        assertFalse(cpqr.subsumes(cpq));
+        assertFalse(cpnq.subsumes(cpqr));
+        assertFalse(cq.subsumes(cp));
+    }
+
     private Clause make(Literal... e) {
         Clause c = new Clause();
         for (int i = 0; i < e.length; ++i) {
@@ -0,0 +1,25 @@
+package sat.formula;
+
+/**
+ * Ways for Formula.or and Formula.not to keep their result in conjunctive
+ * normal form.
+ * 
+ *   DISTRIBUTIVE: apply De Morgan's laws and distribute or over and; no
+ *                 new variables, but or multiplies the numbers of clauses
+ *                 of its operands, and not of a formula of n clauses of k
+ *                 literals makes k^n clauses
+ *   DEFINITIONAL: Plaisted and Greenbaum's variant of the Tseitin
+ *                 encoding; a subformula that would be distributed is named
+ *                 by a fresh auxiliary variable instead, with clauses tying
+ *                 the name to the subformula, so the result grows linearly
+ *                 with the operands
+ * 
+ * A definitional result is equisatisfiable with the distributive one rather
+ * than equivalent: it holds for an assignment of the original variables iff
+ * the auxiliary variables can be given values that make it hold. Solvers
+ * leave the auxiliary variables out of the solutions they return (see
+ * Formula.isAuxiliary).
+ */
+public enum Clausification {
+    DISTRIBUTIVE, DEFINITIONAL
+}
@@ -0,0 +1,317 @@
+package sat.formula;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import sat.env.Variable;
+
+/**
+ * Reading and writing formulas in the DIMACS CNF format used by SATLIB and
+ * the SAT competitions:
+ *
+ *   c a comment line
+ *   p cnf 3 2
+ *   1 -3 0
+ *   2 3 -1 0
+ *
+ * Variables are numbered from 1 and a negative number is a negated
+ * variable; each clause is terminated by 0.
+ *
+ * The reader memory-maps the file and parses numbers straight from its bytes,
+ * so no String is allocated per token. Variable n of the file becomes the
+ * Variable named "n".
+ */
+public class Dimacs {
+    // largest region mapped at once
+    private static final int CHUNK = 1 << 30;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private Dimacs() {
+    }
+
+    /**
+     * Exception used for signaling errors in the format of a DIMACS file
+     */
+    @SuppressWarnings("serial")
+    public static class ParseException extends Exception {
+        public ParseException(String msg) {
+            super(msg);
+        }
+    }
+
+    /**
+     * Read a formula in DIMACS CNF format.
+     *
+     * @param file
+     *            file containing a "p cnf" header followed by clauses. Lines
+     *            starting with 'c' are ignored, and so is everything after a
+     *            line starting with '%', as in the SATLIB benchmarks.
+     * @return formula whose variable v stands for the Variable named v+1, for
+     *         every v up to the variable count of the header
+     * @throws IOException
+     *             if file reading encounters an error
+     * @throws ParseException
+     *             if the file is not in DIMACS CNF format, or uses a variable
+     *             beyond the count in its header
+     */
+    public static PackedFormula read(File file) throws IOException, ParseException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return parse(new Input(in.getChannel()));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write formula f in DIMACS CNF format. Each variable of f that is not
+     * auxiliary has its name recorded in a comment line "c n name".
+     *
+     * @throws IOException
+     *             if writing encounters an error
+     */
+    public static void write(PackedFormula f, File file) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            write(f, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Write formula f in DIMACS CNF format, as for write(f.compile(), file).
+     *
+     * @throws IOException
+     *             if writing encounters an error
+     */
+    public static void write(Formula f, File file) throws IOException {
+        write(f.compile(), file);
+    }
+
+    /**
+     * Write formula f to out in DIMACS CNF format, as write(f, file) does.
+     * Does not close out.
+     *
+     * @throws IOException
+     *             if writing encounters an error
+     */
+    public static void write(PackedFormula f, OutputStream out) throws IOException {
+        Output o = new Output(out);
+        for (int v = 0; v < f.numVariables(); v++) {
+            Variable var = f.getVariable(v);
+            if (var != null) {
+                o.string("c ").number(v + 1).string(" ").string(var.getName()).newline();
+            }
+        }
+        o.string("p cnf ").number(f.numVariables()).string(" ").number(f.numClauses()).newline();
+        ClauseArena clauses = f.getClauses();
+        for (int ref = clauses.first(); ref != clauses.end(); ref = clauses.next(ref)) {
+            int n = clauses.size(ref);
+            for (int i = 0; i < n; i++) {
+                int lit = clauses.literal(ref, i);
+                int d = PackedFormula.variable(lit) + 1;
+                o.number(PackedFormula.isNegative(lit) ? -d : d).string(" ");
+            }
+            o.string("0").newline();
+        }
+        o.flush();
+    }
+
+    private static PackedFormula parse(Input in) throws IOException, ParseException {
+        PackedFormula f = new PackedFormula();
+        int numVariables = -1;
+        int[] clause = new int[16];
+        int size = 0;
+        int c = in.next();
+        while (c != -1) {
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                c = in.next();
+            } else if (c == 'c') {
+                c = in.skipLine();
+            } else if (c == '%') {
+                break;
+            } else if (c == 'p') {
+                if (numVariables >= 0)
+                    throw new ParseException("duplicate problem line");
+                c = in.skipBlanks(in.next());
+                if (c != 'c' || in.next() != 'n' || in.next() != 'f')
+                    throw new ParseException("expected \"p cnf\"");
+                c = in.next();
+                numVariables = in.number(in.skipBlanks(c));
+                // clause count: not needed, but must be present
+                in.number(in.skipBlanks(in.next()));
+                for (int v = 1; v <= numVariables; v++)
+                    f.addVariable(new Variable(Integer.toString(v)));
+                c = in.next();
+            } else if (c == '-' || (c >= '0' && c <= '9')) {
+                if (numVariables < 0)
+                    throw new ParseException("clause before \"p cnf\" line");
+                int d = in.number(c);
+                if (d == 0) {
+                    f.addClause(clause, 0, size);
+                    size = 0;
+                } else {
+                    if (Math.abs(d) > numVariables)
+                        throw new ParseException("variable " + Math.abs(d)
+                                + " exceeds the " + numVariables + " declared");
+                    if (size == clause.length)
+                        clause = Arrays.copyOf(clause, 2 * size);
+                    clause[size++] = PackedFormula.literal(Math.abs(d) - 1, d < 0);
+                }
+                c = in.next();
+            } else {
+                throw new ParseException("unexpected character '" + (char) c + "'");
+            }
+        }
+        if (numVariables < 0)
+            throw new ParseException("missing \"p cnf\" line");
+        // tolerate a last clause without its terminating 0
+        if (size > 0)
+            f.addClause(clause, 0, size);
+        return f;
+    }
+
+    /*
+     * Bytes of a file, read through memory-mapped regions of at most CHUNK
+     * bytes each.
+     */
+    private static class Input {
+        private final FileChannel channel;
+        private final long length;
+        // file offset of the start of buf
+        private long offset = 0;
+        private MappedByteBuffer buf;
+
+        Input(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.length = channel.size();
+            map();
+        }
+
+        private void map() throws IOException {
+            long n = Math.min(CHUNK, length - offset);
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, offset, n);
+        }
+
+        /**
+         * @return the next byte, or -1 at the end of the file
+         */
+        int next() throws IOException {
+            if (!buf.hasRemaining()) {
+                offset += buf.capacity();
+                if (offset >= length)
+                    return -1;
+                map();
+            }
+            return buf.get() & 0xff;
+        }
+
+        /**
+         * Skip the rest of the current line.
+         *
+         * @return the byte after the line, or -1 at the end of the file
+         */
+        int skipLine() throws IOException {
+            int c = next();
+            while (c != '\n' && c != -1)
+                c = next();
+            return next();
+        }
+
+        /**
+         * @return first byte from c on that is not a space or tab
+         */
+        int skipBlanks(int c) throws IOException {
+            while (c == ' ' || c == '\t')
+                c = next();
+            return c;
+        }
+
+        /**
+         * Parse a decimal integer whose first byte c has already been read.
+         * The byte after the number is consumed and must be whitespace or the
+         * end of the file.
+         */
+        int number(int c) throws IOException, ParseException {
+            boolean negative = c == '-';
+            if (negative)
+                c = next();
+            if (c < '0' || c > '9')
+                throw new ParseException("expected a number");
+            long n = 0;
+            while (c >= '0' && c <= '9') {
+                n = 10 * n + (c - '0');
+                if (n > Integer.MAX_VALUE)
+                    throw new ParseException("number too large");
+                c = next();
+            }
+            if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != -1)
+                throw new ParseException("unexpected character '" + (char) c + "'");
+            return (int) (negative ? -n : n);
+        }
+    }
+
+    /*
+     * Buffered output of ASCII text and decimal numbers.
+     */
+    private static class Output {
+        private final OutputStream out;
+        private final byte[] buf = new byte[BUFFER_SIZE];
+        private int size = 0;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        Output string(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++)
+                put((byte) s.charAt(i));
+            return this;
+        }
+
+        Output number(int n) throws IOException {
+            if (size + 11 > buf.length)
+                flush();
+            if (n < 0) {
+                buf[size++] = '-';
+                n = -n;
+            }
+            // digits are written backwards, then reversed in place
+            int start = size;
+            do {
+                buf[size++] = (byte) ('0' + n % 10);
+                n /= 10;
+            } while (n > 0);
+            for (int i = start, j = size - 1; i < j; i++, j--) {
+                byte t = buf[i];
+                buf[i] = buf[j];
+                buf[j] = t;
+            }
+            return this;
+        }
+
+        Output newline() throws IOException {
+            put((byte) '\n');
+            return this;
+        }
+
+        private void put(byte b) throws IOException {
+            if (size == buf.length)
+                flush();
+            buf[size++] = b;
+        }
+
+        void flush() throws IOException {
+            out.write(buf, 0, size);
+            size = 0;
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package sat.formula;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import sat.env.Variable;
+
+public class DimacsTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void DimacsReadTest() throws IOException, Dimacs.ParseException {
+        PackedFormula f = Dimacs.read(file("c example\n"
+                + "p cnf 3  2\n"
+                + " 1 -3 0\n"
+                + "2 3\n-1 0\n"
+                + "%\n0\n"));
+        assertEquals(3, f.numVariables());
+        assertEquals(2, f.numClauses());
+        assertEquals(new Variable("3"), f.getVariable(2));
+        ClauseArena clauses = f.getClauses();
+        int c1 = clauses.first();
+        assertEquals(2, clauses.size(c1));
+        assertEquals(PackedFormula.literal(0, false), clauses.literal(c1, 0));
+        assertEquals(PackedFormula.literal(2, true), clauses.literal(c1, 1));
+        int c2 = clauses.next(c1);
+        assertEquals(3, clauses.size(c2));
+        assertEquals(PackedFormula.literal(0, true), clauses.literal(c2, 2));
+    }
+
+    @Test
+    public void DimacsRoundTripTest() throws IOException, Dimacs.ParseException {
+        PackedFormula f = new PackedFormula();
+        for (int v = 0; v < 100; v++)
+            f.addVariable(new Variable("x" + v));
+        for (int v = 0; v + 2 < 100; v++)
+            f.addClause(PackedFormula.literal(v, v % 2 == 0),
+                    PackedFormula.literal(v + 1, false),
+                    PackedFormula.literal(v + 2, true));
+        File out = File.createTempFile("dimacs", ".cnf");
+        out.deleteOnExit();
+        Dimacs.write(f, out);
+
+        PackedFormula g = Dimacs.read(out);
+        assertEquals(f.numVariables(), g.numVariables());
+        assertEquals(f.numClauses(), g.numClauses());
+        ClauseArena a = f.getClauses(), b = g.getClauses();
+        for (int r = a.first(), s = b.first(); r != a.end(); r = a.next(r), s = b.next(s)) {
+            assertEquals(a.size(r), b.size(s));
+            for (int i = 0; i < a.size(r); i++)
+                assertEquals(a.literal(r, i), b.literal(s, i));
+        }
+    }
+
+    @Test(expected=Dimacs.ParseException.class)
+    public void DimacsUndeclaredVariableTest() throws IOException, Dimacs.ParseException {
+        Dimacs.read(file("p cnf 2 1\n1 3 0\n"));
+    }
+
+    @Test(expected=Dimacs.ParseException.class)
+    public void DimacsMissingHeaderTest() throws IOException, Dimacs.ParseException {
+        Dimacs.read(file("1 2 0\n"));
+    }
+
+    // @return a temporary file containing text
+    private static File file(String text) throws IOException {
+        File f = File.createTempFile("dimacs", ".cnf");
+        f.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(f);
+        out.write(text.getBytes("US-ASCII"));
+        out.close();
+        return f;
+    }
+}
@@ -6,11 +6,14 @@
  */
 package sat.formula;
 
-import immutable.EmptyImList;
 import immutable.ImList;
-import immutable.NonEmptyImList;
+import immutable.ImVector;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
 
 import sat.env.Variable;
 
@@ -24,10 +27,19 @@ import sat.env.Variable;
  *   Var     = String
  */
 public class Formula {
-    private final ImList<Clause> clauses;
+    private final ImVector<Clause> clauses;
+    // clauses tying the auxiliary variables of clauses to the subformulas
+    // they name, in the direction needed where they occur
+    private final ImVector<Clause> definitions;
+    // the opposite direction, needed once the formula is negated
+    private final ImVector<Clause> converse;
     // Rep invariant:
-    //      clauses != null
+    //      clauses, definitions, converse != null
     //      clauses contains no null elements (ensured by spec of ImList)
+    //      each clause of definitions and converse defines one auxiliary
+    //        variable x, and contains one literal of x; apart from those
+    //        literals, x occurs in clauses and definitions with one sign
+    //        only, and in converse with the other
     //
     // Note: although a formula is intended to be a set,  
     // the list may include duplicate clauses without any problems. 
@@ -40,13 +52,27 @@ public class Formula {
     //        
     //        For example, if the list contains the two clauses (a,b) and (!c,d), then the
     //        corresponding formula is (a or b) and (!c or d).
+    //
+    //        The auxiliary variables are existentially quantified, and
+    //        constrained by definitions: the formula holds for an assignment
+    //        iff some values of the auxiliary variables make clauses and
+    //        definitions true. Giving every auxiliary variable the value
+    //        that makes its literal in its defining clauses true satisfies
+    //        definitions alone, whatever the other variables.
 
     void checkRep() {
         assert this.clauses != null : "SATProblem, Rep invariant: clauses non-null";
+        assert this.definitions != null && this.converse != null : "SATProblem, Rep invariant: definitions non-null";
     }
     
-    private Formula(ImList<Clause> clauses) {
+    private Formula(ImVector<Clause> clauses) {
+        this(clauses, new ImVector<Clause>(), new ImVector<Clause>());
+    }
+
+    private Formula(ImVector<Clause> clauses, ImVector<Clause> definitions, ImVector<Clause> converse) {
         this.clauses = clauses;
+        this.definitions = definitions;
+        this.converse = converse;
         checkRep();
     }
 
@@ -57,8 +83,7 @@ public class Formula {
      * @return the true problem
      */
     public Formula() {
-        clauses = new EmptyImList<Clause>();
-        checkRep();
+        this(new ImVector<Clause>());
     }
 
     /**
@@ -68,9 +93,7 @@ public class Formula {
      * @return the problem with a single clause containing the literal l
      */
     public Formula(Variable v) {
-        Literal l = PosLiteral.make(v);
-        clauses = new NonEmptyImList<Clause>(new Clause(l));
-        checkRep();
+        this(new Clause(PosLiteral.make(v)));
     }
 
     /**
@@ -79,8 +102,7 @@ public class Formula {
      * @return the problem with a single clause c
      */
     public Formula(Clause c) {
-    	clauses = new NonEmptyImList<Clause>(c);
-        checkRep();
+        this(new ImVector<Clause>().add(c));
     }
 
     /**
@@ -89,16 +111,17 @@ public class Formula {
      * @return a new problem with the clauses of this, but c added
      */
     public Formula addClause(Clause c) {
-      return new Formula(this.clauses.add(c));
+      return new Formula(this.clauses.add(c), definitions, converse);
     }
 
     /**
-     * Get the clauses of the formula.
+     * Get the clauses of the formula, including those defining its
+     * auxiliary variables, if any.
      * 
      * @return list of clauses
      */
     public ImList<Clause> getClauses() {
-        return clauses;
+        return concat(clauses, definitions);
     }
 
     /**
@@ -108,19 +131,15 @@ public class Formula {
      *         order
      */
     public Iterator<Clause> iterator() {
-        return clauses.iterator();
+        return getClauses().iterator();
     }
 
     /**
      * @return a new problem corresponding to the conjunction of this and p
      */
     public Formula and(Formula p) {
-    	Formula f = this;
-    	Iterator<Clause> it = p.iterator();
-    	while(it.hasNext()){
-    		f = f.addClause(it.next());
-    	}
-    	return f;
+    	return new Formula(concat(clauses, p.clauses), concat(definitions, p.definitions),
+    	        concat(converse, p.converse));
     }
 
     /**
@@ -132,23 +151,30 @@ public class Formula {
         //   you'll need to make (a | b) & (a | c) & (b | c) & (b | d)   
     	Formula f = new Formula();
     	
-    	if(this.getClauses().isEmpty()){
-    		f = p;
-    	}else if(p.getClauses().isEmpty()){
-    		f = this;
+    	if(this.clauses.isEmpty() || p.clauses.isEmpty()){
+    		// no clauses is TRUE, and so is its disjunction with anything
+    		f = new Formula(f.clauses, concat(definitions, p.definitions),
+    		        concat(converse, p.converse));
     	}else{
+    		// merges of different pairs of clauses often coincide
+    		Set<Clause> made = new HashSet<Clause>();
     		Iterator<Clause> clausesIter = clauses.iterator();
     		while(clausesIter.hasNext()){
     			Clause c = clausesIter.next();
     			
     			Formula f1 = new Formula();
-    			Iterator<Clause> pIter = p.iterator();
+    			Iterator<Clause> pIter = p.clauses.iterator();
     			while(pIter.hasNext()){
     				Clause clause = pIter.next().merge(c);
+    				// a tautology holds anyway, and a copy adds nothing
+    				if (clause == null || !made.add(clause))
+    					continue;
     				f1 = f1.addClause(clause);
     			}
     			f = f.and(f1);
     		}
+    		f = new Formula(f.clauses, concat(definitions, p.definitions),
+    		        concat(converse, p.converse));
     	}
     	
     	return f;
@@ -165,8 +191,9 @@ public class Formula {
         //   you'll need to make !((a | b) & c) 
         //                       => (!a & !b) | !c            (moving negation down to the literals)
         //                       => (!a | !c) & (!b | !c)    (conjunctive normal form)
-    	Formula f = new Formula();
-    	Iterator<Clause> tIter = this.iterator();
+    	// start from FALSE, the negation of no clauses
+    	Formula f = new Formula(new Clause());
+    	Iterator<Clause> tIter = this.clauses.iterator();
     	while (tIter.hasNext()) {
     		Clause c = tIter.next();
     		
@@ -181,7 +208,142 @@ public class Formula {
         	f = f.or(f1);
     	}
     	
-    	return f;
+    	// the literals of clauses changed sign, and so must the definitions
+    	return new Formula(f.clauses, converse, definitions);
+    }
+
+    /**
+     * @return a new problem corresponding to the disjunction of this and p,
+     *         put in conjunctive normal form as mode says
+     */
+    public Formula or(Formula p, Clausification mode) {
+        if (mode == Clausification.DISTRIBUTIVE)
+            return or(p);
+        ImVector<Clause> defs = concat(definitions, p.definitions);
+        ImVector<Clause> conv = concat(converse, p.converse);
+        ImVector<Clause> none = new ImVector<Clause>();
+        // no clauses is TRUE, and so is its disjunction with anything
+        if (this.clauses.isEmpty() || p.clauses.isEmpty())
+            return new Formula(none, defs, conv);
+        // a single clause, holding the literals of an operand of one clause
+        // and a fresh variable t for each other operand, such that t implies
+        // the operand's clauses, and !t implies some clause is false
+        Clause c = new Clause();
+        for (Formula operand : new Formula[] { this, p }) {
+            if (operand.clauses.size() == 1) {
+                Clause only = operand.clauses.first();
+                c = c.merge(only);
+                if (c == null)
+                    return new Formula(none, defs, conv);
+                continue;
+            }
+            Literal t = AuxVariable.fresh();
+            c = c.add(t);
+            Clause someFalse = new Clause(t);
+            for (Clause a : operand.clauses) {
+                defs = defs.add(new Clause(t.getNegation()).merge(a));
+                // s implies that a is false
+                Literal s;
+                if (a.size() == 1) {
+                    s = a.chooseLiteral().getNegation();
+                } else {
+                    s = AuxVariable.fresh();
+                    for (Literal l : a)
+                        conv = conv.add(new Clause(s.getNegation()).add(l.getNegation()));
+                }
+                if (someFalse != null)
+                    someFalse = someFalse.add(s);
+            }
+            if (someFalse != null)
+                conv = conv.add(someFalse);
+        }
+        return new Formula(new ImVector<Clause>().add(c), defs, conv);
+    }
+
+    /**
+     * @return a new problem corresponding to the negation of this, put in
+     *         conjunctive normal form as mode says
+     */
+    public Formula not(Clausification mode) {
+        if (mode == Clausification.DISTRIBUTIVE)
+            return not();
+        // a single clause saying some clause is false, with a fresh variable
+        // t for each clause of several literals, such that t implies the
+        // negation of each literal, and !t the clause
+        Clause c = new Clause();
+        ImVector<Clause> defs = converse;
+        ImVector<Clause> conv = definitions;
+        for (Clause a : clauses) {
+            if (a.isEmpty())
+                return new Formula();
+            Literal t;
+            if (a.size() == 1) {
+                t = a.chooseLiteral().getNegation();
+            } else {
+                t = AuxVariable.fresh();
+                for (Literal l : a)
+                    defs = defs.add(new Clause(t.getNegation()).add(l.getNegation()));
+                conv = conv.add(new Clause(t).merge(a));
+            }
+            c = c.add(t);
+            if (c == null)
+                return new Formula();
+        }
+        return new Formula(new ImVector<Clause>().add(c), defs, conv);
+    }
+
+    /**
+     * @return true iff v is an auxiliary variable, introduced by
+     *         Clausification.DEFINITIONAL rather than named by a client
+     */
+    public static boolean isAuxiliary(Variable v) {
+        return v instanceof AuxVariable;
+    }
+
+    /*
+     * @return the list of the elements of b in reverse order, followed by
+     *         the elements of a in order: each element of b in turn is put
+     *         at the front, as ImVector.Builder.addAll does
+     */
+    private static ImVector<Clause> concat(ImVector<Clause> a, ImVector<Clause> b) {
+        if (b.isEmpty())
+            return a;
+        return new ImVector.Builder<Clause>(a).addAll(b).build();
+    }
+
+    /**
+     * Compile this formula into the packed integer representation used by
+     * the SAT solver. Variables are numbered in order of first occurrence.
+     * 
+     * @return a PackedFormula with the same clauses as this, each clause
+     *         once
+     */
+    public PackedFormula compile() {
+        PackedFormula packed = new PackedFormula();
+        // keyed on interned positive literals, so identity hashing suffices
+        Map<Literal, Integer> ids = new HashMap<Literal, Integer>();
+        Set<Clause> seen = new HashSet<Clause>();
+        int[] lits = new int[8];
+        for (Clause c : getClauses()) {
+            if (!seen.add(c))
+                continue;
+            if (c.size() > lits.length)
+                lits = new int[c.size()];
+            int n = 0;
+            for (Literal l : c) {
+                boolean negative = l instanceof NegLiteral;
+                Literal pos = negative ? l.getNegation() : l;
+                Integer id = ids.get(pos);
+                if (id == null) {
+                    Variable v = pos.getVariable();
+                    id = packed.addVariable(isAuxiliary(v) ? null : v);
+                    ids.put(pos, id);
+                }
+                lits[n++] = PackedFormula.literal(id, negative);
+            }
+            packed.addClause(lits, 0, n);
+        }
+        return packed;
     }
 
     /**
@@ -189,7 +351,7 @@ public class Formula {
      * @return number of clauses in this
      */
     public int getSize() {
-        return clauses.size();
+        return clauses.size() + definitions.size();
     }
 
     /**
@@ -197,7 +359,7 @@ public class Formula {
      */
     public String toString() {
         String result = "Problem[";
-        for (Clause c : clauses)
+        for (Clause c : getClauses())
             result += "\n" + c;
         return result + "]";
     }
@@ -6,6 +6,8 @@ import java.util.Iterator;
 
 import org.junit.Test;
 
+import sat.env.Variable;
+
 public class FormulaTest {
 	Literal a = PosLiteral.make("a");
 	Literal b = PosLiteral.make("b");
@@ -225,20 +227,18 @@ public class FormulaTest {
     	assertEquals(f1Orf2.getSize(), 0);
     	assertTrue(f1Orf2.getClauses().isEmpty());
     	
-    	//Case two
+    	//Case two: the empty formula is TRUE, and so is its disjunction
     	f1 = new Formula();
     	Clause c1 = make(a, b);
     	f2 = new Formula(c1);
     	f1Orf2 = f1.or(f2);
-    	assertEquals(f1Orf2.getSize(), 1);
-    	assertEquals(f1Orf2.getClauses().first(), c1);
-    	assertTrue(f1Orf2.getClauses().rest().isEmpty());
+    	assertEquals(f1Orf2.getSize(), 0);
+    	assertTrue(f1Orf2.getClauses().isEmpty());
     	
     	//Case three
     	Formula f2Orf1 = f2.or(f1);
-    	assertEquals(f2Orf1.getSize(), 1);
-    	assertEquals(f2Orf1.getClauses().first(), c1);
-    	assertTrue(f2Orf1.getClauses().rest().isEmpty());
+    	assertEquals(f2Orf1.getSize(), 0);
+    	assertTrue(f2Orf1.getClauses().isEmpty());
     	
     	//Case Four
     	Clause ca = make(a);
@@ -262,6 +262,36 @@ public class FormulaTest {
     	assertTrue(f1Orf2.getClauses().rest().rest().rest().rest().isEmpty());
 	}
 	
+	@Test
+	public void FormulaOrModesTest() {
+		// both modes agree that a disjunction with TRUE is TRUE, whichever
+		// side it is on
+		Formula t = new Formula();
+		Formula p = makeFormula(make(a, b), make(c));
+		for (Clausification mode : Clausification.values()) {
+			assertTrue(mode.toString(), t.or(p, mode).getClauses().isEmpty());
+			assertTrue(mode.toString(), p.or(t, mode).getClauses().isEmpty());
+			assertTrue(mode.toString(), t.or(t, mode).getClauses().isEmpty());
+		}
+		// and that the negation of TRUE is FALSE
+		assertTrue(t.not().getClauses().first().isEmpty());
+		assertTrue(t.not(Clausification.DEFINITIONAL).getClauses().first().isEmpty());
+	}
+
+	@Test
+	public void FormulaOrTautologyTest() {
+		// x | !x merges into a tautology, which is dropped, leaving TRUE
+		Formula x = new Formula(new Variable("a"));
+		Formula f = x.or(x.not());
+		assertTrue(f.getClauses().isEmpty());
+		assertEquals("Problem[]", f.toString());
+
+		// (a & b) | !a distributes into (a | !a), dropped, and (b | !a)
+		f = makeFormula(make(a), make(b)).or(new Formula(make(na)));
+		assertEquals(1, f.getSize());
+		assertEquals(make(b, na), f.getClauses().first());
+	}
+
 	@Test
 	public void FormulaNotTest() {
 		Clause aOrb = make(a, b);
@@ -340,6 +370,64 @@ public class FormulaTest {
     	assertEquals(excepted, f.toString());
 	}
 	
+	@Test
+	public void FormulaCompileTest() {
+		// clauses are kept in list order, here (!b | a) then (c | b), and
+		// variables are numbered in order of first occurrence
+		Formula f = makeFormula(make(b, c), make(a, nb));
+		PackedFormula p = f.compile();
+		assertEquals(3, p.numVariables());
+		assertEquals(2, p.numClauses());
+		ClauseArena arena = p.getClauses();
+		int ref = arena.first();
+		assertEquals(2, arena.size(ref));
+		int lit = arena.literal(ref, 0);
+		assertTrue(PackedFormula.isNegative(lit));
+		assertEquals(b.getVariable(), p.getVariable(PackedFormula.variable(lit)));
+		ref = arena.next(ref);
+		assertEquals(2, arena.size(ref));
+		assertEquals(arena.end(), arena.next(ref));
+	}
+	
+	@Test
+	public void FormulaDuplicatesTest() {
+		// (a & b) | (b & a) distributes into (a | b) four times over, kept
+		// once; compile drops the copies of (b | c) added in another order
+		Formula ab = makeFormula(make(a), make(b));
+		Formula ba = makeFormula(make(b), make(a));
+		Formula f = ab.or(ba);
+		assertEquals(3, f.getSize());
+		PackedFormula p = f.addClause(make(b, c)).addClause(make(c, b)).compile();
+		assertEquals(4, p.numClauses());
+	}
+
+	@Test
+	public void LiteralInterningTest() throws InterruptedException {
+		// literals made from equal variables, or the same name, are identical
+		assertTrue(PosLiteral.make("a") == a);
+		assertTrue(PosLiteral.make(new Variable("a")) == a);
+		assertTrue(NegLiteral.make("a") == na);
+
+		// threads racing to make the same literals agree on one object each
+		final Literal[][] made = new Literal[4][200];
+		Thread[] threads = new Thread[made.length];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < made[id].length; i++)
+						made[id][i] = NegLiteral.make("race" + i);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		for (int t = 1; t < made.length; t++)
+			for (int i = 0; i < made[t].length; i++)
+				assertTrue(made[t][i] == made[0][i]);
+	}
+	
 	// Helper function for constructing a formula.  Takes
     // a variable number of arguments, e.g.
     // makeFormula(a, b, c) will make the formula (a and b and c)
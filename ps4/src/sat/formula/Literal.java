@@ -18,13 +18,18 @@ public abstract class Literal {
     
     protected Variable var;
 
-    // not private, so it can be set in PosLiteral's factory method
+    // not private, so they can be set in PosLiteral's factory method
     Literal negation;
+    // 2n for the positive literal of the n-th variable interned, 2n+1 for
+    // its negation; -2n and -2n+1 for the n-th uninterned pair
+    int id;
 
     /* Rep invariant:
      *   this.negation.negation == this
      *   this.name != null (part of rep of superclass)
      *   this.negation.name.equals (this.name)
+     *   this.negation.id == (this.id ^ 1), and this.id is even iff this is
+     *     a PosLiteral
      * Invariant is established only when factory method in PosLiteral has completed,
      * so checkRep is called there rather than in constructor here.
      * 
@@ -36,12 +41,9 @@ public abstract class Literal {
     void checkRep () {
         assert this.getNegation().getNegation() == this : "Variable, Rep invariant: negation of negation";
         assert this.getNegation().var.getName().equals(var.getName()) : "Variable, Rep invariant: names match";
+        assert this.getNegation().id == (id ^ 1) : "Variable, Rep invariant: ids match";
     }
 
-    Literal (String name) {
-        this(new Variable(name));
-    }
-    
     Literal (Variable var) {
         this.var = var;
     }
@@ -60,6 +62,16 @@ public abstract class Literal {
         return negation;
     }
 
+    /**
+     * @return a number identifying this literal among all literals: the
+     *         literals of the n-th variable to be interned have numbers 2n
+     *         (positive) and 2n+1 (negative); those of an auxiliary variable
+     *         have negative numbers
+     */
+    public int getId () {
+        return id;
+    }
+
     /**
      * @return true iff literal corresponds to the negation of this
      */
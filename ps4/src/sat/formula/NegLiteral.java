@@ -17,17 +17,17 @@ import sat.env.Variable;
 public class NegLiteral extends Literal {
 
     // should NOT be used by clients
-    NegLiteral(String name) {
-        super(name);
+    NegLiteral(Variable var) {
+        super(var);
     }
 
     public static NegLiteral make (Variable var) {
-        return make(var.getName());
+        Literal posLiteral = PosLiteral.make(var);
+        return (NegLiteral) posLiteral.getNegation();
     }
     
     public static NegLiteral make (String name) {
-        Literal posLiteral = PosLiteral.make(name);
-        return (NegLiteral) posLiteral.getNegation();
+        return make(new Variable(name));
     }
 
     public Bool eval (Environment e) {
@@ -0,0 +1,169 @@
+package sat.formula;
+
+import java.util.Arrays;
+
+import sat.env.Bool;
+import sat.env.Environment;
+import sat.env.Variable;
+
+/**
+ * PackedFormula is a compact representation of a formula in conjunctive
+ * normal form, intended to be handed to a SAT solver.
+ *
+ *   variables are dense ints 0..numVariables()-1
+ *   the literal for variable v is 2*v, and for its negation 2*v+1
+ *   clauses are stored contiguously in a ClauseArena
+ *
+ * Each variable remembers the Variable it stands for, so that a solution
+ * can be turned back into an Environment. Auxiliary variables introduced by
+ * an encoding stand for no Variable and are left out of solutions.
+ *
+ * A PackedFormula is built by appending variables and clauses, for example
+ * by Formula.compile() or by an encoder writing to it as a ClauseSink. It
+ * must not be modified while a solver is reading it.
+ */
+public class PackedFormula implements ClauseSink {
+    private final ClauseArena clauses;
+    private Variable[] variables;
+    private int numVariables = 0;
+
+    /*
+     * Rep invariant:
+     *     clauses != null, variables != null
+     *     numVariables <= variables.length
+     *     every literal in clauses is < 2 * numVariables
+     *
+     * Abstraction function:
+     *     the conjunction of the clauses of the arena, where literal 2*v
+     *     stands for variables[v] and literal 2*v+1 for its negation, with
+     *     the variables v for which variables[v] == null existentially
+     *     quantified
+     */
+
+    /**
+     * Create a formula with no variables and no clauses (that is, the
+     * vacuously true formula).
+     */
+    public PackedFormula() {
+        clauses = new ClauseArena();
+        variables = new Variable[16];
+    }
+
+    /**
+     * @return the literal for variable v, negated if negative is true
+     */
+    public static int literal(int v, boolean negative) {
+        return 2 * v + (negative ? 1 : 0);
+    }
+
+    /**
+     * @return the variable of literal lit
+     */
+    public static int variable(int lit) {
+        return lit >> 1;
+    }
+
+    /**
+     * @return true iff lit is the negation of its variable
+     */
+    public static boolean isNegative(int lit) {
+        return (lit & 1) != 0;
+    }
+
+    /**
+     * @return the negation of literal lit
+     */
+    public static int negate(int lit) {
+        return lit ^ 1;
+    }
+
+    /**
+     * Add a new variable standing for v, or an auxiliary variable if v is
+     * null.
+     *
+     * @return the number of the new variable
+     */
+    public int addVariable(Variable v) {
+        if (numVariables == variables.length)
+            variables = Arrays.copyOf(variables, 2 * numVariables);
+        variables[numVariables] = v;
+        return numVariables++;
+    }
+
+    /**
+     * Add a clause, given as a disjunction of literals over variables
+     * already added to this formula.
+     */
+    public void addClause(int... lits) {
+        addClause(lits, 0, lits.length);
+    }
+
+    /**
+     * Add the clause lits[from..to).
+     */
+    public void addClause(int[] lits, int from, int to) {
+        for (int i = from; i < to; i++)
+            assert lits[i] >= 0 && variable(lits[i]) < numVariables : "PackedFormula.addClause: unknown variable";
+        clauses.add(lits, from, to, 0);
+    }
+
+    /**
+     * @return number of variables of this formula
+     */
+    public int numVariables() {
+        return numVariables;
+    }
+
+    /**
+     * @return number of clauses of this formula
+     */
+    public int numClauses() {
+        return clauses.numClauses();
+    }
+
+    /**
+     * @return the Variable that variable v stands for, or null if v is
+     *         auxiliary
+     */
+    public Variable getVariable(int v) {
+        return variables[v];
+    }
+
+    /**
+     * @return the clauses of this formula. Clients must not add to the arena.
+     */
+    public ClauseArena getClauses() {
+        return clauses;
+    }
+
+    /**
+     * Interpret an assignment of the variables of this formula.
+     *
+     * @param model
+     *            model[v] is the value of variable v; requires
+     *            model.length >= numVariables()
+     * @return an environment binding each Variable of this formula to its
+     *         value in model; auxiliary variables are not bound
+     */
+    public Environment toEnvironment(boolean[] model) {
+        Environment.Builder env = new Environment.Builder();
+        for (int v = 0; v < numVariables; v++)
+            if (variables[v] != null)
+                env.put(variables[v], model[v] ? Bool.TRUE : Bool.FALSE);
+        return env.build();
+    }
+
+    /**
+     * @return approximate number of bytes used by this formula, not counting
+     *         the Variable objects themselves
+     */
+    public long memoryBytes() {
+        return clauses.memoryBytes() + 4L * variables.length;
+    }
+
+    @Override
+    public String toString() {
+        return "PackedFormula[" + numVariables + " variables, "
+                + numClauses() + " clauses]";
+    }
+}
@@ -6,9 +6,11 @@
  */
 package sat.formula;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import sat.env.Variable;
-import immutable.ImListMap;
-import immutable.ImMap;
 
 /**
  * Class representing positive literals.
@@ -17,36 +19,77 @@ import immutable.ImMap;
  */
 public class PosLiteral extends Literal {
     /* 
-     * Mapping of positive literals that have already been allocated, keyed on their names
-     * Invariant: non null, and no key or value is null
+     * Mapping of positive literals that have already been allocated, keyed on their variables
+     * Invariant: non null, no key or value is null, and each value's variable equals its key
+     * 
+     * A concurrent hash map gives O(1) lookups and lets several threads build
+     * formulas at once; putIfAbsent makes racing threads agree on one literal
+     * per variable, so literals can still be compared with ==.
      */
-    static ImMap<String,PosLiteral> allocatedPosLiterals = new ImListMap<String,PosLiteral>();
+    private static final ConcurrentMap<Variable,PosLiteral> allocatedPosLiterals =
+            new ConcurrentHashMap<Variable,PosLiteral>();
+    // number of variables given literal ids so far; a thread losing the race
+    // to intern a variable wastes the number it drew
+    private static final AtomicInteger numbered = new AtomicInteger();
+    // number of uninterned literal pairs made so far; they take the negative
+    // ids -2, -4, ... so that they neither collide with nor use up the ids
+    // of interned variables
+    private static final AtomicInteger unnumbered = new AtomicInteger();
 
-    private PosLiteral (String name) {
-        super (name);
+    private PosLiteral (Variable var) {
+        super (var);
     }    
     
-    public static PosLiteral make (Variable var) {
-        return make(var.getName());
-    }
-        
     /**
      * Factory method. Preserves the invariant that only one object
-     * will exist to represent a literal of a given name. 
-     * @return the positive literal with the given name
+     * will exist to represent a literal of a given variable, even when
+     * called from several threads.
+     * @return the positive literal of var
      */
-    public static PosLiteral make (String name) {
-        PosLiteral literal = allocatedPosLiterals.get(name);
+    public static PosLiteral make (Variable var) {
+        PosLiteral literal = allocatedPosLiterals.get(var);
         if (literal==null) {
-            literal = new PosLiteral(name);
-            NegLiteral negated = new NegLiteral(name);
-            literal.negation = negated;
-            negated.negation = literal;
-            allocatedPosLiterals = allocatedPosLiterals.put(name, literal);
+            PosLiteral fresh = pair(var, 2 * numbered.getAndIncrement());
+            literal = allocatedPosLiterals.putIfAbsent(var, fresh);
+            if (literal==null) literal = fresh;
         }
         literal.checkRep(); 
         return literal;
     }
+        
+    /**
+     * Makes the literals of a variable that no client can name again, such
+     * as an auxiliary variable, without entering them in the interning
+     * table, so that they are reclaimed once no formula refers to them.
+     * Should NOT be called twice for the same variable.
+     * @return a new positive literal of var
+     */
+    static PosLiteral makeUninterned (Variable var) {
+        PosLiteral literal = pair(var, -2 * unnumbered.incrementAndGet());
+        literal.checkRep();
+        return literal;
+    }
+
+    /*
+     * @return a new positive literal of var with the given even id, linked
+     * to a new negative literal with id+1
+     */
+    private static PosLiteral pair (Variable var, int id) {
+        PosLiteral fresh = new PosLiteral(var);
+        NegLiteral negated = new NegLiteral(var);
+        fresh.negation = negated;
+        negated.negation = fresh;
+        fresh.id = id;
+        negated.id = id ^ 1;
+        return fresh;
+    }
+
+    /**
+     * @return the positive literal of the variable with the given name
+     */
+    public static PosLiteral make (String name) {
+        return make(new Variable(name));
+    }
 
     public String toString () {
         return var.toString();
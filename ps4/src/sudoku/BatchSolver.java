@@ -0,0 +1,223 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import sudoku.Sudoku.ParseException;
+
+/**
+ * Solves a stream of puzzles in the one-line format of the usual puzzle
+ * collections: each line holds the dim^4 squares of one puzzle, row by row,
+ * as digit characters (see Sudoku.digit), with '.' or '0' for a blank.
+ * Empty lines and lines starting with '#' are skipped.
+ *
+ * The input is read and decoded on the calling thread, byte by byte, without
+ * making a String per line; the puzzles are solved in chunks by a pool of
+ * worker threads. Solutions are written in the same format and in the same
+ * order as the puzzles, one line each, with a line of '.' for a puzzle that
+ * has no solution.
+ */
+public class BatchSolver {
+    // puzzles per task handed to a worker
+    private static final int CHUNK = 256;
+
+    private BatchSolver() {
+    }
+
+    /**
+     * Usage: BatchSolver dim input [output [method [workers]]]
+     *
+     * Solve the puzzles of dimension dim in file input, writing the
+     * solutions to file output, or to standard output if output is missing
+     * or "-". method is sat, propagation (the default) or dancing_links;
+     * workers defaults to the number of available processors. Prints the
+     * number of puzzles and puzzles per second to standard error.
+     */
+    public static void main(String[] args) throws IOException, ParseException {
+        if (args.length < 2) {
+            System.err.println("usage: BatchSolver dim input [output [method [workers]]]");
+            System.exit(2);
+        }
+        int dim = Integer.parseInt(args[0]);
+        SolveMethod method = args.length > 3 ? SolveMethod.valueOf(args[3].toUpperCase())
+                : SolveMethod.PROPAGATION;
+        int workers = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        InputStream in = new FileInputStream(args[1]);
+        OutputStream out = args.length < 3 || args[2].equals("-") ? System.out
+                : new FileOutputStream(args[2]);
+        long started = System.nanoTime();
+        long puzzles;
+        try {
+            puzzles = solve(dim, in, out, method, workers);
+        } finally {
+            in.close();
+            if (out != System.out)
+                out.close();
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.err.println(String.format("%d puzzles in %.3f s: %.0f puzzles/s (%s, %d workers)",
+                puzzles, seconds, puzzles / seconds, method.name().toLowerCase(), workers));
+    }
+
+    /**
+     * Solve the puzzles read from in and write their solutions to out.
+     *
+     * @param dim
+     *            dimension of the puzzles
+     * @param workers
+     *            number of worker threads; requires workers >= 1
+     * @return number of puzzles solved
+     * @throws ParseException
+     *             if a line of in is not a puzzle of dimension dim; the
+     *             solutions of the puzzles before it have been written
+     * @throws IOException
+     *             if reading or writing fails, or the calling thread is
+     *             interrupted
+     */
+    public static long solve(final int dim, InputStream in, OutputStream out,
+            final SolveMethod method, int workers) throws IOException, ParseException {
+        assert workers >= 1 : "BatchSolver.solve: workers >= 1";
+        PuzzleReader reader = new PuzzleReader(in, dim * dim);
+        OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        // tasks in input order; at most two per worker are outstanding
+        LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+        long puzzles = 0;
+        try {
+            ParseException error = null;
+            boolean more = true;
+            while (more) {
+                final List<int[][]> chunk = new ArrayList<int[][]>(CHUNK);
+                try {
+                    int[][] grid;
+                    while (chunk.size() < CHUNK && (grid = reader.next()) != null)
+                        chunk.add(grid);
+                } catch (ParseException e) {
+                    error = e;
+                }
+                more = error == null && chunk.size() == CHUNK;
+                if (!chunk.isEmpty()) {
+                    puzzles += chunk.size();
+                    pending.add(pool.submit(new Callable<byte[]>() {
+                        public byte[] call() {
+                            return solveChunk(dim, chunk, method);
+                        }
+                    }));
+                }
+                while (pending.size() >= 2 * workers || (!more && !pending.isEmpty()))
+                    buffered.write(pending.removeFirst().get());
+            }
+            if (error != null)
+                throw error;
+            return puzzles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("BatchSolver interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+            buffered.flush();
+        }
+    }
+
+    /*
+     * @return the solution lines of the puzzles of chunk
+     */
+    private static byte[] solveChunk(int dim, List<int[][]> chunk, SolveMethod method) {
+        int size = dim * dim;
+        int line = size * size + 1;
+        byte[] out = new byte[chunk.size() * line];
+        int n = 0;
+        for (int[][] grid : chunk) {
+            int[][] solution = method.solve(dim, grid);
+            for (int i = 0; i < size; i++)
+                for (int j = 0; j < size; j++)
+                    out[n++] = (byte) (solution == null ? '.' : Sudoku.digitChar(solution[i][j]));
+            out[n++] = '\n';
+        }
+        return out;
+    }
+
+    /*
+     * Reads puzzles one line at a time from a byte stream.
+     */
+    private static class PuzzleReader {
+        private final InputStream in;
+        private final int size;
+        private final byte[] buffer = new byte[1 << 16];
+        // buffer[pos..end) is yet to be read
+        private int pos = 0, end = 0;
+        // number of the line being read, from 1
+        private long lineNumber = 1;
+
+        PuzzleReader(InputStream in, int size) {
+            this.in = in;
+            this.size = size;
+        }
+
+        /*
+         * @return next byte of the input, or -1 at its end
+         */
+        private int read() throws IOException {
+            if (pos == end) {
+                end = in.read(buffer, 0, buffer.length);
+                pos = 0;
+                if (end <= 0) {
+                    end = 0;
+                    return -1;
+                }
+            }
+            return buffer[pos++] & 0xff;
+        }
+
+        /*
+         * @return the grid of the next puzzle, or null at the end of input
+         */
+        int[][] next() throws IOException, ParseException {
+            while (true) {
+                int c = read();
+                if (c < 0)
+                    return null;
+                if (c == '#') {
+                    while (c >= 0 && c != '\n')
+                        c = read();
+                }
+                if (c == '\n')
+                    lineNumber++;
+                if (c == '\n' || c == '\r' || c < 0)
+                    continue;
+                int[][] grid = new int[size][size];
+                int n = 0;
+                for (; c >= 0 && c != '\n' && c != '\r'; c = read()) {
+                    int d = Sudoku.digit((char) c);
+                    if (d < 0 || d > size)
+                        throw new ParseException("line " + lineNumber + ": bad square '" + (char) c + "'");
+                    if (n == size * size)
+                        throw new ParseException("line " + lineNumber + " has more than " + size * size + " squares");
+                    grid[n / size][n % size] = d;
+                    n++;
+                }
+                if (n < size * size)
+                    throw new ParseException("line " + lineNumber + " has " + n + " squares, not " + size * size);
+                if (c == '\n')
+                    lineNumber++;
+                return grid;
+            }
+        }
+    }
+}
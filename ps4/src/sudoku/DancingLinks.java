@@ -0,0 +1,304 @@
+package sudoku;
+
+import java.util.Random;
+
+/**
+ * A Sudoku solver that treats the puzzle as an exact cover problem and
+ * solves it with Knuth's Algorithm X on dancing links.
+ *
+ * There is a column for each constraint that must be met exactly once:
+ * every square holds a digit, and every digit appears in every row, every
+ * column and every block. There is a row for each placement of a digit in a
+ * square, covering the four columns it meets. A solution is a set of rows
+ * covering every column exactly once. The search always covers the column
+ * with the fewest rows left, which for Sudoku amounts to naked and hidden
+ * singles, and keeps its choices on an explicit stack. Like SudokuSolver, it
+ * breaks ties at random and restarts with a growing budget, since a bad
+ * early choice on a large grid can otherwise cost seconds; each attempt
+ * builds the matrix afresh with its rows in a new random order.
+ *
+ * The sparse matrix is held in parallel int arrays rather than node
+ * objects. Works for any dimension.
+ */
+public class DancingLinks {
+    // node 0 is the root, nodes 1..columns the column headers, and the rest
+    // the entries of the rows, four consecutive nodes per row
+    private static final int ROOT = 0;
+    // rows tried at branching columns before the first restart
+    private static final int RESTART_BASE = 100;
+    // result of search when the columns cannot be covered
+    private static final int[][] NO_SOLUTION = new int[0][];
+
+    private final int size;
+    private final int cells;
+    private final int columns;
+    // circular doubly linked lists: left/right along a row or the header
+    // list, up/down along a column
+    private final int[] left, right, up, down;
+    // column[n] = header of node n's column; for a header, itself
+    private final int[] column;
+    // count[c] = number of rows left in column c
+    private final int[] count;
+    // placement[n] = placement (square*size + digit) of the row of node n
+    private final int[] placement;
+    private int nodes;
+
+    /*
+     * Rep invariant:
+     *     columns == 4*cells, cells == size*size
+     *     the header list, starting at ROOT, links the uncovered columns
+     *     count[c] is the length of column c's list, excluding c
+     */
+
+    /*
+     * Build the matrix for grid, adding the rows in an order drawn from
+     * random.
+     */
+    private DancingLinks(int dim, int[][] grid, Random random) {
+        size = dim * dim;
+        cells = size * size;
+        columns = 4 * cells;
+        int rows = 0;
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                rows += grid[i][j] == 0 ? size : 1;
+        int n = 1 + columns + 4 * rows;
+        left = new int[n];
+        right = new int[n];
+        up = new int[n];
+        down = new int[n];
+        column = new int[n];
+        count = new int[n];
+        placement = new int[n];
+
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = down[c] = column[c] = c;
+        }
+        nodes = columns + 1;
+
+        int[] squares = shuffled(cells, random);
+        for (int s : squares) {
+            int i = s / size, j = s % size;
+            int b = (i / dim) * dim + j / dim;
+            for (int k : shuffled(size, random)) {
+                if (grid[i][j] != 0 && grid[i][j] != k + 1)
+                    continue;
+                int first = nodes;
+                addNode(1 + i * size + j);
+                addNode(1 + cells + i * size + k);
+                addNode(1 + 2 * cells + j * size + k);
+                addNode(1 + 3 * cells + b * size + k);
+                for (int m = first; m < nodes; m++) {
+                    placement[m] = (i * size + j) * size + k;
+                    left[m] = m == first ? nodes - 1 : m - 1;
+                    right[m] = m == nodes - 1 ? first : m + 1;
+                }
+            }
+        }
+    }
+
+    /*
+     * @return 0..n-1 in random order
+     */
+    private static int[] shuffled(int n, Random random) {
+        int[] a = new int[n];
+        for (int i = 0; i < n; i++) {
+            int j = random.nextInt(i + 1);
+            a[i] = a[j];
+            a[j] = i;
+        }
+        return a;
+    }
+
+    /*
+     * Append a node to the bottom of column c.
+     */
+    private void addNode(int c) {
+        int m = nodes++;
+        column[m] = c;
+        up[m] = up[c];
+        down[m] = c;
+        down[up[c]] = m;
+        up[c] = m;
+        count[c]++;
+    }
+
+    /**
+     * Solve a puzzle.
+     *
+     * @return a filled-in grid agreeing with the givens of puzzle, or null if
+     *         the puzzle has no solution
+     */
+    public static Sudoku solve(Sudoku puzzle) {
+        int dim = puzzle.getDim();
+        int[][] grid = solve(dim, puzzle.getGrid());
+        return grid == null ? null : new Sudoku(dim, grid);
+    }
+
+    /**
+     * Solve a puzzle given as a grid.
+     *
+     * @param dim
+     *            dimension of the puzzle
+     * @param grid
+     *            grid[i][j] is 0 for a blank, else the digit in row i,
+     *            column j, as taken by the Sudoku constructor; requires
+     *            dim*dim rows and columns
+     * @return a new grid with no blanks agreeing with grid, or null if there
+     *         is none
+     */
+    public static int[][] solve(int dim, int[][] grid) {
+        Random random = new Random(0);
+        long budget = RESTART_BASE;
+        while (true) {
+            int[][] solution = new DancingLinks(dim, grid, random).search(grid, random, budget);
+            if (solution != null)
+                return solution == NO_SOLUTION ? null : solution;
+            budget += budget / 2;
+        }
+    }
+
+    /*
+     * Select the rows of the givens, then search for rows covering the
+     * remaining columns.
+     * @param budget
+     *            largest number of rows to try at columns with a choice
+     * @return the solution grid; NO_SOLUTION if there is none; or null if
+     *         the budget ran out
+     */
+    private int[][] search(int[][] grid, Random random, long budget) {
+        int[][] solution = new int[size][size];
+        // a given's square has one row, which an earlier given clashing with
+        // it will have removed
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                if (grid[i][j] == 0)
+                    continue;
+                int c = 1 + i * size + j;
+                if (count[c] == 0)
+                    return NO_SOLUTION;
+                select(down[c]);
+                solution[i][j] = grid[i][j];
+            }
+        }
+
+        // chosen[l] = row node chosen at depth l
+        int[] chosen = new int[cells];
+        int depth = cover(chosen, random, budget);
+        if (depth == -1)
+            return NO_SOLUTION;
+        if (depth == -2)
+            return null;
+
+        for (int l = 0; l < depth; l++) {
+            int p = placement[chosen[l]];
+            solution[p / size / size][p / size % size] = p % size + 1;
+        }
+        return solution;
+    }
+
+    /*
+     * Algorithm X: choose rows covering every column left, covering at each
+     * step a column with the fewest rows. Among columns with a choice of
+     * rows, squares come before digits, as in SudokuSolver, and ties are
+     * broken at random.
+     * @param budget
+     *            largest number of rows to try at columns with a choice
+     * @return the number of rows chosen, stored in chosen; -1 if the
+     *         columns cannot be covered; or -2 if the budget ran out
+     */
+    private int cover(int[] chosen, Random random, long budget) {
+        // chosen[depth] becomes the column header once every row of the
+        // column has been tried
+        int depth = 0;
+        boolean forward = true;
+        long branches = 0;
+        while (true) {
+            if (forward) {
+                if (right[ROOT] == ROOT)
+                    return depth;
+                if (branches >= budget)
+                    return -2;
+                // key orders by count, then squares before digits; a
+                // column with at most one row is taken at once
+                int c = -1, ties = 0, best = Integer.MAX_VALUE;
+                for (int h = right[ROOT]; h != ROOT && best > 2; h = right[h]) {
+                    int key = 2 * count[h] + (count[h] > 1 && h > cells ? 1 : 0);
+                    if (key < best) {
+                        c = h;
+                        best = key;
+                        ties = 1;
+                    } else if (key == best && random.nextInt(++ties) == 0) {
+                        c = h;
+                    }
+                }
+                if (count[c] > 1)
+                    branches++;
+                cover(c);
+                chosen[depth] = down[c];
+            } else {
+                if (depth == 0)
+                    return -1;
+                depth--;
+                int last = chosen[depth];
+                for (int m = left[last]; m != last; m = left[m])
+                    uncover(column[m]);
+                chosen[depth] = down[last];
+                branches++;
+            }
+            int r = chosen[depth];
+            if (r <= columns) {
+                // column exhausted: back up
+                uncover(r);
+                forward = false;
+            } else {
+                for (int m = right[r]; m != r; m = right[m])
+                    cover(column[m]);
+                depth++;
+                forward = true;
+            }
+        }
+    }
+
+    /*
+     * Put row r in the solution for good.
+     */
+    private void select(int r) {
+        cover(column[r]);
+        for (int m = right[r]; m != r; m = right[m])
+            cover(column[m]);
+    }
+
+    /*
+     * Remove column c from the header list, and every row meeting c from
+     * the other columns it meets.
+     */
+    private void cover(int c) {
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int r = down[c]; r != c; r = down[r]) {
+            for (int m = right[r]; m != r; m = right[m]) {
+                down[up[m]] = down[m];
+                up[down[m]] = up[m];
+                count[column[m]]--;
+            }
+        }
+    }
+
+    /*
+     * Undo cover(c); calls must be undone in reverse order.
+     */
+    private void uncover(int c) {
+        for (int r = up[c]; r != c; r = up[r]) {
+            for (int m = left[r]; m != r; m = left[m]) {
+                count[column[m]]++;
+                down[up[m]] = m;
+                up[down[m]] = m;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+    }
+}
@@ -0,0 +1,34 @@
+package sudoku;
+
+/**
+ * Difficulty of a Sudoku puzzle with a unique solution, graded by the
+ * deductions of SudokuSolver that suffice to solve it.
+ */
+public enum Difficulty {
+    /** Solved by placing naked singles only. */
+    EASY,
+    /** Solved by placing naked and hidden singles. */
+    MEDIUM,
+    /** Needs search beyond naked and hidden singles. */
+    HARD;
+
+    /**
+     * @param puzzle
+     *            requires puzzle.getDim() <= SudokuSolver.MAX_DIM
+     * @return the difficulty of puzzle, assuming it has a unique solution
+     */
+    public static Difficulty of(Sudoku puzzle) {
+        return of(SudokuSolver.forDim(puzzle.getDim()), puzzle.getGrid());
+    }
+
+    /*
+     * @return the difficulty of the puzzle grid, for solver of its dimension
+     */
+    static Difficulty of(SudokuSolver solver, int[][] grid) {
+        if (solver.solvesBySingles(grid, false))
+            return EASY;
+        if (solver.solvesBySingles(grid, true))
+            return MEDIUM;
+        return HARD;
+    }
+}
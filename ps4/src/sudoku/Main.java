@@ -1,19 +1,31 @@
 package sudoku;
 
 import java.io.IOException;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.management.JMException;
 
 import sat.SATSolver;
+import sat.SolverConfig;
+import sat.SolverStatistics;
 import sat.env.Environment;
-import sat.formula.Formula;
+import sat.formula.PackedFormula;
 import sudoku.Sudoku.ParseException;
 
 public class Main {
-
+    private static SolveMethod method = SolveMethod.SAT;
+    // milliseconds between progress reports of the SAT solver
+    private static final long REPORT_INTERVAL = 1000;
 
     /*
      * Uncomment line(s) below to test your implementation! 
+     * The first argument, if any, names the method: sat (the default),
+     * propagation or dancing_links.
      */
     public static void main (String[] args) {
+        if (args.length > 0)
+            method = SolveMethod.valueOf(args[0].toUpperCase());
         timedSolve (new Sudoku(2));
         timedSolve (new Sudoku(2, new int[][] { 
                     new int[] { 0, 1, 0, 4 }, 
@@ -32,22 +44,59 @@ public class Main {
     private static void timedSolve (Sudoku sudoku) {
         long started = System.nanoTime();
 
-        System.out.println ("Creating SAT formula...");
-        Formula f = sudoku.getProblem();
+        Sudoku solution;
+        if (method == SolveMethod.SAT) {
+            System.out.println ("Creating SAT formula...");
+            PackedFormula f = sudoku.getPackedProblem();
         
-        System.out.println ("Solving...");
-        Environment e = SATSolver.solve(f);
+            System.out.println ("Solving...");
+            Environment e = solveWithProgress(f);
         
-        System.out.println ("Interpreting solution...");
-        Sudoku solution = sudoku.interpretSolution(e);
+            System.out.println ("Interpreting solution...");
+            solution = e == null ? null : sudoku.interpretSolution(e);
+        } else {
+            System.out.println ("Solving with " + method.name().toLowerCase() + "...");
+            solution = method.solve(sudoku);
+        }
         
-        System.out.println ("Solution is: \n" + solution);    
+        System.out.println (solution == null ? "No solution" : "Solution is: \n" + solution);    
 
         long time = System.nanoTime();
         long timeTaken = (time - started);
         System.out.println ("Time:" + timeTaken/1000000 + "ms");
     }
 
+    /**
+     * Solve f with SATSolver, printing the solver's statistics every
+     * REPORT_INTERVAL while it runs and once it is done. The statistics can
+     * also be watched over JMX, as sat:type=SolverStatistics,name=sudoku.
+     */
+    private static Environment solveWithProgress(PackedFormula f) {
+        final SolverStatistics stats = new SolverStatistics();
+        try {
+            stats.register("sudoku");
+        } catch (JMException e) {
+            System.out.println ("Statistics not registered with JMX: " + e.getMessage());
+        }
+        Timer timer = new Timer("solver progress", true);
+        timer.schedule(new TimerTask() {
+            public void run() {
+                System.out.println ("  " + stats);
+            }
+        }, REPORT_INTERVAL, REPORT_INTERVAL);
+        try {
+            return SATSolver.solve(f, SolverConfig.DEFAULT, stats);
+        } finally {
+            timer.cancel();
+            System.out.println ("Statistics: " + stats);
+            try {
+                stats.unregister();
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
     /**
      * Solve a puzzle loaded from a file and display the solution and the time it took.
      * @param dim  dimension of puzzle
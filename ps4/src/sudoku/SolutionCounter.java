@@ -0,0 +1,103 @@
+package sudoku;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import sat.IncrementalSolver;
+import sat.SolutionIterator;
+import sat.env.Environment;
+import sat.formula.Literal;
+
+/**
+ * Enumerates and counts the solutions of Sudoku puzzles of one dimension, to
+ * check for instance that a puzzle has exactly one solution.
+ *
+ * The problem of the empty puzzle is loaded once into an IncrementalSolver,
+ * and each puzzle is solved by assuming its givens, so the clauses learned
+ * for one puzzle help with the next. Solutions are told apart by the digits
+ * of the blank squares only. A SolutionCounter is not safe for use by
+ * several threads at once.
+ */
+public class SolutionCounter {
+    private final int dim;
+    private final IncrementalSolver solver = new IncrementalSolver();
+
+    /**
+     * Make a counter for puzzles of dimension dim.
+     *
+     * @param dim
+     *            requires dim >= 1
+     */
+    public SolutionCounter(int dim) {
+        this.dim = dim;
+        solver.addFormula(new Sudoku(dim).getProblem());
+    }
+
+    /**
+     * Enumerate the solutions of a puzzle, finding each only when the
+     * iterator is advanced to it. The iterator must be used up or dropped
+     * before this counter is used again.
+     *
+     * @param puzzle
+     *            requires puzzle.getDim() to be the dimension of this
+     *            counter
+     * @param limit
+     *            largest number of solutions to return; requires limit >= 0,
+     *            or IncrementalSolver.NO_LIMIT for no limit
+     * @return iterator over distinct filled-in grids agreeing with the givens
+     *         of puzzle
+     */
+    public Iterator<Sudoku> solutions(final Sudoku puzzle, long limit) {
+        assert puzzle.getDim() == dim : "SolutionCounter.solutions: wrong dimension";
+        final SolutionIterator it = solver.solutions(puzzle.getGivens(), puzzle.getUnknowns(), limit);
+        return new Iterator<Sudoku>() {
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public Sudoku next() {
+                if (!it.hasNext())
+                    throw new NoSuchElementException();
+                Environment env = it.next();
+                for (Literal given : puzzle.getGivens())
+                    env = env.putTrue(given.getVariable());
+                return puzzle.interpretSolution(env);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("SolutionCounter.solutions: remove");
+            }
+        };
+    }
+
+    /**
+     * Count the solutions of a puzzle, stopping at limit.
+     *
+     * @param puzzle
+     *            requires puzzle.getDim() to be the dimension of this
+     *            counter
+     * @param limit
+     *            requires limit >= 0, or IncrementalSolver.NO_LIMIT for no
+     *            limit
+     * @return the number of solutions of puzzle, or limit if it has at least
+     *         that many
+     */
+    public long countSolutions(Sudoku puzzle, long limit) {
+        assert puzzle.getDim() == dim : "SolutionCounter.countSolutions: wrong dimension";
+        SolutionIterator it = solver.solutions(puzzle.getGivens(), puzzle.getUnknowns(), limit);
+        while (it.hasNext())
+            it.next();
+        return it.count();
+    }
+
+    /**
+     * @param puzzle
+     *            requires puzzle.getDim() to be the dimension of this
+     *            counter
+     * @return true if puzzle has exactly one solution; stops searching at the
+     *         second
+     */
+    public boolean isUnique(Sudoku puzzle) {
+        return countSolutions(puzzle, 2) == 1;
+    }
+}
@@ -0,0 +1,82 @@
+package sudoku;
+
+import sat.SATSolver;
+import sat.env.Environment;
+
+/**
+ * Ways of solving a Sudoku puzzle: through the SAT solver, or directly on
+ * the grid.
+ */
+public enum SolveMethod {
+    /** Encode the puzzle as a SAT problem and solve it with SATSolver. */
+    SAT {
+        public int[][] solve(int dim, int[][] grid) {
+            // the Sudoku constructor requires givens that do not clash
+            if (hasClash(dim, grid))
+                return null;
+            Sudoku puzzle = new Sudoku(dim, grid);
+            Environment e = SATSolver.solve(puzzle.getPackedProblem());
+            return e == null ? null : puzzle.interpretSolution(e).getGrid();
+        }
+    },
+
+    /** Constraint propagation with SudokuSolver; dimensions up to 5. */
+    PROPAGATION {
+        public int[][] solve(int dim, int[][] grid) {
+            return SudokuSolver.forDim(dim).solve(grid);
+        }
+    },
+
+    /** Exact cover with DancingLinks. */
+    DANCING_LINKS {
+        public int[][] solve(int dim, int[][] grid) {
+            return DancingLinks.solve(dim, grid);
+        }
+    };
+
+    /**
+     * Solve a puzzle given as a grid.
+     *
+     * @param grid
+     *            grid[i][j] is 0 for a blank, else the digit in row i,
+     *            column j, as taken by the Sudoku constructor; requires
+     *            dim*dim rows and columns
+     * @return a new grid with no blanks agreeing with grid, or null if there
+     *         is none
+     */
+    public abstract int[][] solve(int dim, int[][] grid);
+
+    /*
+     * @return true if two givens of grid with the same digit share a row,
+     * column or block
+     */
+    private static boolean hasClash(int dim, int[][] grid) {
+        int size = dim * dim;
+        boolean[][] inRow = new boolean[size][size + 1];
+        boolean[][] inCol = new boolean[size][size + 1];
+        boolean[][] inBlock = new boolean[size][size + 1];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                int d = grid[i][j];
+                if (d == 0)
+                    continue;
+                int b = (i / dim) * dim + j / dim;
+                if (inRow[i][d] || inCol[j][d] || inBlock[b][d])
+                    return true;
+                inRow[i][d] = inCol[j][d] = inBlock[b][d] = true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Solve a puzzle.
+     *
+     * @return a filled-in grid agreeing with the givens of puzzle, or null if
+     *         the puzzle has no solution
+     */
+    public Sudoku solve(Sudoku puzzle) {
+        int[][] grid = solve(puzzle.getDim(), puzzle.getGrid());
+        return grid == null ? null : new Sudoku(puzzle.getDim(), grid);
+    }
+}
@@ -10,13 +10,19 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import sat.env.Bool;
 import sat.env.Environment;
 import sat.env.Variable;
+import sat.formula.AtMostOne;
 import sat.formula.Clause;
+import sat.formula.ClauseSink;
 import sat.formula.Formula;
+import sat.formula.Literal;
 import sat.formula.NegLiteral;
+import sat.formula.PackedFormula;
 import sat.formula.PosLiteral;
 
 /**
@@ -125,10 +131,10 @@ public class Sudoku {
 		}
 
         occupies = new Variable[size][size][size];
-        for (Integer i = 0; i < size; i++) {
-            for (Integer j = 0; j < size; j++) {
-                for (Integer k = 0; k < size;k ++) {
-                    occupies[i][j][k] = new Variable(i.toString() + j.toString() + k.toString());
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                for (int k = 0; k < size; k++) {
+                    occupies[i][j][k] = new Variable("occupies(" + i + "," + j + "," + k + ")");
                 }
             }
         }
@@ -169,14 +175,13 @@ public class Sudoku {
 	 * Reads in a file containing a Sudoku puzzle.
 	 * 
 	 * @param dim
-	 *            Dimension of puzzle. Requires: at most dim of 3, because
-	 *            otherwise need different file format
+	 *            Dimension of puzzle.
 	 * @param filename
 	 *            of file containing puzzle. The file should contain one line
-	 *            per row, with each square in the row represented by a digit,
-	 *            if known, and a period otherwise. With dimension dim, the file
-	 *            should contain dim*dim rows, and each row should contain
-	 *            dim*dim characters.
+	 *            per row, with each square in the row represented by a digit
+	 *            character (see digit), if known, and a period or 0
+	 *            otherwise. With dimension dim, the file should contain
+	 *            dim*dim rows, and each row should contain dim*dim characters.
 	 * @return Sudoku object corresponding to file contents
 	 * @throws IOException
 	 *             if file reading encounters an error
@@ -188,29 +193,58 @@ public class Sudoku {
 		BufferedReader in = new BufferedReader(new FileReader(new File(filename)));
 		int size = dim*dim;
 		int[][] s = new int[size][size];
-		String line;
-		int row = 0;
-		while(((line = in.readLine()) != null) && 
-				(row < size)){
-			line = line.trim();
-			for (int col = 0; col < line.length(); col++) {
-				switch (line.charAt(col)) {
-				case '.':
-					s[row][col] = 0;
-					break;
-				case '\n':
-					break;
-				default:
-					s[row][col] = Integer.parseInt(String.valueOf(line.charAt(col)));
-					break;
+		try {
+			String line;
+			int row = 0;
+			while(((line = in.readLine()) != null) && 
+					(row < size)){
+				line = line.trim();
+				if (line.length() > size)
+					throw new ParseException("row " + (row + 1) + " has more than " + size + " squares");
+				for (int col = 0; col < line.length(); col++) {
+					int d = digit(line.charAt(col));
+					if (d < 0 || d > size)
+						throw new ParseException("row " + (row + 1) + ": bad square '" + line.charAt(col) + "'");
+					s[row][col] = d;
 				}
+				row++;
 			}
-			row++;
+		} finally {
+			in.close();
 		}
-		in.close();
 		return new Sudoku(dim, s);
 	}
 
+	/**
+	 * @param c
+	 *            a character of a puzzle file
+	 * @return the digit c stands for: '1'..'9' for 1 to 9 and 'A'..'Z' (or
+	 *         'a'..'z') for 10 to 35; 0 for a blank, '.' or '0'; or -1 if c
+	 *         is none of these
+	 */
+	public static int digit(char c) {
+		if (c == '.' || c == '0')
+			return 0;
+		if (c >= '1' && c <= '9')
+			return c - '0';
+		if (c >= 'A' && c <= 'Z')
+			return c - 'A' + 10;
+		if (c >= 'a' && c <= 'z')
+			return c - 'a' + 10;
+		return -1;
+	}
+
+	/**
+	 * @param d
+	 *            requires 0 <= d <= 35
+	 * @return the character standing for digit d in puzzle files, '.' for 0
+	 */
+	public static char digitChar(int d) {
+		if (d == 0)
+			return '.';
+		return (char) (d <= 9 ? '0' + d : 'A' + d - 10);
+	}
+
 	/**
 	 * Exception used for signaling grammatical errors in Sudoku puzzle files
 	 */
@@ -223,7 +257,8 @@ public class Sudoku {
 
 	/**
 	 * Produce readable string representation of this Sukoku grid, e.g. for a 4
-	 * x 4 sudoku problem: 12.4 3412 2.43 4321
+	 * x 4 sudoku problem: 12.4 3412 2.43 4321. Digits above 9 are written as
+	 * letters, as fromFile reads them.
 	 * 
 	 * @return a string corresponding to this grid
 	 */
@@ -231,17 +266,32 @@ public class Sudoku {
 		StringBuilder sb = new StringBuilder();
         for (int i = 0; i < size; i++) {
             for (int j = 0; j < size; j++) {
-                if (square[i][j] == -1) {
-                    sb.append('.');
-                } else {
-                    sb.append(square[i][j] + 1);
-                }
+                sb.append(digitChar(square[i][j] + 1));
             }
             sb.append('\n');
         }
         return sb.toString();
 	}
 
+	/**
+	 * @return dimension of the puzzle; the grid has dim*dim rows and columns
+	 */
+	public int getDim() {
+		return dim;
+	}
+
+	/**
+	 * @return the grid as a new array in the form taken by the constructor:
+	 *         grid[i][j] is 0 for a blank, else the digit in row i, column j
+	 */
+	public int[][] getGrid() {
+		int[][] grid = new int[size][size];
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				grid[i][j] = square[i][j] + 1;
+		return grid;
+	}
+
 	/**
 	 * @return a SAT problem corresponding to the puzzle, using variables with
 	 *         names of the form occupies(i,j,k) to indicate that the kth symbol
@@ -322,12 +372,133 @@ public class Sudoku {
         return formula;
 	}
 
+	/**
+	 * @return the givens of the puzzle as literals occupies(i,j,k). The
+	 *         problem of this puzzle is the problem of the empty puzzle of
+	 *         the same dimension with these literals assumed, so puzzles
+	 *         sharing one IncrementalSolver loaded with new
+	 *         Sudoku(dim).getProblem() can be solved by assuming their givens.
+	 */
+	public List<Literal> getGivens() {
+		List<Literal> givens = new ArrayList<Literal>();
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				if (square[i][j] != -1)
+					givens.add(PosLiteral.make(occupies[i][j][square[i][j]]));
+		return givens;
+	}
+
+	/**
+	 * @return the variables occupies(i,j,k) of the blank entries of the
+	 *         puzzle; a solution of the puzzle is told apart from the others
+	 *         by its values for these variables
+	 */
+	public List<Variable> getUnknowns() {
+		List<Variable> unknowns = new ArrayList<Variable>();
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				if (square[i][j] == -1)
+					for (int k = 0; k < size; k++)
+						unknowns.add(occupies[i][j][k]);
+		return unknowns;
+	}
+
+	/**
+	 * @return the same SAT problem as getProblem(), in packed form, using the
+	 *         pairwise at-most-one encoding for puzzles up to size 9 and the
+	 *         sequential counter for larger ones
+	 */
+	public PackedFormula getPackedProblem() {
+		return getPackedProblem(size <= 9 ? AtMostOne.PAIRWISE : AtMostOne.SEQUENTIAL);
+	}
+
+	/**
+	 * @param amo
+	 *            encoding to use for the at-most-one constraints on squares,
+	 *            rows and columns
+	 * @return the same SAT problem as getProblem(), in packed form, with any
+	 *         auxiliary variables of the encoding amo
+	 */
+	public PackedFormula getPackedProblem(AtMostOne amo) {
+		PackedFormula formula = new PackedFormula();
+		encode(formula, amo);
+		return formula;
+	}
+
+	/**
+	 * Emit the SAT problem corresponding to the puzzle into sink, clause by
+	 * clause. The variables occupies(i,j,k) are added to sink in order of i,
+	 * then j, then k, before any auxiliary variables of the encoding amo.
+	 * 
+	 * @param amo
+	 *            encoding to use for the at-most-one constraints on squares,
+	 *            rows and columns
+	 */
+	public void encode(ClauseSink sink, AtMostOne amo) {
+		// var[(i*size + j)*size + k] = number of occupies[i][j][k] in sink
+		int[] var = new int[size * size * size];
+		for (int i = 0; i < size; i++)
+			for (int j = 0; j < size; j++)
+				for (int k = 0; k < size; k++)
+					var[(i * size + j) * size + k] = sink.addVariable(occupies[i][j][k]);
+
+		int[] lits = new int[size];
+		// Solution must be consistent with the starting grid.
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				if (square[i][j] != -1) {
+					lits[0] = PackedFormula.literal(var[(i * size + j) * size + square[i][j]], false);
+					sink.addClause(lits, 0, 1);
+				}
+			}
+		}
+		// At most one digit per square.
+		for (int i = 0; i < size; i++) {
+			for (int j = 0; j < size; j++) {
+				for (int k = 0; k < size; k++)
+					lits[k] = PackedFormula.literal(var[(i * size + j) * size + k], false);
+				amo.encode(sink, lits, size);
+			}
+		}
+		// In each row, each digit must appear exactly once.
+		for (int i = 0; i < size; i++) {
+			for (int k = 0; k < size; k++) {
+				for (int j = 0; j < size; j++)
+					lits[j] = PackedFormula.literal(var[(i * size + j) * size + k], false);
+				sink.addClause(lits, 0, size);
+				amo.encode(sink, lits, size);
+			}
+		}
+		// In each column, each digit must appear exactly once.
+		for (int j = 0; j < size; j++) {
+			for (int k = 0; k < size; k++) {
+				for (int i = 0; i < size; i++)
+					lits[i] = PackedFormula.literal(var[(i * size + j) * size + k], false);
+				sink.addClause(lits, 0, size);
+				amo.encode(sink, lits, size);
+			}
+		}
+		// In each block, each digit must appear at least once.
+		for (int i = 0; i < dim; i++) {
+			for (int j = 0; j < dim; j++) {
+				for (int k = 0; k < size; k++) {
+					int n = 0;
+					for (int s = 0; s < dim; s++)
+						for (int t = 0; t < dim; t++)
+							lits[n++] = PackedFormula.literal(var[((i * dim + s) * size + j * dim + t) * size + k], false);
+					sink.addClause(lits, 0, n);
+				}
+			}
+		}
+	}
+
 	/**
 	 * Interpret the solved SAT problem as a filled-in grid.
 	 * 
 	 * @param e
 	 *            Assignment of variables to values that solves this puzzle.
-	 *            Requires that e came from a solution to this.getProblem().
+	 *            Requires that e came from a solution to this.getProblem()
+	 *            or this.getPackedProblem().
 	 * @return a new Sudoku grid containing the solution to the puzzle, with no
 	 *         blank entries.
 	 */
@@ -0,0 +1,232 @@
+package sudoku;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Generates random Sudoku puzzles with a unique solution, graded by
+ * Difficulty.
+ *
+ * A puzzle starts as a random filled-in grid: the blocks on the diagonal,
+ * which share no row or column, are filled with random permutations and the
+ * rest is completed by SudokuSolver. Clues are then blanked one at a time in
+ * random order, each put back if the puzzle would lose its unique solution
+ * or become harder than asked for. Since the puzzle before blanking a clue
+ * has a unique solution, the puzzle after does just when it has no solution
+ * with another digit in the blanked square, which SudokuSolver checks by
+ * exhaustive search (SudokuSolver.hasSolutionWithout). A clue whose check
+ * takes too long is kept, so large puzzles may have a few more clues than
+ * needed. A SolutionCounter gives the same answer through the SAT encoding,
+ * but more slowly.
+ *
+ * A generator is seeded, and makes the same puzzles from the same seed. The
+ * static generate runs many generators in parallel, one per puzzle, seeded
+ * from the puzzle's position, so its output does not depend on the number
+ * of threads. A SudokuGenerator is not safe for use by multiple threads.
+ */
+public class SudokuGenerator {
+    // generations tried for a puzzle of the exact difficulty asked for
+    // before settling for one that is easier
+    private static final int ATTEMPTS = 100;
+    // search states explored to show that blanking a clue keeps the
+    // solution unique, before giving up and keeping the clue; bounds the
+    // time spent on the few very hard checks of large puzzles
+    private static final long BUDGET = 1000;
+
+    private final int dim;
+    private final int size;
+    private final SudokuSolver solver;
+    private final Random random;
+
+    /**
+     * Make a generator of puzzles of dimension dim.
+     *
+     * @param dim
+     *            requires 1 <= dim <= SudokuSolver.MAX_DIM
+     * @param seed
+     *            seed of the generator's random choices
+     */
+    public SudokuGenerator(int dim, long seed) {
+        assert dim >= 1 && dim <= SudokuSolver.MAX_DIM : "SudokuGenerator: dimension out of range";
+        this.dim = dim;
+        this.size = dim * dim;
+        this.solver = SudokuSolver.forDim(dim);
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Usage: SudokuGenerator dim count [difficulty [seed [workers]]]
+     *
+     * Write count puzzles of dimension dim and the given difficulty (easy,
+     * medium or hard; hard by default) to standard output, one per line in
+     * the format read by BatchSolver. seed defaults to 0 and workers to the
+     * number of available processors. Prints the number of puzzles and
+     * puzzles per second to standard error.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: SudokuGenerator dim count [difficulty [seed [workers]]]");
+            System.exit(2);
+        }
+        int dim = Integer.parseInt(args[0]);
+        int count = Integer.parseInt(args[1]);
+        Difficulty difficulty = args.length > 2 ? Difficulty.valueOf(args[2].toUpperCase())
+                : Difficulty.HARD;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        int workers = args.length > 4 ? Integer.parseInt(args[4])
+                : Runtime.getRuntime().availableProcessors();
+        long started = System.nanoTime();
+        List<Sudoku> puzzles = generate(dim, difficulty, count, seed, workers);
+        double seconds = (System.nanoTime() - started) / 1e9;
+        write(puzzles, System.out);
+        System.err.println(String.format("%d puzzles in %.3f s: %.0f puzzles/s (%s, %d workers)",
+                count, seconds, count / seconds, difficulty.name().toLowerCase(), workers));
+    }
+
+    /**
+     * Generate puzzles in parallel.
+     *
+     * @param dim
+     *            requires 1 <= dim <= SudokuSolver.MAX_DIM
+     * @param count
+     *            requires count >= 0
+     * @param workers
+     *            number of worker threads; requires workers >= 1
+     * @return count puzzles made as by generate(difficulty) on generators
+     *         seeded by seed and their positions in the list; the same
+     *         puzzles for the same seed, whatever the number of workers
+     * @throws InterruptedIOException
+     *             if the calling thread is interrupted
+     */
+    public static List<Sudoku> generate(final int dim, final Difficulty difficulty, int count,
+            long seed, int workers) throws InterruptedIOException {
+        assert count >= 0 && workers >= 1 : "SudokuGenerator.generate: bad count or workers";
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Sudoku>> pending = new ArrayList<Future<Sudoku>>(count);
+            for (int i = 0; i < count; i++) {
+                final long s = seed + i * 0x9E3779B97F4A7C15L;
+                pending.add(pool.submit(new Callable<Sudoku>() {
+                    public Sudoku call() {
+                        return new SudokuGenerator(dim, s).generate(difficulty);
+                    }
+                }));
+            }
+            List<Sudoku> puzzles = new ArrayList<Sudoku>(count);
+            for (Future<Sudoku> f : pending)
+                puzzles.add(f.get());
+            return puzzles;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("SudokuGenerator interrupted");
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Write puzzles to out, one per line, in the format read by BatchSolver.
+     */
+    public static void write(List<Sudoku> puzzles, OutputStream out) throws IOException {
+        OutputStream buffered = new BufferedOutputStream(out, 1 << 16);
+        for (Sudoku puzzle : puzzles) {
+            for (int[] row : puzzle.getGrid())
+                for (int d : row)
+                    buffered.write(d == 0 ? '.' : Sudoku.digitChar(d));
+            buffered.write('\n');
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Generate a puzzle of the given difficulty. A puzzle from which no clue
+     * can be blanked may come out easier than asked for; after a number of
+     * tries the easier puzzle is returned.
+     *
+     * @return a puzzle with a unique solution and difficulty at most
+     *         difficulty, and exactly difficulty unless that was not found;
+     *         but for clues kept because checking them took too long, no
+     *         clue of it can be blanked without losing the unique solution
+     *         or making it harder than difficulty
+     */
+    public Sudoku generate(Difficulty difficulty) {
+        int[][] grid = null;
+        for (int i = 0; i < ATTEMPTS; i++) {
+            grid = removeClues(fullGrid(), difficulty);
+            if (Difficulty.of(solver, grid) == difficulty)
+                break;
+        }
+        return new Sudoku(dim, grid);
+    }
+
+    /**
+     * @return a random filled-in grid, with no blanks
+     */
+    public Sudoku generateSolution() {
+        return new Sudoku(dim, fullGrid());
+    }
+
+    /*
+     * @return a random filled-in grid
+     */
+    private int[][] fullGrid() {
+        while (true) {
+            int[][] grid = new int[size][size];
+            int[] digits = new int[size];
+            for (int b = 0; b < dim; b++) {
+                shuffle(digits);
+                for (int k = 0; k < size; k++)
+                    grid[b * dim + k / dim][b * dim + k % dim] = digits[k];
+            }
+            int[][] full = solver.solve(grid);
+            if (full != null)
+                return full;
+        }
+    }
+
+    /*
+     * Blank the clues of grid in random order, keeping a unique solution
+     * and difficulty at most difficulty.
+     * @param grid
+     *            a filled-in grid; changed in place
+     * @return grid
+     */
+    private int[][] removeClues(int[][] grid, Difficulty difficulty) {
+        int[] order = new int[size * size];
+        shuffle(order);
+        for (int c : order) {
+            int i = (c - 1) / size, j = (c - 1) % size;
+            int d = grid[i][j];
+            grid[i][j] = 0;
+            // a puzzle solved by singles alone has a unique solution
+            boolean keep = difficulty == Difficulty.HARD ? !solver.hasSolutionWithout(grid, i, j, d, BUDGET)
+                    : Difficulty.of(solver, grid).compareTo(difficulty) <= 0;
+            if (!keep)
+                grid[i][j] = d;
+        }
+        return grid;
+    }
+
+    /*
+     * Fill a with a random permutation of 1..a.length.
+     */
+    private void shuffle(int[] a) {
+        for (int i = 0; i < a.length; i++) {
+            int j = random.nextInt(i + 1);
+            a[i] = a[j];
+            a[j] = i + 1;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package sudoku;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SudokuGeneratorTest {
+
+    // make sure assertions are turned on!
+    // we don't want to run test cases without assertions too.
+    // see the handout to find out how to turn them on.
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false;
+    }
+
+    @Test
+    public void GeneratorCountSolutionsTest() {
+        SudokuSolver solver = SudokuSolver.forDim(2);
+        assertEquals(288, solver.countSolutions(new int[4][4], 1000));
+        assertEquals(10, solver.countSolutions(new int[4][4], 10));
+        int[][] grid = new int[][] {
+                new int[] { 3, 1, 2, 4 },
+                new int[] { 0, 0, 0, 0 },
+                new int[] { 0, 0, 0, 0 },
+                new int[] { 0, 0, 0, 0 } };
+        assertEquals(12, solver.countSolutions(grid, 1000));
+        // two 3s in the first row
+        grid[0][0] = 2;
+        assertEquals(0, solver.countSolutions(grid, 1000));
+    }
+
+    @Test
+    public void GeneratorUniqueTest() {
+        SolutionCounter counter = new SolutionCounter(3);
+        SudokuSolver solver = SudokuSolver.forDim(3);
+        for (Difficulty difficulty : Difficulty.values()) {
+            SudokuGenerator generator = new SudokuGenerator(3, difficulty.ordinal());
+            for (int n = 0; n < 5; n++) {
+                Sudoku puzzle = generator.generate(difficulty);
+                assertEquals(difficulty, Difficulty.of(puzzle));
+                assertTrue(counter.isUnique(puzzle));
+                // minimal for its difficulty: every clue is needed
+                int[][] grid = puzzle.getGrid();
+                int[][] solution = solver.solve(grid);
+                for (int i = 0; i < 9; i++) {
+                    for (int j = 0; j < 9; j++) {
+                        if (grid[i][j] == 0)
+                            continue;
+                        grid[i][j] = 0;
+                        assertTrue(solver.hasSolutionWithout(grid, i, j, solution[i][j])
+                                || Difficulty.of(solver, grid).compareTo(difficulty) > 0);
+                        grid[i][j] = solution[i][j];
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void GeneratorReproducibleTest() throws IOException {
+        List<Sudoku> one = SudokuGenerator.generate(3, Difficulty.HARD, 20, 42, 1);
+        List<Sudoku> four = SudokuGenerator.generate(3, Difficulty.HARD, 20, 42, 4);
+        List<Sudoku> other = SudokuGenerator.generate(3, Difficulty.HARD, 20, 43, 4);
+        assertEquals(20, one.size());
+        for (int n = 0; n < 20; n++) {
+            assertTrue(Arrays.deepEquals(one.get(n).getGrid(), four.get(n).getGrid()));
+            assertFalse(Arrays.deepEquals(one.get(n).getGrid(), other.get(n).getGrid()));
+        }
+        // a 16x16 puzzle solved back to a filled-in grid
+        Sudoku big = new SudokuGenerator(4, 7).generate(Difficulty.MEDIUM);
+        assertEquals(Difficulty.MEDIUM, Difficulty.of(big));
+        assertEquals(1, SudokuSolver.forDim(4).countSolutions(big.getGrid(), 2));
+    }
+}
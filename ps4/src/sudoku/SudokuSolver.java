@@ -0,0 +1,418 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A Sudoku solver working directly on the grid, without going through a SAT
+ * encoding.
+ *
+ * Each square keeps its set of candidate digits as a bitmask. Placing a digit
+ * removes it from the candidates of every square in the same row, column and
+ * block (its peers), and the solver repeatedly applies the two classic
+ * deductions until neither applies:
+ *
+ *   naked single:  a square with one candidate left gets that digit
+ *   hidden single: a digit that fits only one square of a row, column or
+ *                  block goes there
+ *
+ * A square left with no candidates, or a digit with no place in some unit,
+ * refutes the current branch. When deduction stalls, the solver branches on
+ * a square with the fewest candidates (minimum remaining values), keeping
+ * the open branches on an explicit stack, and restarts with a growing budget
+ * of explored states to escape early bad choices.
+ *
+ * Puzzles up to dimension 5 (25x25) are supported, so candidate sets fit in
+ * an int. A SudokuSolver only holds tables for its dimension, so one may
+ * solve puzzles in several threads at once.
+ */
+public class SudokuSolver {
+    /** Largest dimension supported. */
+    public static final int MAX_DIM = 5;
+
+    // states explored before the first restart
+    private static final int RESTART_BASE = 100;
+    // result of search when the state has no solution
+    private static final int[] NO_SOLUTION = new int[0];
+    // shared[dim] = solver returned by forDim(dim), or null
+    private static final SudokuSolver[] shared = new SudokuSolver[MAX_DIM + 1];
+
+    private final int size;
+    // number of squares, size*size; square (i,j) has index i*size + j
+    private final int cells;
+    // mask with a bit for every digit
+    private final int all;
+    // peers[c] = indices of the squares sharing a row, column or block with c
+    private final int[][] peers;
+    // units[u] = indices of the squares of a row, column or block
+    private final int[][] units;
+
+    /*
+     * Rep invariant:
+     *     1 <= size <= MAX_DIM*MAX_DIM
+     *     cells == size*size, all == (1 << size) - 1
+     *     peers.length == cells, units.length == 3*size
+     *
+     * A search state is an int[cells + 1]: state[c] is the candidate mask of
+     * square c, bit k standing for digit k+1, and state[cells] is the index
+     * of a square just given a single candidate whose peers are yet to be
+     * updated, or -1.
+     */
+
+    private void checkRep() {
+        assert size >= 1 && size <= MAX_DIM * MAX_DIM : "SudokuSolver, Rep invariant: size";
+        assert cells == size * size : "SudokuSolver, Rep invariant: cells";
+        assert peers.length == cells && units.length == 3 * size : "SudokuSolver, Rep invariant: tables";
+    }
+
+    /**
+     * Make a solver for puzzles of dimension dim.
+     *
+     * @param dim
+     *            requires 1 <= dim <= MAX_DIM
+     */
+    public SudokuSolver(int dim) {
+        assert dim >= 1 && dim <= MAX_DIM : "SudokuSolver: dimension out of range";
+        size = dim * dim;
+        cells = size * size;
+        all = (1 << size) - 1;
+
+        units = new int[3 * size][size];
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                units[i][j] = i * size + j;
+                units[size + i][j] = j * size + i;
+                // j-th square of block i
+                int row = (i / dim) * dim + j / dim;
+                int col = (i % dim) * dim + j % dim;
+                units[2 * size + i][j] = row * size + col;
+            }
+        }
+
+        peers = new int[cells][];
+        for (int c = 0; c < cells; c++) {
+            int i = c / size, j = c % size;
+            List<Integer> ps = new ArrayList<Integer>();
+            for (int[] unit : new int[][] { units[i], units[size + j],
+                    units[2 * size + (i / dim) * dim + j / dim] })
+                for (int p : unit)
+                    if (p != c && !ps.contains(p))
+                        ps.add(p);
+            peers[c] = new int[ps.size()];
+            for (int k = 0; k < peers[c].length; k++)
+                peers[c][k] = ps.get(k);
+        }
+        checkRep();
+    }
+
+    /**
+     * Solve a puzzle.
+     *
+     * @param puzzle
+     *            requires puzzle.getDim() <= MAX_DIM
+     * @return a filled-in grid agreeing with the givens of puzzle, or null if
+     *         the puzzle has no solution
+     */
+    public static Sudoku solve(Sudoku puzzle) {
+        int dim = puzzle.getDim();
+        int[][] grid = forDim(dim).solve(puzzle.getGrid());
+        return grid == null ? null : new Sudoku(dim, grid);
+    }
+
+    /**
+     * @param dim
+     *            requires 1 <= dim <= MAX_DIM
+     * @return a solver for puzzles of dimension dim, made once and shared
+     */
+    public static synchronized SudokuSolver forDim(int dim) {
+        if (shared[dim] == null)
+            shared[dim] = new SudokuSolver(dim);
+        return shared[dim];
+    }
+
+    /**
+     * Solve a puzzle given as a grid.
+     *
+     * @param grid
+     *            grid[i][j] is 0 for a blank, else the digit in row i,
+     *            column j, as taken by the Sudoku constructor; requires a
+     *            grid of this solver's size
+     * @return a new grid with no blanks agreeing with grid, or null if there
+     *         is none
+     */
+    public int[][] solve(int[][] grid) {
+        int[] solved = solve(toState(grid));
+        return solved == null ? null : toGrid(solved);
+    }
+
+    /**
+     * Count the solutions of a puzzle given as a grid, by exhaustive search.
+     *
+     * @param grid
+     *            as for solve(int[][])
+     * @param limit
+     *            requires limit >= 1
+     * @return the number of filled-in grids agreeing with grid, or limit if
+     *         there are at least that many; the search stops there
+     */
+    public int countSolutions(int[][] grid, int limit) {
+        assert limit >= 1 : "SudokuSolver.countSolutions: limit >= 1";
+        return count(toState(grid), limit, Long.MAX_VALUE);
+    }
+
+    /**
+     * Check whether a puzzle has a solution with a digit other than d in
+     * square (i,j). If a puzzle has a unique solution with d in (i,j), then
+     * the puzzle with (i,j) blanked also has a unique solution just when it
+     * has no solution with another digit there; this is quicker to check
+     * than counting its solutions, since the search need not go through the
+     * known solution.
+     *
+     * @param grid
+     *            as for solve(int[][])
+     * @param d
+     *            requires 1 <= d <= size
+     * @return true if grid has a solution that does not put d in row i,
+     *         column j
+     */
+    public boolean hasSolutionWithout(int[][] grid, int i, int j, int d) {
+        return hasSolutionWithout(grid, i, j, d, Long.MAX_VALUE);
+    }
+
+    /*
+     * As hasSolutionWithout(grid, i, j, d), but also true if that could not
+     * be settled by exploring budget states.
+     */
+    boolean hasSolutionWithout(int[][] grid, int i, int j, int d, long budget) {
+        int[] initial = toState(grid);
+        initial[i * size + j] &= ~(1 << (d - 1));
+        return count(initial, 1, budget) != 0;
+    }
+
+    /*
+     * @return the number of solutions of the state initial, or limit if
+     *         there are at least that many, or -1 if neither was found out
+     *         by exploring budget states
+     */
+    private int count(int[] initial, int limit, long budget) {
+        int[] queue = new int[cells];
+        if (!propagate(initial, queue, true, true))
+            return 0;
+        List<int[]> stack = new ArrayList<int[]>();
+        stack.add(initial);
+        int count = 0;
+        for (long explored = 0; !stack.isEmpty() && count < limit; explored++) {
+            if (explored == budget)
+                return -1;
+            int[] state = stack.remove(stack.size() - 1);
+            if (state[cells] >= 0 && !propagate(state, queue, false, true))
+                continue;
+            // the first of the squares with the fewest candidates
+            int best = -1, bestCount = size + 1;
+            for (int c = 0; c < cells && bestCount > 2; c++) {
+                int n = Integer.bitCount(state[c]);
+                if (n > 1 && n < bestCount) {
+                    bestCount = n;
+                    best = c;
+                }
+            }
+            if (best < 0) {
+                count++;
+                continue;
+            }
+            for (int m = state[best]; m != 0; m &= m - 1) {
+                int[] branch = state.clone();
+                branch[best] = Integer.lowestOneBit(m);
+                branch[cells] = best;
+                stack.add(branch);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Solve a puzzle given as a grid by deduction alone, without search.
+     *
+     * @param grid
+     *            as for solve(int[][])
+     * @param hiddenSingles
+     *            true to place hidden singles as well as naked singles
+     * @return true if repeatedly placing naked singles, and hidden singles
+     *         if hiddenSingles, fills in every square of grid
+     */
+    public boolean solvesBySingles(int[][] grid, boolean hiddenSingles) {
+        int[] state = toState(grid);
+        if (!propagate(state, new int[cells], true, hiddenSingles))
+            return false;
+        for (int c = 0; c < cells; c++)
+            if ((state[c] & (state[c] - 1)) != 0)
+                return false;
+        return true;
+    }
+
+    /*
+     * @return the initial search state for grid
+     */
+    private int[] toState(int[][] grid) {
+        int[] state = new int[cells + 1];
+        for (int i = 0; i < size; i++)
+            for (int j = 0; j < size; j++)
+                state[i * size + j] = grid[i][j] == 0 ? all : 1 << (grid[i][j] - 1);
+        state[cells] = -1;
+        return state;
+    }
+
+    private int[][] toGrid(int[] state) {
+        int[][] grid = new int[size][size];
+        for (int c = 0; c < cells; c++)
+            grid[c / size][c % size] = Integer.numberOfTrailingZeros(state[c]) + 1;
+        return grid;
+    }
+
+    /*
+     * Search from initial with restarts: each attempt explores at most a
+     * budget of states, half as large again as the last, and breaks ties
+     * between branching squares and orders digits at random. Without
+     * restarts an early bad choice on a large grid with many blanks can
+     * cost seconds, as the search runs time is heavy-tailed.
+     * @return a state in which every square has one candidate, or null
+     */
+    private int[] solve(int[] initial) {
+        int[] queue = new int[cells];
+        if (!propagate(initial, queue, true, true))
+            return null;
+        Random random = new Random(0);
+        long budget = RESTART_BASE;
+        while (true) {
+            int[] result = search(initial, queue, random, budget);
+            if (result != null)
+                return result == NO_SOLUTION ? null : result;
+            budget += budget / 2;
+        }
+    }
+
+    /*
+     * Depth-first search from initial, branching on a square with the fewest
+     * candidates.
+     * @param budget
+     *            largest number of states to explore
+     * @return a state in which every square has one candidate; NO_SOLUTION
+     *         if there is none; or null if the budget ran out
+     */
+    private int[] search(int[] initial, int[] queue, Random random, long budget) {
+        List<int[]> stack = new ArrayList<int[]>();
+        stack.add(initial);
+        int[] digits = new int[size];
+        for (long explored = 0; !stack.isEmpty(); explored++) {
+            if (explored == budget)
+                return null;
+            int[] state = stack.remove(stack.size() - 1);
+            if (state[cells] >= 0 && !propagate(state, queue, false, true))
+                continue;
+            // a random one of the squares with the fewest candidates
+            int best = -1, bestCount = size + 1, ties = 0;
+            for (int c = 0; c < cells; c++) {
+                int count = Integer.bitCount(state[c]);
+                if (count > 1 && count <= bestCount) {
+                    if (count < bestCount) {
+                        bestCount = count;
+                        ties = 0;
+                    }
+                    if (random.nextInt(++ties) == 0)
+                        best = c;
+                }
+            }
+            if (best < 0)
+                return state;
+            int n = 0;
+            for (int m = state[best]; m != 0; m &= m - 1)
+                digits[n++] = Integer.lowestOneBit(m);
+            for (int i = n - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = digits[i];
+                digits[i] = digits[j];
+                digits[j] = t;
+            }
+            for (int i = 0; i < n; i++) {
+                int[] branch = state.clone();
+                branch[best] = digits[i];
+                branch[cells] = best;
+                stack.add(branch);
+            }
+        }
+        return NO_SOLUTION;
+    }
+
+    /*
+     * Apply naked and hidden singles to state until neither applies. Each
+     * square is queued at most once, when it is left with a single
+     * candidate, so queue needs room for one entry per square.
+     * @param everySingle
+     *            true to start from every square with one candidate, false
+     *            to start from the square state[cells] only
+     * @param hiddenSingles
+     *            false to apply naked singles only
+     * @return false if state is found to have no solution
+     */
+    private boolean propagate(int[] state, int[] queue, boolean everySingle, boolean hiddenSingles) {
+        int head = 0, tail = 0;
+        if (everySingle) {
+            for (int c = 0; c < cells; c++) {
+                if (state[c] == 0)
+                    return false;
+                if ((state[c] & (state[c] - 1)) == 0)
+                    queue[tail++] = c;
+            }
+        } else if (state[cells] >= 0) {
+            queue[tail++] = state[cells];
+        }
+        while (true) {
+            // naked singles: remove each placed digit from its peers
+            while (head < tail) {
+                int c = queue[head++];
+                int bit = state[c];
+                for (int p : peers[c]) {
+                    int m = state[p];
+                    if ((m & bit) != 0) {
+                        m &= ~bit;
+                        if (m == 0)
+                            return false;
+                        state[p] = m;
+                        if ((m & (m - 1)) == 0)
+                            queue[tail++] = p;
+                    }
+                }
+            }
+            if (!hiddenSingles)
+                break;
+            // hidden singles: digits with one place left in some unit
+            boolean placed = false;
+            for (int[] unit : units) {
+                int once = 0, twice = 0;
+                for (int c : unit) {
+                    int m = state[c];
+                    twice |= once & m;
+                    once |= m;
+                }
+                if (once != all)
+                    return false;
+                int hidden = once & ~twice;
+                for (int c : unit) {
+                    int m = state[c] & hidden;
+                    if (m != 0 && m != state[c]) {
+                        if ((m & (m - 1)) != 0)
+                            return false; // two digits need this square
+                        state[c] = m;
+                        queue[tail++] = c;
+                        placed = true;
+                    }
+                }
+            }
+            if (!placed)
+                break;
+        }
+        state[cells] = -1;
+        return true;
+    }
+}
@@ -2,11 +2,21 @@ package sudoku;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.Test;
 
+import sat.SATSolver;
+import sat.env.Environment;
+import sat.env.Variable;
+import sat.formula.AtMostOne;
+import sat.formula.PackedFormula;
 import sudoku.Sudoku.ParseException;
 
 
@@ -169,4 +179,132 @@ public class SudokuTest {
     			+ "1.6845279\n";
     	assertEquals(expected, sudoku.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void SudokuPackedProblemTest() throws IOException, ParseException{
+    	Sudoku sudoku = Sudoku.fromFile(3, "samples"+ File.separator +"sudoku_easy.txt");
+    	for (AtMostOne amo : AtMostOne.values()) {
+    		Environment e = SATSolver.solve(sudoku.getPackedProblem(amo));
+    		assertNotNull(e);
+    		assertSolves(sudoku, sudoku.interpretSolution(e));
+    	}
+    }
+    
+    @Test
+    public void SudokuPackedVariablesTest(){
+    	// 16x16: variable names built as i+j+k used to collide here
+    	PackedFormula f = new Sudoku(4).getPackedProblem(AtMostOne.SEQUENTIAL);
+    	Set<Variable> vars = new HashSet<Variable>();
+    	for (int v = 0; v < f.numVariables(); v++)
+    		if (f.getVariable(v) != null)
+    			vars.add(f.getVariable(v));
+    	assertEquals(16 * 16 * 16, vars.size());
+    }
+    
+    @Test
+    public void SudokuPackedLargeTest(){
+    	Sudoku sudoku = new Sudoku(4);
+    	for (AtMostOne amo : AtMostOne.values()) {
+    		Environment e = SATSolver.solve(sudoku.getPackedProblem(amo));
+    		assertNotNull(e);
+    		assertSolves(sudoku, sudoku.interpretSolution(e));
+    	}
+    }
+    
+    @Test
+    public void SudokuNativeSolversTest() throws IOException, ParseException{
+    	for (String name : new String[] { "sudoku_easy.txt", "sudoku_hard.txt", "sudoku_evil.txt" }) {
+    		Sudoku sudoku = Sudoku.fromFile(3, "samples"+ File.separator + name);
+    		assertSolves(sudoku, SudokuSolver.solve(sudoku));
+    		assertSolves(sudoku, DancingLinks.solve(sudoku));
+    	}
+    	for (int dim = 1; dim <= SudokuSolver.MAX_DIM; dim++) {
+    		assertSolves(new Sudoku(dim), SudokuSolver.solve(new Sudoku(dim)));
+    		assertSolves(new Sudoku(dim), DancingLinks.solve(new Sudoku(dim)));
+    	}
+    }
+    
+    @Test
+    public void SudokuNativeNoSolutionTest(){
+    	// square (0,3) can be neither 1 or 2 (its row) nor 3 or 4 (its column)
+    	Sudoku sudoku = new Sudoku(2, new int[][] {
+    			new int[] { 1, 2, 0, 0 },
+    			new int[] { 0, 0, 0, 0 },
+    			new int[] { 0, 0, 0, 3 },
+    			new int[] { 0, 0, 0, 4 },
+    	});
+    	assertNull(SudokuSolver.solve(sudoku));
+    	assertNull(DancingLinks.solve(sudoku));
+    	assertNull(SATSolver.solve(sudoku.getPackedProblem()));
+    }
+    
+    @Test
+    public void SudokuDigitsTest() throws IOException, ParseException{
+    	for (int d = 0; d <= 35; d++)
+    		assertEquals(d, Sudoku.digit(Sudoku.digitChar(d)));
+    	assertEquals(0, Sudoku.digit('0'));
+    	assertEquals(16, Sudoku.digit('g'));
+    	assertEquals(-1, Sudoku.digit('?'));
+    	
+    	// a 16x16 solution written out reads back the same
+    	Sudoku solution = SudokuSolver.solve(new Sudoku(4));
+    	File file = File.createTempFile("sudoku", ".txt");
+    	try {
+    		FileWriter out = new FileWriter(file);
+    		out.write(solution.toString());
+    		out.close();
+    		assertEquals(solution.toString(), Sudoku.fromFile(4, file.getPath()).toString());
+    	} finally {
+    		file.delete();
+    	}
+    }
+    
+    @Test
+    public void SudokuBatchTest() throws IOException, ParseException{
+    	String easy = "2..1.5..3.54...71..1.2.3.8.6.28.73.4.........1.53.98.6.2.7.1.6..81...24.7..4.2..1";
+    	// square (0,8) can only be 9, which is in its column
+    	String none = "12345678.........9", dots = "";
+    	while (none.length() < 81)
+    		none += ".";
+    	// two 1s in the first row
+    	String clash = "11";
+    	while (clash.length() < 81)
+    		clash += ".";
+    	while (dots.length() < 81)
+    		dots += ".";
+    	StringBuilder in = new StringBuilder("# comment\n\n");
+    	for (int i = 0; i < 600; i++)
+    		in.append(i == 300 ? none : i == 450 ? clash : easy).append(i % 2 == 0 ? "\n" : "\r\n");
+    	for (SolveMethod method : SolveMethod.values()) {
+    		ByteArrayOutputStream out = new ByteArrayOutputStream();
+    		long n = BatchSolver.solve(3, new ByteArrayInputStream(in.toString().getBytes("US-ASCII")), out, method, 3);
+    		assertEquals(600, n);
+    		String[] lines = out.toString("US-ASCII").split("\n");
+    		assertEquals(600, lines.length);
+    		String solved = lines[0];
+    		for (int i = 0; i < easy.length(); i++)
+    			if (easy.charAt(i) != '.')
+    				assertEquals(easy.charAt(i), solved.charAt(i));
+    		for (int i = 0; i < 600; i++)
+    			assertEquals(i == 300 || i == 450 ? dots : solved, lines[i]);
+    	}
+    }
+    
+    @Test(expected=ParseException.class)
+    public void SudokuBatchParseErrorTest() throws IOException, ParseException{
+    	String in = "123\n";
+    	BatchSolver.solve(3, new ByteArrayInputStream(in.getBytes("US-ASCII")),
+    			new ByteArrayOutputStream(), SolveMethod.PROPAGATION, 1);
+    }
+    
+    // check that solution is filled in and agrees with the givens of puzzle;
+    // the constructor of solution checks the Sudoku rules
+    private static void assertSolves(Sudoku puzzle, Sudoku solution) {
+    	String p = puzzle.toString(), s = solution.toString();
+    	assertFalse(s.contains("."));
+    	assertEquals(p.length(), s.length());
+    	for (int i = 0; i < p.length(); i++)
+    		if (p.charAt(i) != '.')
+    			assertEquals(p.charAt(i), s.charAt(i));
+    }
+}